@@ -1,7 +1,13 @@
 package com.robust.tools.kit.collection;
 
+import com.robust.tools.kit.collection.type.BlockingQueueAdapter;
+import com.robust.tools.kit.collection.type.MpmcArrayQueue;
+import com.robust.tools.kit.collection.type.MpscArrayQueue;
+import com.robust.tools.kit.collection.type.SpscArrayQueue;
+
 import java.util.ArrayDeque;
 import java.util.LinkedList;
+import java.util.Queue;
 import java.util.concurrent.*;
 
 /**
@@ -110,4 +116,63 @@ public class QueueUtil {
     public static <E> LinkedBlockingDeque<E> newLinkedBlockingDeque(int capacity) {
         return new LinkedBlockingDeque<>();
     }
+
+    /**
+     * 创建有界无锁的多生产者多消费者数组队列, 容量向上取整为2的幂.
+     * 生产者与消费者互不竞争锁, 也不为每个元素分配节点.
+     *
+     * @param capacity
+     * @param <E>
+     * @return
+     */
+    public static <E> MpmcArrayQueue<E> newMpmcArrayQueue(int capacity) {
+        return new MpmcArrayQueue<>(capacity);
+    }
+
+    /**
+     * 创建有界无锁的多生产者单消费者数组队列, 容量向上取整为2的幂.
+     *
+     * @param capacity
+     * @param <E>
+     * @return
+     */
+    public static <E> MpscArrayQueue<E> newMpscArrayQueue(int capacity) {
+        return new MpscArrayQueue<>(capacity);
+    }
+
+    /**
+     * 创建有界无锁的单生产者单消费者数组队列, 容量向上取整为2的幂.
+     *
+     * @param capacity
+     * @param <E>
+     * @return
+     */
+    public static <E> SpscArrayQueue<E> newSpscArrayQueue(int capacity) {
+        return new SpscArrayQueue<>(capacity);
+    }
+
+    /**
+     * 创建基于无锁MPMC数组队列的阻塞队列, 可作为ThreadPoolExecutor与TaskQueue的工作队列.
+     * 只有队列空/满需要等待时才加锁.
+     *
+     * @param capacity
+     * @param <E>
+     * @return
+     */
+    public static <E> BlockingQueueAdapter<E> newBlockingMpmcArrayQueue(int capacity) {
+        MpmcArrayQueue<E> queue = new MpmcArrayQueue<>(capacity);
+        return new BlockingQueueAdapter<>(queue, queue.capacity());
+    }
+
+    /**
+     * 把非阻塞的有界队列包装为阻塞队列
+     *
+     * @param queue
+     * @param capacity
+     * @param <E>
+     * @return
+     */
+    public static <E> BlockingQueueAdapter<E> asBlockingQueue(Queue<E> queue, int capacity) {
+        return new BlockingQueueAdapter<>(queue, capacity);
+    }
 }
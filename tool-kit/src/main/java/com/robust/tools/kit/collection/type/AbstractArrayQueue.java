@@ -0,0 +1,229 @@
+package com.robust.tools.kit.collection.type;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.type.Sequence;
+import com.robust.tools.kit.number.MathUtil;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @Description: 有界无锁数组队列的基类, 参考Dmitry Vyukov的Bounded MPMC Queue与JCTools.
+ * <p>
+ * 1. 数组预分配, 入队出队不分配链表节点, 容量向上取整为2的幂, 最大为2^30.
+ * <p>
+ * 2. 每个槽位带一个序号: 等于生产者序号时可写入, 等于生产者序号+1时可读取, 读取后加上容量供下一轮写入,
+ * 生产者与消费者只通过槽位序号交接元素, 不需要读取对方的游标.
+ * <p>
+ * 3. 生产者游标与消费者游标使用填充过的{@link Sequence}, 避免伪共享.
+ * <p>
+ * 4. remove(Object)与迭代器的remove()把槽位中的元素CAS为删除标记, 不移动其他元素, 消费者出队时跳过删除标记.
+ * 因此ThreadPoolExecutor.remove()/purge()可以使用, 但删除只是标记, 槽位要等消费者经过后才能被生产者重用.
+ * <p>
+ * 不允许null元素. size()与迭代器只是近似值与弱一致的快照.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 13:00
+ * @Version: 1.0
+ */
+abstract class AbstractArrayQueue<E> extends AbstractQueue<E> {
+
+    //被remove()删除的元素的标记
+    private static final Object REMOVED = new Object();
+
+    //向上取整为2的幂后仍为正数的最大容量
+    static final int MAX_CAPACITY = 1 << 30;
+
+    protected final int capacity;
+    protected final int mask;
+    protected final AtomicReferenceArray<E> buffer;
+    protected final AtomicLongArray sequences;
+
+    //下一个写入的序号
+    protected final Sequence producerIndex = new Sequence(0);
+    //下一个读取的序号
+    protected final Sequence consumerIndex = new Sequence(0);
+    //已标记删除但尚未被消费者跳过的槽位数, 从size()中扣除
+    private final AtomicLong removedCount = new AtomicLong();
+
+    protected AbstractArrayQueue(int capacity) {
+        Validate.positive("capacity", capacity);
+        Validate.isTrue(capacity <= MAX_CAPACITY, "capacity must not exceed 2^30: %d", capacity);
+        this.capacity = MathUtil.findNextPositivePowerOfTwo(Math.max(2, capacity));
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.lazySet(i, i);
+        }
+    }
+
+    /**
+     * 生产者占到序号后写入元素并发布槽位
+     */
+    protected final void publish(long index, E e) {
+        int offset = (int) index & mask;
+        buffer.lazySet(offset, e);
+        sequences.lazySet(offset, index + 1);
+    }
+
+    /**
+     * 消费者占到序号后取出元素并把槽位还给下一轮生产者, 与remove()竞争槽位, 用getAndSet保证元素只被一方取走.
+     *
+     * @return 元素已被remove()删除时返回null
+     */
+    protected final E consume(long index) {
+        int offset = (int) index & mask;
+        E e = buffer.getAndSet(offset, null);
+        sequences.lazySet(offset, index + capacity);
+        if (e == REMOVED) {
+            removedCount.decrementAndGet();
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * @return 取整后的实际容量
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public E peek() {
+        for (; ; ) {
+            long head = consumerIndex.get();
+            //跳过队头已被删除的元素
+            for (long index = head; index - head < capacity; index++) {
+                int offset = (int) index & mask;
+                if (sequences.get(offset) - (index + 1) < 0) {
+                    return null;
+                }
+                E e = buffer.get(offset);
+                if (consumerIndex.get() != head) {
+                    break;
+                }
+                if (e != null && e != REMOVED) {
+                    return e;
+                }
+            }
+            if (consumerIndex.get() == head) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 把第一个equals(o)的元素标记为删除
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        long head = consumerIndex.get();
+        long tail = producerIndex.get();
+        for (long index = head; index < tail; index++) {
+            int offset = (int) index & mask;
+            if (sequences.get(offset) != index + 1) {
+                continue;
+            }
+            E e = buffer.get(offset);
+            if (e != null && e != REMOVED && o.equals(e) && buffer.compareAndSet(offset, e, removed())) {
+                removedCount.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        //两次读取消费者游标之间读取生产者游标, 得到一致的差值
+        long after = consumerIndex.get();
+        for (; ; ) {
+            long before = after;
+            long producer = producerIndex.get();
+            after = consumerIndex.get();
+            if (before == after) {
+                return (int) Math.max(0, Math.min(producer - after, capacity) - removedCount.get());
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return consumerIndex.get() == producerIndex.get() || size() == 0;
+    }
+
+    /**
+     * 弱一致的快照, remove()把该元素标记为删除, 元素已出队时什么都不做
+     */
+    @Override
+    public Iterator<E> iterator() {
+        long head = consumerIndex.get();
+        long tail = producerIndex.get();
+        int size = (int) Math.max(0, Math.min(tail - head, capacity));
+        List<E> elements = new ArrayList<>(size);
+        List<Integer> offsets = new ArrayList<>(size);
+        for (long index = head; index < tail; index++) {
+            int offset = (int) index & mask;
+            if (sequences.get(offset) == index + 1) {
+                E e = buffer.get(offset);
+                if (e != null && e != REMOVED) {
+                    elements.add(e);
+                    offsets.add(offset);
+                }
+            }
+        }
+        return new SnapshotIterator(elements, offsets);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E removed() {
+        return (E) REMOVED;
+    }
+
+    private final class SnapshotIterator implements Iterator<E> {
+        private final List<E> elements;
+        private final List<Integer> offsets;
+        private int cursor;
+        private int last = -1;
+
+        SnapshotIterator(List<E> elements, List<Integer> offsets) {
+            this.elements = elements;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < elements.size();
+        }
+
+        @Override
+        public E next() {
+            if (cursor >= elements.size()) {
+                throw new NoSuchElementException();
+            }
+            last = cursor++;
+            return elements.get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (buffer.compareAndSet(offsets.get(last), elements.get(last), removed())) {
+                removedCount.incrementAndGet();
+            }
+            last = -1;
+        }
+    }
+}
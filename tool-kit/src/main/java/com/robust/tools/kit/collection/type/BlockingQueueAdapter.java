@@ -0,0 +1,265 @@
+package com.robust.tools.kit.collection.type;
+
+import com.robust.tools.kit.base.Validate;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * @Description: 把非阻塞的有界队列(如{@link MpmcArrayQueue})包装为BlockingQueue, 用于ThreadPoolExecutor的工作队列等需要阻塞语义的场景.
+ * <p>
+ * 非阻塞的offer()/poll()直接调用被包装的队列, 不加锁. 只有当有线程因队列空/满而等待时, 对方才加锁signal,
+ * 因此在生产者与消费者都不需要等待时与被包装的队列开销相同.
+ * <p>
+ * 等待的线程先登记再重试一次, 对方先入队/出队再检查登记数, 两者都是volatile操作, 不会丢失唤醒.
+ * <p>
+ * 多个线程调用take()/poll()时, 被包装的队列必须支持多消费者; 多个线程调用put()/offer()时, 必须支持多生产者.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 13:30
+ * @Version: 1.0
+ */
+public class BlockingQueueAdapter<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final Queue<E> queue;
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger takeWaiters = new AtomicInteger();
+    private final AtomicInteger putWaiters = new AtomicInteger();
+
+    /**
+     * @param queue    被包装的非阻塞队列
+     * @param capacity 被包装队列的容量, 用于remainingCapacity()
+     */
+    public BlockingQueueAdapter(Queue<E> queue, int capacity) {
+        this.queue = Validate.notNull(queue);
+        this.capacity = Validate.positive("capacity", capacity);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (queue.offer(e)) {
+            signal(takeWaiters, notEmpty);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public E poll() {
+        E e = queue.poll();
+        if (e != null) {
+            signal(putWaiters, notFull);
+        }
+        return e;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (offer(e)) {
+            return;
+        }
+        lock.lockInterruptibly();
+        putWaiters.incrementAndGet();
+        try {
+            while (!queue.offer(e)) {
+                awaitOrPass(notFull, -1);
+            }
+        } finally {
+            putWaiters.decrementAndGet();
+            lock.unlock();
+        }
+        signal(takeWaiters, notEmpty);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(e)) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        putWaiters.incrementAndGet();
+        try {
+            while (!queue.offer(e)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = awaitOrPass(notFull, nanos);
+            }
+        } finally {
+            putWaiters.decrementAndGet();
+            lock.unlock();
+        }
+        signal(takeWaiters, notEmpty);
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        lock.lockInterruptibly();
+        takeWaiters.incrementAndGet();
+        try {
+            while ((e = queue.poll()) == null) {
+                awaitOrPass(notEmpty, -1);
+            }
+        } finally {
+            takeWaiters.decrementAndGet();
+            lock.unlock();
+        }
+        signal(putWaiters, notFull);
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (e != null) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        takeWaiters.incrementAndGet();
+        try {
+            while ((e = queue.poll()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = awaitOrPass(notEmpty, nanos);
+            }
+        } finally {
+            takeWaiters.decrementAndGet();
+            lock.unlock();
+        }
+        signal(putWaiters, notFull);
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - queue.size());
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Validate.notNull(c);
+        Validate.isTrue(c != this, "cannot drain to self");
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = queue.poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        if (n > 0) {
+            signal(putWaiters, notFull);
+        }
+        return n;
+    }
+
+    /**
+     * 删除由被包装的队列完成, ThreadPoolExecutor.remove()/purge()以及execute()在关闭时的回滚都会调用.
+     */
+    @Override
+    public boolean remove(Object o) {
+        return signalIfRemoved(queue.remove(o));
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        return signalIfRemoved(queue.removeIf(filter));
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return signalIfRemoved(queue.removeAll(c));
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return signalIfRemoved(queue.retainAll(c));
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return queue.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return queue.toString();
+    }
+
+    private boolean signalIfRemoved(boolean removed) {
+        if (removed) {
+            signal(putWaiters, notFull);
+        }
+        return removed;
+    }
+
+    /**
+     * 有等待者时才加锁唤醒
+     */
+    private void signal(AtomicInteger waiters, Condition condition) {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                condition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 等待signal, 被中断时把收到的signal转交给其他等待者
+     *
+     * @param nanos 小于0时不限时
+     * @return 剩余的等待时间
+     */
+    private long awaitOrPass(Condition condition, long nanos) throws InterruptedException {
+        try {
+            if (nanos < 0) {
+                condition.await();
+                return -1;
+            }
+            return condition.awaitNanos(nanos);
+        } catch (InterruptedException ie) {
+            condition.signal();
+            throw ie;
+        }
+    }
+}
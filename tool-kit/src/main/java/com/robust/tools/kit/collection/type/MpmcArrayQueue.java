@@ -0,0 +1,63 @@
+package com.robust.tools.kit.collection.type;
+
+import com.robust.tools.kit.base.Validate;
+
+/**
+ * @Description: 有界无锁的多生产者多消费者数组队列.
+ * <p>
+ * 生产者与消费者各自CAS自己的游标占到序号, 再通过槽位序号交接元素. 与ArrayBlockingQueue的单锁相比, 生产者与消费者互不竞争;
+ * 与ConcurrentLinkedQueue相比, 不为每个元素分配节点.
+ * <p>
+ * 队列满时offer()返回false, 空时poll()返回null, 需要阻塞语义时用{@link BlockingQueueAdapter}包装.
+ * <p>
+ * https://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue
+ * @Author: robust
+ * @CreateDate: 2026/10/20 13:00
+ * @Version: 1.0
+ * @see AbstractArrayQueue
+ */
+public class MpmcArrayQueue<E> extends AbstractArrayQueue<E> {
+
+    public MpmcArrayQueue(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Validate.notNull(e);
+        for (; ; ) {
+            long index = producerIndex.get();
+            long sequence = sequences.get((int) index & mask);
+            if (sequence == index) {
+                if (producerIndex.compareAndSet(index, index + 1)) {
+                    publish(index, e);
+                    return true;
+                }
+            } else if (sequence - index < 0) {
+                //槽位还未被上一轮的消费者取走, 队列已满
+                return false;
+            }
+            //其他生产者已占用该序号, 重读游标
+        }
+    }
+
+    @Override
+    public E poll() {
+        for (; ; ) {
+            long index = consumerIndex.get();
+            long sequence = sequences.get((int) index & mask);
+            if (sequence == index + 1) {
+                if (consumerIndex.compareAndSet(index, index + 1)) {
+                    E e = consume(index);
+                    if (e != null) {
+                        return e;
+                    }
+                    //已被remove()删除, 继续取下一个
+                }
+            } else if (sequence - (index + 1) < 0) {
+                //槽位还未发布, 队列为空
+                return null;
+            }
+        }
+    }
+}
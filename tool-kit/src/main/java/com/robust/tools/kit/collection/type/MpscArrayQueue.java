@@ -0,0 +1,55 @@
+package com.robust.tools.kit.collection.type;
+
+import com.robust.tools.kit.base.Validate;
+
+/**
+ * @Description: 有界无锁的多生产者单消费者数组队列.
+ * <p>
+ * 生产者同{@link MpmcArrayQueue}用CAS占序号; 只有一个消费者, 出队不需要CAS, 只用有序写推进游标.
+ * 适合多个线程向单个事件循环/写线程投递任务的场景.
+ * <p>
+ * poll()/peek()同一时刻只能由一个线程调用, 否则行为未定义.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 13:00
+ * @Version: 1.0
+ * @see AbstractArrayQueue
+ */
+public class MpscArrayQueue<E> extends AbstractArrayQueue<E> {
+
+    public MpscArrayQueue(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Validate.notNull(e);
+        for (; ; ) {
+            long index = producerIndex.get();
+            long sequence = sequences.get((int) index & mask);
+            if (sequence == index) {
+                if (producerIndex.compareAndSet(index, index + 1)) {
+                    publish(index, e);
+                    return true;
+                }
+            } else if (sequence - index < 0) {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        for (; ; ) {
+            long index = consumerIndex.get();
+            if (sequences.get((int) index & mask) != index + 1) {
+                return null;
+            }
+            E e = consume(index);
+            consumerIndex.lazySet(index + 1);
+            //已被remove()删除时继续取下一个
+            if (e != null) {
+                return e;
+            }
+        }
+    }
+}
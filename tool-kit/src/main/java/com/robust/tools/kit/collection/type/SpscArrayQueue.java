@@ -0,0 +1,50 @@
+package com.robust.tools.kit.collection.type;
+
+import com.robust.tools.kit.base.Validate;
+
+/**
+ * @Description: 有界无锁的单生产者单消费者数组队列.
+ * <p>
+ * 入队与出队都没有CAS, 只用有序写(StoreStore屏障)发布槽位与推进游标, 是开销最低的线程间交接方式,
+ * 适合两个固定线程之间的流水线.
+ * <p>
+ * offer()同一时刻只能由一个线程调用, poll()/peek()同一时刻只能由另一个线程调用, 否则行为未定义.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 13:00
+ * @Version: 1.0
+ * @see AbstractArrayQueue
+ */
+public class SpscArrayQueue<E> extends AbstractArrayQueue<E> {
+
+    public SpscArrayQueue(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Validate.notNull(e);
+        long index = producerIndex.get();
+        if (sequences.get((int) index & mask) != index) {
+            return false;
+        }
+        publish(index, e);
+        producerIndex.lazySet(index + 1);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        for (; ; ) {
+            long index = consumerIndex.get();
+            if (sequences.get((int) index & mask) != index + 1) {
+                return null;
+            }
+            E e = consume(index);
+            consumerIndex.lazySet(index + 1);
+            //已被remove()删除时继续取下一个
+            if (e != null) {
+                return e;
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.base.annotation.Nullable;
+import com.robust.tools.kit.concurrent.limit.TokenBucketRateLimiter;
+import com.robust.tools.kit.concurrent.type.Promise;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * @Description: 异步重试, 取代在线程池线程中用ThreadUtil.sleep()退避的重试循环.
+ * <p>
+ * 每次尝试失败后, 由共享的{@link HashedWheelTimer}在退避时间后重新提交下一次尝试, 退避期间没有线程被阻塞.
+ * <p>
+ * 1. 退避: 指数退避加全抖动(Full Jitter), 第n次重试前等待[0, min(maxBackoff, initialBackoff * 2^(n-1)))内的随机时长,
+ * 避免大量客户端在同一时刻重试, 参考AWS Architecture Blog "Exponential Backoff And Jitter".
+ * <p>
+ * 2. 预算: 最大尝试次数, 从第一次尝试起的总截止时间, 以及所有调用共享的重试速率上限(每秒最多重试次数),
+ * 后者防止下游故障时重试把流量放大数倍.
+ * <p>
+ * 3. 条件: 按异常与按结果判断是否重试. 次数或预算耗尽时返回最后一次的结果或异常.
+ * <p>
+ * 下一次尝试默认在Timer的工作线程中发起, 只适合发起异步调用; 尝试本身耗时时应设置executor, 或使用{@link #submit(Callable, Executor)}.
+ * 返回的Promise被取消后不再发起新的尝试.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 00:20
+ * @Version: 1.0
+ */
+public class AsyncRetry {
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long deadlineNanos;
+    private final TokenBucketRateLimiter retryBudget;
+    private final Predicate<Throwable> retryOnException;
+    private final HashedWheelTimer timer;
+    private final Executor executor;
+
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder exhaustedCount = new LongAdder();
+    private final LongAdder budgetRejectedCount = new LongAdder();
+
+    private AsyncRetry(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = builder.initialBackoffNanos;
+        this.maxBackoffNanos = builder.maxBackoffNanos;
+        this.deadlineNanos = builder.deadlineNanos;
+        this.retryBudget = builder.maxRetriesPerSecond > 0
+                ? new TokenBucketRateLimiter(builder.maxRetriesPerSecond, 1, true) : null;
+        this.retryOnException = builder.retryOnException;
+        this.timer = builder.timer != null ? builder.timer : HashedWheelTimer.shared();
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 发起异步调用并按策略重试.
+     *
+     * @param attempt 每次调用返回一个新的CompletionStage, 第一次在调用者线程中执行
+     */
+    public <T> Promise<T> execute(Supplier<? extends CompletionStage<T>> attempt) {
+        return execute(attempt, null);
+    }
+
+    /**
+     * 发起异步调用并按策略重试.
+     *
+     * @param attempt       每次调用返回一个新的CompletionStage, 第一次在调用者线程中执行
+     * @param retryOnResult 成功的结果满足该条件时也重试, 如返回了"繁忙"的响应码
+     */
+    public <T> Promise<T> execute(Supplier<? extends CompletionStage<T>> attempt,
+                                  @Nullable Predicate<? super T> retryOnResult) {
+        Validate.notNull(attempt);
+        Promise<T> promise = new Promise<>();
+        //System.nanoTime()可能为负数, 不能以Long.MAX_VALUE表示不限制
+        long deadline = deadlineNanos > 0 ? System.nanoTime() + deadlineNanos : 0;
+        new Attempt<>(attempt, retryOnResult, promise, deadline).run();
+        return promise;
+    }
+
+    /**
+     * 在executor中执行同步任务并按策略重试, 退避期间不占用executor的线程.
+     */
+    public <T> Promise<T> submit(Callable<T> task, Executor taskExecutor) {
+        return submit(task, taskExecutor, null);
+    }
+
+    public <T> Promise<T> submit(Callable<T> task, Executor taskExecutor, @Nullable Predicate<? super T> retryOnResult) {
+        Validate.notNull(task);
+        Validate.notNull(taskExecutor);
+        return execute(() -> {
+            Promise<T> result = new Promise<>();
+            taskExecutor.execute(() -> {
+                try {
+                    result.complete(task.call());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+            return result;
+        }, retryOnResult);
+    }
+
+    /**
+     * @return 发起的重试次数(不含第一次尝试)
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * @return 因次数或截止时间耗尽而放弃重试的调用数
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+
+    /**
+     * @return 因超过重试速率上限而放弃重试的调用数
+     */
+    public long getBudgetRejectedCount() {
+        return budgetRejectedCount.sum();
+    }
+
+    /**
+     * 全抖动的指数退避
+     */
+    long backoffNanos(int attempts) {
+        int shift = Math.min(attempts - 1, 62);
+        long ceiling = initialBackoffNanos << shift;
+        if (ceiling <= 0 || ceiling > maxBackoffNanos || (ceiling >> shift) != initialBackoffNanos) {
+            ceiling = maxBackoffNanos;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling);
+    }
+
+    private final class Attempt<T> implements Runnable {
+        private final Supplier<? extends CompletionStage<T>> supplier;
+        private final Predicate<? super T> retryOnResult;
+        private final Promise<T> promise;
+        private final long deadline;
+        private final Runnable dispatch;
+        private int attempts;
+
+        Attempt(Supplier<? extends CompletionStage<T>> supplier, Predicate<? super T> retryOnResult,
+                Promise<T> promise, long deadline) {
+            this.supplier = supplier;
+            this.retryOnResult = retryOnResult;
+            this.promise = promise;
+            this.deadline = deadline;
+            this.dispatch = executor == null ? this : () -> {
+                try {
+                    executor.execute(this);
+                } catch (Throwable t) {
+                    promise.completeExceptionally(t);
+                }
+            };
+        }
+
+        @Override
+        public void run() {
+            if (promise.isDone()) {
+                return;
+            }
+            attempts++;
+            CompletionStage<T> stage;
+            try {
+                stage = supplier.get();
+                Validate.notNull(stage, "attempt must not return null");
+            } catch (Throwable t) {
+                onComplete(null, t);
+                return;
+            }
+            stage.whenComplete(this::onComplete);
+        }
+
+        private void onComplete(T value, Throwable cause) {
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            boolean retry;
+            try {
+                retry = cause != null ? retryOnException.test(cause)
+                        : retryOnResult != null && retryOnResult.test(value);
+            } catch (Throwable t) {
+                promise.completeExceptionally(t);
+                return;
+            }
+            if (!retry || promise.isDone()) {
+                finish(value, cause);
+                return;
+            }
+            if (attempts >= maxAttempts) {
+                exhaustedCount.increment();
+                finish(value, cause);
+                return;
+            }
+            long delay = backoffNanos(attempts);
+            if (deadlineNanos > 0 && System.nanoTime() + delay - deadline > 0) {
+                exhaustedCount.increment();
+                finish(value, cause);
+                return;
+            }
+            if (retryBudget != null && !retryBudget.tryAcquire()) {
+                budgetRejectedCount.increment();
+                finish(value, cause);
+                return;
+            }
+            retryCount.increment();
+            try {
+                timer.newTimeout(dispatch, delay, TimeUnit.NANOSECONDS);
+            } catch (Throwable t) {
+                finish(value, cause);
+            }
+        }
+
+        private void finish(T value, Throwable cause) {
+            if (cause != null) {
+                promise.completeExceptionally(cause);
+            } else {
+                promise.complete(value);
+            }
+        }
+    }
+
+    public static class Builder {
+        private int maxAttempts = 3;
+        private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+        private long maxBackoffNanos = TimeUnit.SECONDS.toNanos(10);
+        private long deadlineNanos = 0;
+        private double maxRetriesPerSecond = 0;
+        private Predicate<Throwable> retryOnException = t -> true;
+        private HashedWheelTimer timer;
+        private Executor executor;
+
+        private Builder() {
+        }
+
+        /**
+         * 最大尝试次数(含第一次), 默认3
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = Validate.positive("maxAttempts", maxAttempts);
+            return this;
+        }
+
+        /**
+         * 退避时长的初始值与上限, 默认100毫秒与10秒
+         */
+        public Builder setBackoff(long initialBackoff, long maxBackoff, TimeUnit unit) {
+            this.initialBackoffNanos = Validate.positive("initialBackoff", unit.toNanos(initialBackoff));
+            this.maxBackoffNanos = Validate.positive("maxBackoff", unit.toNanos(maxBackoff));
+            Validate.isTrue(initialBackoffNanos <= maxBackoffNanos, "initialBackoff must not exceed maxBackoff");
+            return this;
+        }
+
+        /**
+         * 从第一次尝试起的总截止时间, 下一次重试的时间点超过截止时间时不再重试. 默认不限制.
+         */
+        public Builder setDeadline(long deadline, TimeUnit unit) {
+            this.deadlineNanos = Validate.positive("deadline", unit.toNanos(deadline));
+            return this;
+        }
+
+        /**
+         * 所有调用共享的重试速率上限, 每秒最多发起的重试次数. 默认不限制.
+         */
+        public Builder setMaxRetriesPerSecond(double maxRetriesPerSecond) {
+            this.maxRetriesPerSecond = Validate.positive("maxRetriesPerSecond", maxRetriesPerSecond);
+            return this;
+        }
+
+        /**
+         * 异常满足该条件时才重试, 默认全部重试
+         */
+        public Builder setRetryOnException(Predicate<Throwable> retryOnException) {
+            this.retryOnException = Validate.notNull(retryOnException);
+            return this;
+        }
+
+        /**
+         * 驱动退避的Timer, 默认为{@link HashedWheelTimer#shared()}
+         */
+        public Builder setTimer(HashedWheelTimer timer) {
+            this.timer = timer;
+            return this;
+        }
+
+        /**
+         * 发起重试的Executor, 默认在Timer的工作线程中发起
+         */
+        public Builder setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public AsyncRetry build() {
+            return new AsyncRetry(this);
+        }
+    }
+}
@@ -0,0 +1,636 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.limit.TimeIntervalLimiter;
+import com.robust.tools.kit.time.ClockUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: 熔断器, 参考Resilience4j的CircuitBreaker, 取代远程调用周围手写的失败计数.
+ * <p>
+ * 1. CLOSED: 正常放行, 在滚动窗口中统计失败率与慢调用率, 调用数达到minimumCalls且任一比例超过阈值时转为OPEN.
+ * <p>
+ * 2. OPEN: 拒绝所有调用, 经过waitDurationInOpen后第一个请求将其转为HALF_OPEN.
+ * <p>
+ * 3. HALF_OPEN: 只放行permittedCallsInHalfOpen个探测请求, 全部结束后按同样的阈值判断转为CLOSED或重新OPEN.
+ * 探测请求超过maxWaitInHalfOpen仍未全部结束时(例如许可被泄漏, 没有报告结果)重新OPEN, 熔断器不会卡在HALF_OPEN.
+ * <p>
+ * 4. {@link #tryAcquire()}返回的{@link Permit}记录获取时的状态, CLOSED时放行、在HALF_OPEN期间才结束的调用不计为探测,
+ * 上一轮HALF_OPEN的探测也不计入新一轮. Permit只能报告一次结果, 重复报告被忽略.
+ * <p>
+ * 滚动窗口可按调用次数(最近N次)或时间(最近N秒)统计, 都是无锁的: 次数窗口为原子数组的环, 时间窗口为每秒一个LongAdder桶的环.
+ * CLOSED状态下获取许可只是一次volatile读, 成功调用只累加计数, 只有失败或慢调用时才汇总窗口计算比例.
+ * <p>
+ * 状态变化打印日志, 与ThreadDumper一样用{@link TimeIntervalLimiter}限制最少间隔, 防止抖动时刷屏.
+ * <p>
+ * 时间取自{@link ClockUtil}, 测试时可替换为DummyClock.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 21:30
+ * @Version: 1.0
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public enum WindowType {
+        COUNT_BASED, TIME_BASED
+    }
+
+    private final String name;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final int minimumCalls;
+    private final long waitDurationInOpenMillis;
+    private final int permittedCallsInHalfOpen;
+    private final long maxWaitInHalfOpenMillis;
+    private final Window window;
+    private final TimeIntervalLimiter reportLimiter;
+    private final LongAdder suppressedReports = new LongAdder();
+
+    // CLOSED时放行的标记
+    private static final HalfOpenRound CLOSED_PERMIT = new HalfOpenRound(0, 0);
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openedAt;
+    // 当前一轮HALF_OPEN的探测计数, 每次进入HALF_OPEN时替换
+    private volatile HalfOpenRound halfOpenRound;
+    private final LongAdder notPermittedCount = new LongAdder();
+
+    private CircuitBreaker(Builder builder) {
+        this.name = builder.name;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slowCallRateThreshold = builder.slowCallRateThreshold;
+        this.slowCallDurationNanos = builder.slowCallDurationNanos;
+        this.minimumCalls = builder.minimumCalls;
+        this.waitDurationInOpenMillis = builder.waitDurationInOpenMillis;
+        this.permittedCallsInHalfOpen = builder.permittedCallsInHalfOpen;
+        this.maxWaitInHalfOpenMillis = builder.maxWaitInHalfOpenMillis;
+        this.window = builder.windowType == WindowType.COUNT_BASED ? new CountWindow(builder.windowSize)
+                : new TimeWindow(builder.windowSize);
+        this.reportLimiter = new TimeIntervalLimiter(builder.reportIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    /**
+     * 获取调用许可, 返回false时调用方应快速失败.
+     * <p>
+     * 获取成功后必须调用{@link #onSuccess(long)}或{@link #onError(long)}报告结果, 结果按报告时的状态统计.
+     * 需要按获取许可时的状态统计时使用{@link #tryAcquire()}.
+     */
+    public boolean tryAcquirePermission() {
+        return acquire() != null;
+    }
+
+    /**
+     * 获取调用许可, 熔断中时返回null.
+     * <p>
+     * 获取成功后必须调用{@link Permit#onSuccess(long)}或{@link Permit#onError(long)}报告结果.
+     */
+    public Permit tryAcquire() {
+        HalfOpenRound round = acquire();
+        if (round == null) {
+            return null;
+        }
+        return new Permit(round == CLOSED_PERMIT ? null : round);
+    }
+
+    /**
+     * 报告调用成功, 按当前状态统计
+     *
+     * @param durationNanos 调用耗时, 用于判断是否慢调用
+     */
+    public void onSuccess(long durationNanos) {
+        onResult(false, durationNanos >= slowCallDurationNanos);
+    }
+
+    /**
+     * 报告调用失败, 按当前状态统计
+     *
+     * @param durationNanos 调用耗时, 用于判断是否慢调用
+     */
+    public void onError(long durationNanos) {
+        onResult(true, durationNanos >= slowCallDurationNanos);
+    }
+
+    /**
+     * 在熔断器保护下执行调用, 抛出的异常(包括Error)计为失败.
+     *
+     * @throws CallNotPermittedException 熔断中
+     */
+    public <T> T execute(Callable<T> callable) throws Exception {
+        Permit permit = tryAcquire();
+        if (permit == null) {
+            throw new CallNotPermittedException(name, state.get());
+        }
+        long start = System.nanoTime();
+        try {
+            T result = callable.call();
+            permit.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (Throwable t) {
+            permit.onError(System.nanoTime() - start);
+            throw t;
+        }
+    }
+
+    /**
+     * @return CLOSED时放行返回CLOSED_PERMIT, HALF_OPEN时放行返回当前一轮, 拒绝时返回null
+     */
+    private HalfOpenRound acquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return CLOSED_PERMIT;
+        }
+        if (current == State.OPEN) {
+            if (ClockUtil.currentTimeMillis() - openedAt < waitDurationInOpenMillis) {
+                notPermittedCount.increment();
+                return null;
+            }
+            transitionToHalfOpen();
+        }
+        HalfOpenRound round = halfOpenRound;
+        if (state.get() != State.HALF_OPEN || round == null) {
+            // 并发的状态变化, 重新判断
+            return acquire();
+        }
+        int permits;
+        do {
+            permits = round.permits.get();
+            if (permits <= 0) {
+                // 许可已发完, 探测迟迟没有结束时重新熔断
+                if (ClockUtil.currentTimeMillis() - round.startedAt >= maxWaitInHalfOpenMillis) {
+                    finishRound(round, State.OPEN);
+                }
+                notPermittedCount.increment();
+                return null;
+            }
+        } while (!round.permits.compareAndSet(permits, permits - 1));
+        return round;
+    }
+
+    private void onResult(boolean failed, boolean slow) {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            recordClosed(failed, slow);
+        } else if (current == State.HALF_OPEN) {
+            recordProbe(halfOpenRound, failed, slow);
+        }
+        // OPEN时的结果来自熔断前放行的调用, 忽略
+    }
+
+    private void recordClosed(boolean failed, boolean slow) {
+        if (state.get() != State.CLOSED) {
+            return;
+        }
+        window.record(failed, slow);
+        // 只有失败或慢调用才可能使比例超过阈值
+        if ((failed || slow) && window.total() >= minimumCalls
+                && exceedsThreshold(window.total(), window.failed(), window.slow())) {
+            transition(State.CLOSED, State.OPEN);
+        }
+    }
+
+    private void recordProbe(HalfOpenRound round, boolean failed, boolean slow) {
+        // 只统计当前这一轮HALF_OPEN放行的探测
+        if (round == null || round != halfOpenRound || state.get() != State.HALF_OPEN) {
+            return;
+        }
+        if (failed) {
+            round.failures.incrementAndGet();
+        }
+        if (slow) {
+            round.slowCalls.incrementAndGet();
+        }
+        if (round.calls.incrementAndGet() == permittedCallsInHalfOpen) {
+            finishRound(round, exceedsThreshold(permittedCallsInHalfOpen, round.failures.get(), round.slowCalls.get())
+                    ? State.OPEN : State.CLOSED);
+        }
+    }
+
+    private boolean exceedsThreshold(long total, long failed, long slow) {
+        return failed * 100f / total >= failureRateThreshold || slow * 100f / total >= slowCallRateThreshold;
+    }
+
+    private void transitionToHalfOpen() {
+        if (state.get() == State.OPEN) {
+            // 先准备好探测计数再切换状态
+            synchronized (this) {
+                if (state.get() == State.OPEN) {
+                    halfOpenRound = new HalfOpenRound(permittedCallsInHalfOpen, ClockUtil.currentTimeMillis());
+                    transition(State.OPEN, State.HALF_OPEN);
+                }
+            }
+        }
+    }
+
+    /**
+     * 结束一轮HALF_OPEN, 该轮已被其他线程结束时什么都不做
+     */
+    private synchronized void finishRound(HalfOpenRound round, State to) {
+        if (halfOpenRound == round && state.get() == State.HALF_OPEN) {
+            transition(State.HALF_OPEN, to);
+        }
+    }
+
+    private void transition(State from, State to) {
+        if (to == State.OPEN) {
+            openedAt = ClockUtil.currentTimeMillis();
+        } else if (to == State.CLOSED) {
+            window.reset();
+        }
+        if (state.compareAndSet(from, to)) {
+            report(from, to);
+        }
+    }
+
+    private void report(State from, State to) {
+        if (reportLimiter.tryAcquire()) {
+            long suppressed = suppressedReports.sumThenReset();
+            log.warn("CircuitBreaker {} changed state from {} to {}{}", name, from, to,
+                    suppressed > 0 ? " (" + suppressed + " state changes not reported since last report)" : "");
+        } else {
+            suppressedReports.increment();
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return CLOSED状态下窗口内的失败率(百分比), 调用数不足minimumCalls时返回-1
+     */
+    public float getFailureRate() {
+        long total = window.total();
+        return total < minimumCalls || total == 0 ? -1 : window.failed() * 100f / total;
+    }
+
+    /**
+     * @return CLOSED状态下窗口内的慢调用率(百分比), 调用数不足minimumCalls时返回-1
+     */
+    public float getSlowCallRate() {
+        long total = window.total();
+        return total < minimumCalls || total == 0 ? -1 : window.slow() * 100f / total;
+    }
+
+    /**
+     * @return 被熔断拒绝的调用次数
+     */
+    public long getNotPermittedCount() {
+        return notPermittedCount.sum();
+    }
+
+    /**
+     * 熔断中拒绝调用时抛出
+     */
+    public static class CallNotPermittedException extends RuntimeException {
+        private static final long serialVersionUID = -8170327146853584917L;
+
+        public CallNotPermittedException(String name, State state) {
+            super("CircuitBreaker '" + name + "' is " + state + " and does not permit further calls");
+        }
+    }
+
+    /**
+     * 一次调用许可, 记录获取时的状态, 只有第一次报告的结果生效.
+     */
+    public final class Permit {
+        // CLOSED时放行为null
+        private final HalfOpenRound round;
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        private Permit(HalfOpenRound round) {
+            this.round = round;
+        }
+
+        /**
+         * @param durationNanos 调用耗时, 用于判断是否慢调用
+         */
+        public void onSuccess(long durationNanos) {
+            report(false, durationNanos >= slowCallDurationNanos);
+        }
+
+        /**
+         * @param durationNanos 调用耗时, 用于判断是否慢调用
+         */
+        public void onError(long durationNanos) {
+            report(true, durationNanos >= slowCallDurationNanos);
+        }
+
+        /**
+         * @return 是否在HALF_OPEN时作为探测放行
+         */
+        public boolean isProbe() {
+            return round != null;
+        }
+
+        private void report(boolean failed, boolean slow) {
+            if (!reported.compareAndSet(false, true)) {
+                return;
+            }
+            if (round == null) {
+                recordClosed(failed, slow);
+            } else {
+                recordProbe(round, failed, slow);
+            }
+        }
+    }
+
+    /**
+     * 一轮HALF_OPEN的探测许可与结果计数
+     */
+    private static final class HalfOpenRound {
+        final AtomicInteger permits;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger slowCalls = new AtomicInteger();
+        final long startedAt;
+
+        HalfOpenRound(int permits, long startedAt) {
+            this.permits = new AtomicInteger(permits);
+            this.startedAt = startedAt;
+        }
+    }
+
+    private interface Window {
+        void record(boolean failed, boolean slow);
+
+        long total();
+
+        long failed();
+
+        long slow();
+
+        void reset();
+    }
+
+    /**
+     * 最近N次调用的窗口, 每个槽记录一次调用的结果, 覆盖旧结果时以差值修正计数.
+     */
+    private static final class CountWindow implements Window {
+        private static final int RECORDED = 1;
+        private static final int FAILED = 2;
+        private static final int SLOW = 4;
+
+        private final int size;
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong index = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong slow = new AtomicLong();
+
+        CountWindow(int size) {
+            this.size = size;
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        @Override
+        public void record(boolean isFailed, boolean isSlow) {
+            int outcome = RECORDED | (isFailed ? FAILED : 0) | (isSlow ? SLOW : 0);
+            int slot = (int) (index.getAndIncrement() % size);
+            int old = outcomes.getAndSet(slot, outcome);
+            if ((old & RECORDED) == 0) {
+                total.incrementAndGet();
+            }
+            adjust(failed, old & FAILED, outcome & FAILED);
+            adjust(slow, old & SLOW, outcome & SLOW);
+        }
+
+        private static void adjust(AtomicLong counter, int oldFlag, int newFlag) {
+            if (oldFlag != newFlag) {
+                counter.addAndGet(newFlag != 0 ? 1 : -1);
+            }
+        }
+
+        @Override
+        public long total() {
+            return total.get();
+        }
+
+        @Override
+        public long failed() {
+            return failed.get();
+        }
+
+        @Override
+        public long slow() {
+            return slow.get();
+        }
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < size; i++) {
+                outcomes.set(i, 0);
+            }
+            total.set(0);
+            failed.set(0);
+            slow.set(0);
+        }
+    }
+
+    /**
+     * 最近N秒的窗口, 每秒一个桶, 过期的桶以CAS整体替换.
+     */
+    private static final class TimeWindow implements Window {
+        private final int seconds;
+        private final AtomicReferenceArray<Bucket> buckets;
+
+        TimeWindow(int seconds) {
+            this.seconds = seconds;
+            this.buckets = new AtomicReferenceArray<>(seconds);
+        }
+
+        @Override
+        public void record(boolean failed, boolean slow) {
+            Bucket bucket = currentBucket(ClockUtil.currentTimeMillis() / 1000);
+            bucket.total.increment();
+            if (failed) {
+                bucket.failed.increment();
+            }
+            if (slow) {
+                bucket.slow.increment();
+            }
+        }
+
+        private Bucket currentBucket(long second) {
+            int index = (int) (second % seconds);
+            for (; ; ) {
+                Bucket bucket = buckets.get(index);
+                if (bucket != null && bucket.second >= second) {
+                    return bucket;
+                }
+                Bucket fresh = new Bucket(second);
+                if (buckets.compareAndSet(index, bucket, fresh)) {
+                    return fresh;
+                }
+            }
+        }
+
+        private long sum(int field) {
+            long windowStart = ClockUtil.currentTimeMillis() / 1000 - seconds + 1;
+            long sum = 0;
+            for (int i = 0; i < seconds; i++) {
+                Bucket bucket = buckets.get(i);
+                if (bucket != null && bucket.second >= windowStart) {
+                    sum += field == 0 ? bucket.total.sum() : field == 1 ? bucket.failed.sum() : bucket.slow.sum();
+                }
+            }
+            return sum;
+        }
+
+        @Override
+        public long total() {
+            return sum(0);
+        }
+
+        @Override
+        public long failed() {
+            return sum(1);
+        }
+
+        @Override
+        public long slow() {
+            return sum(2);
+        }
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < seconds; i++) {
+                buckets.set(i, null);
+            }
+        }
+
+        private static final class Bucket {
+            final long second;
+            final LongAdder total = new LongAdder();
+            final LongAdder failed = new LongAdder();
+            final LongAdder slow = new LongAdder();
+
+            Bucket(long second) {
+                this.second = second;
+            }
+        }
+    }
+
+    public static class Builder {
+        private final String name;
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 100;
+        private long slowCallDurationNanos = TimeUnit.SECONDS.toNanos(60);
+        private WindowType windowType = WindowType.COUNT_BASED;
+        private int windowSize = 100;
+        private int minimumCalls = 100;
+        private long waitDurationInOpenMillis = 60000;
+        private int permittedCallsInHalfOpen = 10;
+        private long maxWaitInHalfOpenMillis = 60000;
+        private long reportIntervalMillis = 1000 * 60;
+
+        private Builder(String name) {
+            Validate.notBlank(name);
+            this.name = name;
+        }
+
+        /**
+         * 失败率阈值(百分比), 默认50
+         */
+        public Builder setFailureRateThreshold(float failureRateThreshold) {
+            Validate.isTrue(failureRateThreshold > 0 && failureRateThreshold <= 100,
+                    "failureRateThreshold must be in (0, 100]");
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * 慢调用率阈值(百分比), 默认100, 即全部为慢调用时才熔断
+         */
+        public Builder setSlowCallRateThreshold(float slowCallRateThreshold) {
+            Validate.isTrue(slowCallRateThreshold > 0 && slowCallRateThreshold <= 100,
+                    "slowCallRateThreshold must be in (0, 100]");
+            this.slowCallRateThreshold = slowCallRateThreshold;
+            return this;
+        }
+
+        /**
+         * 耗时达到多少算慢调用, 默认60秒
+         */
+        public Builder setSlowCallDuration(long duration, TimeUnit unit) {
+            this.slowCallDurationNanos = Validate.positive("slowCallDuration", unit.toNanos(duration));
+            return this;
+        }
+
+        /**
+         * 滚动窗口, 按次数时windowSize为调用次数, 按时间时windowSize为秒数. 默认为最近100次调用.
+         */
+        public Builder setWindow(WindowType windowType, int windowSize) {
+            Validate.notNull(windowType);
+            this.windowType = windowType;
+            this.windowSize = Validate.positive("windowSize", windowSize);
+            return this;
+        }
+
+        /**
+         * 窗口内至少有多少次调用才计算比例, 默认100
+         */
+        public Builder setMinimumCalls(int minimumCalls) {
+            this.minimumCalls = Validate.positive("minimumCalls", minimumCalls);
+            return this;
+        }
+
+        /**
+         * OPEN状态持续多久后转为HALF_OPEN, 默认60秒
+         */
+        public Builder setWaitDurationInOpen(long duration, TimeUnit unit) {
+            this.waitDurationInOpenMillis = Validate.nonNegative("waitDurationInOpen", unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * HALF_OPEN状态放行的探测请求数, 默认10
+         */
+        public Builder setPermittedCallsInHalfOpen(int permittedCallsInHalfOpen) {
+            this.permittedCallsInHalfOpen = Validate.positive("permittedCallsInHalfOpen", permittedCallsInHalfOpen);
+            return this;
+        }
+
+        /**
+         * HALF_OPEN状态的探测请求最多等待多久全部结束, 超时后重新转为OPEN, 默认60秒
+         */
+        public Builder setMaxWaitInHalfOpen(long duration, TimeUnit unit) {
+            this.maxWaitInHalfOpenMillis = Validate.positive("maxWaitInHalfOpen", unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * 状态变化日志的最少间隔, 默认1分钟
+         */
+        public Builder setReportInterval(long interval, TimeUnit unit) {
+            this.reportIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
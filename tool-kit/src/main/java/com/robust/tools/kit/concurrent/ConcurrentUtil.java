@@ -1,15 +1,21 @@
 package com.robust.tools.kit.concurrent;
 
 import com.google.common.util.concurrent.RateLimiter;
+import com.robust.tools.kit.concurrent.limit.KeyedRateLimiter;
 import com.robust.tools.kit.concurrent.limit.RateLimiterUtil;
 import com.robust.tools.kit.concurrent.limit.Sampler;
+import com.robust.tools.kit.concurrent.limit.SlidingWindowRateLimiter;
 import com.robust.tools.kit.concurrent.limit.TimeIntervalLimiter;
+import com.robust.tools.kit.concurrent.limit.TokenBucketRateLimiter;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * @Description: 并发工具类
@@ -97,11 +103,23 @@ public class ConcurrentUtil {
      *
      * @param permitsPerSecond 每秒允许的请求数，可看成QPS，同时将QPS平滑到毫秒级别上，请求到达速度不平滑时依赖缓冲能力.
      * @param maxBurstSeconds  可看成桶的容量，Guava中最大的突发流量缓冲时间，默认是1s, permitsPerSecond * maxBurstSeconds，就是闲时能累积的缓冲token最大数量。
+     * @deprecated 依赖反射Guava的私有类, 请使用{@link #tokenBucketRateLimiter(double, double)}
      */
+    @Deprecated
     public static RateLimiter rateLimiter(int permitsPerSecond, int maxBurstSeconds) throws ReflectiveOperationException {
         return RateLimiterUtil.create(permitsPerSecond, maxBurstSeconds);
     }
 
+    /**
+     * 返回无锁的令牌桶限流器，可定制令牌桶的大小，且刚启动时桶已装满。
+     *
+     * @param permitsPerSecond 每秒允许的请求数，可看成QPS.
+     * @param maxBurstSeconds  可看成桶的容量，permitsPerSecond * maxBurstSeconds，就是闲时能累积的缓冲token最大数量。
+     */
+    public static TokenBucketRateLimiter tokenBucketRateLimiter(double permitsPerSecond, double maxBurstSeconds) {
+        return RateLimiterUtil.createTokenBucket(permitsPerSecond, maxBurstSeconds);
+    }
+
     /**
      * 返回采样器.
      *
@@ -112,6 +130,16 @@ public class ConcurrentUtil {
         return Sampler.create(selectPercent);
     }
 
+    /**
+     * 返回限速采样器, 每秒最多命中samplesPerSecond次.
+     *
+     * @param samplesPerSecond 每秒最多命中次数
+     * @return
+     */
+    public static Sampler rateBoundedSampler(int samplesPerSecond) {
+        return Sampler.createRateBounded(samplesPerSecond);
+    }
+
     /**
      * 返回时间间隔限流器
      *
@@ -122,4 +150,104 @@ public class ConcurrentUtil {
     public static TimeIntervalLimiter timeIntervalLimiter(long interval, TimeUnit timeUnit) {
         return new TimeIntervalLimiter(interval, timeUnit);
     }
+
+    /**
+     * 返回滑动窗口限流器, 任意窗口内通过的请求数不超过limit
+     *
+     * @param limit       每个窗口内允许通过的请求数
+     * @param window      窗口时长
+     * @param timeUnit    时间单位
+     * @param bucketCount 窗口切分的桶数
+     * @return
+     */
+    public static SlidingWindowRateLimiter slidingWindowRateLimiter(long limit, long window, TimeUnit timeUnit,
+                                                                    int bucketCount) {
+        return new SlidingWindowRateLimiter(limit, window, timeUnit, bucketCount);
+    }
+
+    /**
+     * 返回按key独立限流的令牌桶, 用于百万级用户/IP的限流
+     *
+     * @param permitsPerSecond 每个key每秒发放的令牌数
+     * @param maxBurst         每个key的桶容量
+     * @param capacity         最多同时跟踪的活跃key数
+     * @return
+     */
+    public static KeyedRateLimiter keyedRateLimiter(double permitsPerSecond, int maxBurst, int capacity) {
+        return new KeyedRateLimiter(permitsPerSecond, maxBurst, capacity);
+    }
+
+    /*-----------------分段锁----------------------------*/
+
+    /**
+     * 返回分段ReentrantLock, 按key加锁, 不同的key大概率落在不同的分段上
+     *
+     * @param stripes 分段数, 向上取整为2的幂
+     * @return
+     */
+    public static Striped<Lock> stripedLock(int stripes) {
+        return Striped.lock(stripes);
+    }
+
+    /**
+     * 返回懒加载的分段ReentrantLock, 分段用到时才创建, 空闲时可被GC回收, 适合分段数很大的场景
+     *
+     * @param stripes 分段数, 向上取整为2的幂
+     * @return
+     */
+    public static Striped<Lock> lazyWeakStripedLock(int stripes) {
+        return Striped.lazyWeakLock(stripes);
+    }
+
+    /**
+     * 返回分段ReentrantReadWriteLock
+     *
+     * @param stripes 分段数, 向上取整为2的幂
+     * @return
+     */
+    public static Striped<ReadWriteLock> stripedReadWriteLock(int stripes) {
+        return Striped.readWriteLock(stripes);
+    }
+
+    /**
+     * 返回懒加载的分段ReentrantReadWriteLock
+     *
+     * @param stripes 分段数, 向上取整为2的幂
+     * @return
+     */
+    public static Striped<ReadWriteLock> lazyWeakStripedReadWriteLock(int stripes) {
+        return Striped.lazyWeakReadWriteLock(stripes);
+    }
+
+    /**
+     * 返回分段Semaphore, 按key限制并发数
+     *
+     * @param stripes 分段数, 向上取整为2的幂
+     * @param permits 每个分段的许可数
+     * @return
+     */
+    public static Striped<Semaphore> stripedSemaphore(int stripes, int permits) {
+        return Striped.semaphore(stripes, permits);
+    }
+
+    /**
+     * 返回懒加载的分段Semaphore
+     *
+     * @param stripes 分段数, 向上取整为2的幂
+     * @param permits 每个分段的许可数
+     * @return
+     */
+    public static Striped<Semaphore> lazyWeakStripedSemaphore(int stripes, int permits) {
+        return Striped.lazyWeakSemaphore(stripes, permits);
+    }
+
+    /**
+     * 返回分段计数器, 按key计数, 同一分段的key共用一个计数
+     *
+     * @param stripes 分段数, 向上取整为2的幂
+     * @return
+     */
+    public static Striped<AtomicLong> stripedCounter(int stripes) {
+        return Striped.counter(stripes);
+    }
 }
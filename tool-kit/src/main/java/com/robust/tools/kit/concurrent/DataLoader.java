@@ -0,0 +1,290 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.type.Promise;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * @Description: 批量加载器, 参考GraphQL的DataLoader, 把逐个key的load()合并为一次批量加载, 解决N+1查询.
+ * <p>
+ * 1. 一个批次的第一次load()启动批次的等待时间(默认10毫秒, 即共享Timer的一个tick), 到期或key数达到maxBatchSize时,
+ * 把收集到的key一次交给batchLoader, 也可以调用{@link #dispatch()}立即发出.
+ * <p>
+ * 2. 同一批次中重复的key只加载一次, 共享同一个Promise. batchLoader返回的Map中没有的key以null完成, 批量加载失败时该批次的全部key以同一个异常失败.
+ * <p>
+ * 3. 可选的结果缓存: 同一个key的后续load()直接返回之前的Promise, 失败的结果不缓存. 缓存没有容量与过期控制,
+ * 启用时应按请求创建DataLoader, 随请求结束丢弃.
+ * <p>
+ * 等待时间到期时, 批量加载在共享Timer的工作线程中发起, 只适合发起异步调用; 同步的batchLoader需指定Executor.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 20:00
+ * @Version: 1.0
+ */
+public class DataLoader<K, V> {
+
+    private final Function<? super Set<K>, ? extends CompletionStage<? extends Map<K, V>>> batchLoader;
+    private final int maxBatchSize;
+    private final long batchDelayNanos;
+    private final HashedWheelTimer timer;
+    private final Map<K, Promise<V>> cache;
+
+    private LinkedHashMap<K, Promise<V>> pending = new LinkedHashMap<>();
+    private HashedWheelTimer.Timeout pendingTimeout;
+
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder cacheHitCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder batchKeyCount = new LongAdder();
+
+    private DataLoader(Builder<K, V> builder) {
+        this.batchLoader = builder.batchLoader;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.batchDelayNanos = builder.batchDelayNanos;
+        this.timer = builder.timer != null ? builder.timer : HashedWheelTimer.shared();
+        this.cache = builder.cache ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * @param batchLoader 异步的批量加载函数, 在调用load()或dispatch()的线程, 或Timer的工作线程中执行
+     */
+    public static <K, V> Builder<K, V> builder(
+            Function<? super Set<K>, ? extends CompletionStage<? extends Map<K, V>>> batchLoader) {
+        return new Builder<>(batchLoader);
+    }
+
+    /**
+     * @param batchLoader 同步的批量加载函数, 在executor中执行
+     */
+    public static <K, V> Builder<K, V> builder(Function<? super Set<K>, ? extends Map<K, V>> batchLoader,
+                                               Executor executor) {
+        Validate.notNull(batchLoader);
+        Validate.notNull(executor);
+        return new Builder<>(keys -> {
+            Promise<Map<K, V>> result = new Promise<>();
+            executor.execute(() -> {
+                try {
+                    result.complete(batchLoader.apply(keys));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+            return result;
+        });
+    }
+
+    /**
+     * 加载key, 与同一批次中的其他key合并加载.
+     */
+    public Promise<V> load(K key) {
+        Validate.notNull(key);
+        loadCount.increment();
+        if (cache != null) {
+            Promise<V> cached = cache.get(key);
+            if (cached != null) {
+                cacheHitCount.increment();
+                return cached;
+            }
+        }
+        Map<K, Promise<V>> full = null;
+        Promise<V> promise;
+        synchronized (this) {
+            promise = pending.get(key);
+            if (promise != null) {
+                return promise;
+            }
+            promise = new Promise<>();
+            if (cache != null) {
+                Promise<V> existing = cache.putIfAbsent(key, promise);
+                if (existing != null) {
+                    cacheHitCount.increment();
+                    return existing;
+                }
+            }
+            pending.put(key, promise);
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (pending.size() == 1) {
+                try {
+                    pendingTimeout = timer.newTimeout(this::dispatch, batchDelayNanos, TimeUnit.NANOSECONDS);
+                } catch (Throwable t) {
+                    // Timer不可用时立即发出
+                    full = takePending();
+                }
+            }
+        }
+        if (full != null) {
+            loadBatch(full);
+        }
+        return promise;
+    }
+
+    /**
+     * 加载多个key, 按keys的顺序返回结果.
+     */
+    public Promise<List<V>> loadMany(Collection<? extends K> keys) {
+        Validate.notNull(keys);
+        List<Promise<V>> promises = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            promises.add(load(key));
+        }
+        return Promise.allOf(promises);
+    }
+
+    /**
+     * 立即发出当前批次, 不等待批次的等待时间到期.
+     */
+    public void dispatch() {
+        Map<K, Promise<V>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = takePending();
+        }
+        loadBatch(batch);
+    }
+
+    /**
+     * 从缓存中移除key, 下次load()时重新加载.
+     */
+    public void clear(K key) {
+        if (cache != null) {
+            cache.remove(key);
+        }
+    }
+
+    public void clearAll() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return load()的调用次数
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHitCount.sum();
+    }
+
+    /**
+     * @return 调用batchLoader的次数
+     */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * @return 交给batchLoader的key总数(已去重)
+     */
+    public long getBatchKeyCount() {
+        return batchKeyCount.sum();
+    }
+
+    private Map<K, Promise<V>> takePending() {
+        Map<K, Promise<V>> batch = pending;
+        pending = new LinkedHashMap<>();
+        if (pendingTimeout != null) {
+            pendingTimeout.cancel();
+            pendingTimeout = null;
+        }
+        return batch;
+    }
+
+    private void loadBatch(Map<K, Promise<V>> batch) {
+        batchCount.increment();
+        batchKeyCount.add(batch.size());
+        CompletionStage<? extends Map<K, V>> stage;
+        try {
+            stage = batchLoader.apply(Collections.unmodifiableSet(batch.keySet()));
+            Validate.notNull(stage, "batchLoader must not return null");
+        } catch (Throwable t) {
+            fail(batch, t);
+            return;
+        }
+        stage.whenComplete((values, cause) -> {
+            if (cause != null) {
+                fail(batch, cause instanceof CompletionException && cause.getCause() != null ? cause.getCause()
+                        : cause);
+                return;
+            }
+            for (Map.Entry<K, Promise<V>> entry : batch.entrySet()) {
+                entry.getValue().complete(values == null ? null : values.get(entry.getKey()));
+            }
+        });
+    }
+
+    private void fail(Map<K, Promise<V>> batch, Throwable cause) {
+        for (Map.Entry<K, Promise<V>> entry : batch.entrySet()) {
+            if (cache != null) {
+                cache.remove(entry.getKey(), entry.getValue());
+            }
+            entry.getValue().completeExceptionally(cause);
+        }
+    }
+
+    public static class Builder<K, V> {
+        private final Function<? super Set<K>, ? extends CompletionStage<? extends Map<K, V>>> batchLoader;
+        private int maxBatchSize = 100;
+        private long batchDelayNanos = TimeUnit.MILLISECONDS.toNanos(10);
+        private boolean cache = false;
+        private HashedWheelTimer timer;
+
+        private Builder(Function<? super Set<K>, ? extends CompletionStage<? extends Map<K, V>>> batchLoader) {
+            this.batchLoader = Validate.notNull(batchLoader);
+        }
+
+        /**
+         * 每批最多的key数, 达到时立即发出, 默认100
+         */
+        public Builder<K, V> setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = Validate.positive("maxBatchSize", maxBatchSize);
+            return this;
+        }
+
+        /**
+         * 批次的第一个key到达后最多等待多久, 默认10毫秒
+         */
+        public Builder<K, V> setBatchDelay(long batchDelay, TimeUnit unit) {
+            this.batchDelayNanos = Validate.nonNegative("batchDelay", unit.toNanos(batchDelay));
+            return this;
+        }
+
+        /**
+         * 是否缓存加载结果, 默认false
+         */
+        public Builder<K, V> setCache(boolean cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * 驱动批次等待时间的Timer, 默认为{@link HashedWheelTimer#shared()}
+         */
+        public Builder<K, V> setTimer(HashedWheelTimer timer) {
+            this.timer = timer;
+            return this;
+        }
+
+        public DataLoader<K, V> build() {
+            return new DataLoader<>(this);
+        }
+    }
+}
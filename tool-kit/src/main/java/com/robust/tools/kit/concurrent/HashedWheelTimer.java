@@ -0,0 +1,575 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import com.robust.tools.kit.number.MathUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @Description: 移植Netty的HashedWheelTimer, 用于大量注册且大部分会被取消的超时任务(如请求超时).
+ * <p>
+ * ScheduledThreadPoolExecutor的DelayedWorkQueue是加锁的二叉堆, 每次schedule与cancel都是O(log n)且要竞争同一把锁.
+ * 时间轮把任务按到期时间散列到ticksPerWheel个槽中, 工作线程每个tick处理一个槽:
+ * <p>
+ * 1. 新任务与取消请求先放入无锁的MPSC队列, 由工作线程在每个tick批量挂到槽的双向链表上/从链表摘除, schedule与cancel都是O(1)且无锁.
+ * <p>
+ * 2. 精度为tickDuration, 默认100毫秒, 适合超时这类对精度不敏感的场景.
+ * <p>
+ * 3. 到期任务默认在工作线程中执行, 不应执行耗时操作, 否则可传入taskExecutor由其执行.
+ * <p>
+ * 工作线程在第一次添加任务时才启动. 不再使用时需调用stop(), 每个JVM中Timer实例不宜过多.
+ * <p>
+ * https://github.com/netty/netty/blob/4.1/common/src/main/java/io/netty/util/HashedWheelTimer.java
+ * @Author: robust
+ * @CreateDate: 2026/10/19 16:50
+ * @Version: 1.0
+ */
+@Slf4j
+public class HashedWheelTimer {
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+
+    private static final AtomicIntegerFieldUpdater<HashedWheelTimer> WORKER_STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(HashedWheelTimer.class, "workerState");
+
+    private final Worker worker = new Worker();
+    private final Thread workerThread;
+    private volatile int workerState = WORKER_STATE_INIT;
+
+    private final long tickDuration;
+    private final HashedWheelBucket[] wheel;
+    private final int mask;
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final Queue<HashedWheelTimeout> timeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<HashedWheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingTimeouts = new AtomicLong(0);
+    private final long maxPendingTimeouts;
+    private final Executor taskExecutor;
+
+    private volatile long startTime;
+
+    /**
+     * tick为100毫秒, 时间轮512个槽, 到期任务在工作线程中执行.
+     */
+    public HashedWheelTimer(ThreadFactory threadFactory) {
+        this(threadFactory, 100, TimeUnit.MILLISECONDS, 512, -1, null);
+    }
+
+    public HashedWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, -1, null);
+    }
+
+    /**
+     * @param threadFactory      创建工作线程的工厂
+     * @param tickDuration       每个tick的时长, 即Timer的精度
+     * @param unit               tickDuration的单位
+     * @param ticksPerWheel      时间轮的槽数, 会向上取整为2的幂
+     * @param maxPendingTimeouts 最多同时等待的任务数, 超过时newTimeout()抛出RejectedExecutionException, 小于等于0为不限制
+     * @param taskExecutor       执行到期任务的Executor, 为null时在工作线程中执行
+     */
+    public HashedWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel,
+                            long maxPendingTimeouts, Executor taskExecutor) {
+        Validate.notNull(threadFactory);
+        Validate.notNull(unit);
+        Validate.positive("tickDuration", tickDuration);
+        Validate.isTrue(ticksPerWheel > 0 && ticksPerWheel <= 1 << 30,
+                "ticksPerWheel must be in (0, 2^30]: " + ticksPerWheel);
+
+        this.wheel = createWheel(ticksPerWheel);
+        this.mask = wheel.length - 1;
+
+        long duration = unit.toNanos(tickDuration);
+        Validate.isTrue(duration < Long.MAX_VALUE / wheel.length,
+                "tickDuration is too long: " + tickDuration + ' ' + unit);
+        // 最小精度1毫秒
+        this.tickDuration = Math.max(duration, TimeUnit.MILLISECONDS.toNanos(1));
+        this.maxPendingTimeouts = maxPendingTimeouts;
+        this.taskExecutor = taskExecutor;
+        this.workerThread = threadFactory.newThread(worker);
+    }
+
+    /**
+     * JVM内共享的Timer, tick为10毫秒, 工作线程为守护线程, 供Promise超时, 异步重试等轻量的到期任务使用.
+     * <p>
+     * 到期任务在共享的工作线程中执行, 必须非常轻量; 不要调用其stop().
+     */
+    public static HashedWheelTimer shared() {
+        return SharedTimerHolder.INSTANCE;
+    }
+
+    private static HashedWheelBucket[] createWheel(int ticksPerWheel) {
+        int normalized = MathUtil.findNextPositivePowerOfTwo(ticksPerWheel);
+        HashedWheelBucket[] wheel = new HashedWheelBucket[normalized];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new HashedWheelBucket();
+        }
+        return wheel;
+    }
+
+    /**
+     * 启动工作线程, 一般无需显式调用, 第一次newTimeout()时会自动启动.
+     */
+    public void start() {
+        switch (WORKER_STATE_UPDATER.get(this)) {
+            case WORKER_STATE_INIT:
+                if (WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STATE_STARTED:
+                break;
+            case WORKER_STATE_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid WorkerState");
+        }
+
+        // 等待工作线程初始化startTime
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                // 一定会很快完成
+            }
+        }
+    }
+
+    /**
+     * 停止工作线程, 返回所有未到期也未取消的任务.
+     */
+    public Set<Timeout> stop() {
+        Validate.isTrue(Thread.currentThread() != workerThread,
+                "HashedWheelTimer.stop() cannot be called from timer task");
+
+        if (!WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_STARTED, WORKER_STATE_SHUTDOWN)) {
+            WORKER_STATE_UPDATER.set(this, WORKER_STATE_SHUTDOWN);
+            return Collections.emptySet();
+        }
+
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(100);
+            } catch (InterruptedException ignored) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return worker.unprocessedTimeouts();
+    }
+
+    /**
+     * 在delay后执行task.
+     *
+     * @return 可用于取消的句柄
+     * @throws RejectedExecutionException Timer已停止或等待中的任务过多
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Validate.notNull(task);
+        Validate.notNull(unit);
+
+        long pendingCount = pendingTimeouts.incrementAndGet();
+        if (maxPendingTimeouts > 0 && pendingCount > maxPendingTimeouts) {
+            pendingTimeouts.decrementAndGet();
+            throw new RejectedExecutionException("Number of pending timeouts (" + pendingCount
+                    + ") is greater than or equal to maximum allowed pending timeouts (" + maxPendingTimeouts + ")");
+        }
+
+        if (workerState == WORKER_STATE_SHUTDOWN) {
+            pendingTimeouts.decrementAndGet();
+            throw new RejectedExecutionException("HashedWheelTimer has been stopped");
+        }
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        // 防止溢出
+        if (delay > 0 && deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        HashedWheelTimeout timeout = new HashedWheelTimeout(this, task, deadline);
+        timeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * 超时后cancel(true)该Future, 如Future已完成则什么都不做. 用于给没有超时能力的异步调用加上超时.
+     *
+     * @return 可用于在Future完成后提前取消超时检查的句柄
+     */
+    public Timeout cancelOnTimeout(Future<?> future, long timeout, TimeUnit unit) {
+        Validate.notNull(future);
+        return newTimeout(() -> {
+            if (!future.isDone()) {
+                future.cancel(true);
+            }
+        }, timeout, unit);
+    }
+
+    /**
+     * @return 等待中的任务数
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    /**
+     * 超时任务的句柄
+     */
+    public interface Timeout {
+        /**
+         * 取消任务, 已到期或已取消时返回false.
+         */
+        boolean cancel();
+
+        boolean isExpired();
+
+        boolean isCancelled();
+
+        Runnable task();
+    }
+
+    private final class Worker implements Runnable {
+        private final Set<Timeout> unprocessedTimeouts = new HashSet<>();
+
+        private long tick;
+
+        @Override
+        public void run() {
+            startTime = System.nanoTime();
+            if (startTime == 0) {
+                // 0作为未初始化的标志
+                startTime = 1;
+            }
+            startTimeInitialized.countDown();
+
+            do {
+                long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    int idx = (int) (tick & mask);
+                    processCancelledTasks();
+                    HashedWheelBucket bucket = wheel[idx];
+                    transferTimeoutsToBuckets();
+                    bucket.expireTimeouts(deadline);
+                    tick++;
+                }
+            } while (WORKER_STATE_UPDATER.get(HashedWheelTimer.this) == WORKER_STATE_STARTED);
+
+            // 收集未处理的任务, 供stop()返回
+            for (HashedWheelBucket bucket : wheel) {
+                bucket.clearTimeouts(unprocessedTimeouts);
+            }
+            for (; ; ) {
+                HashedWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (!timeout.isCancelled()) {
+                    unprocessedTimeouts.add(timeout);
+                }
+            }
+            processCancelledTasks();
+        }
+
+        private void transferTimeoutsToBuckets() {
+            // 每个tick最多转移10万个, 防止大量添加时工作线程一直在转移而无法处理到期任务
+            for (int i = 0; i < 100000; i++) {
+                HashedWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state() == HashedWheelTimeout.ST_CANCELLED) {
+                    // 还未放入槽中就已取消
+                    pendingTimeouts.decrementAndGet();
+                    continue;
+                }
+
+                long calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+                // 已过期的放入当前槽
+                long ticks = Math.max(calculated, tick);
+                int stopIndex = (int) (ticks & mask);
+
+                HashedWheelBucket bucket = wheel[stopIndex];
+                bucket.addTimeout(timeout);
+            }
+        }
+
+        private void processCancelledTasks() {
+            for (; ; ) {
+                HashedWheelTimeout timeout = cancelledTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                try {
+                    timeout.remove();
+                } catch (Throwable t) {
+                    log.warn("An exception was thrown while process a cancellation task", t);
+                }
+            }
+        }
+
+        /**
+         * 计算下一个tick的到期时间并sleep到那时.
+         *
+         * @return 相对startTime的当前时间, 已停止时返回Long.MIN_VALUE
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+
+            for (; ; ) {
+                final long currentTime = System.nanoTime() - startTime;
+                long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+
+                if (sleepTimeMs <= 0) {
+                    if (currentTime == Long.MIN_VALUE) {
+                        return -Long.MAX_VALUE;
+                    } else {
+                        return currentTime;
+                    }
+                }
+
+                try {
+                    Thread.sleep(sleepTimeMs);
+                } catch (InterruptedException ignored) {
+                    if (WORKER_STATE_UPDATER.get(HashedWheelTimer.this) == WORKER_STATE_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+
+        Set<Timeout> unprocessedTimeouts() {
+            return Collections.unmodifiableSet(unprocessedTimeouts);
+        }
+    }
+
+    private static final class HashedWheelTimeout implements Timeout, Runnable {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<HashedWheelTimeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(HashedWheelTimeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+
+        private volatile int state = ST_INIT;
+
+        // 剩余的轮数, 由工作线程在transferTimeoutsToBuckets()中计算
+        long remainingRounds;
+
+        // 双向链表, 仅由工作线程访问
+        HashedWheelTimeout next;
+        HashedWheelTimeout prev;
+
+        HashedWheelBucket bucket;
+
+        HashedWheelTimeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Runnable task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!compareAndSetState(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            // 只放入取消队列, 由工作线程在下一个tick从槽中摘除
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        /**
+         * bucket为null时, 要么还未放入槽中(由transferTimeoutsToBuckets()跳过并计数), 要么已被摘除, 都无需处理
+         */
+        void remove() {
+            HashedWheelBucket bucket = this.bucket;
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+        }
+
+        boolean compareAndSetState(int expected, int state) {
+            return STATE_UPDATER.compareAndSet(this, expected, state);
+        }
+
+        int state() {
+            return state;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state() == ST_EXPIRED;
+        }
+
+        void expire() {
+            if (!compareAndSetState(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            if (timer.taskExecutor == null) {
+                run();
+            } else {
+                try {
+                    timer.taskExecutor.execute(this);
+                } catch (Throwable t) {
+                    log.warn("An exception was thrown while submit timer task to executor", t);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.warn("An exception was thrown by timer task", t);
+            }
+        }
+
+        @Override
+        public String toString() {
+            long remaining = deadline - (System.nanoTime() - timer.startTime);
+            return "HashedWheelTimeout(deadline: " + (remaining > 0 ? remaining + " ns later" : -remaining + " ns ago")
+                    + (isCancelled() ? ", cancelled" : "") + ", task: " + task + ')';
+        }
+    }
+
+    /**
+     * 时间轮的槽, 双向链表便于O(1)摘除, 仅由工作线程访问, 因此不需要同步.
+     */
+    private static final class HashedWheelBucket {
+        private HashedWheelTimeout head;
+        private HashedWheelTimeout tail;
+
+        void addTimeout(HashedWheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * 执行到期任务, 未到期的轮数减一
+         */
+        void expireTimeouts(long deadline) {
+            HashedWheelTimeout timeout = head;
+
+            while (timeout != null) {
+                HashedWheelTimeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    next = remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    } else {
+                        // 不应该发生
+                        throw new IllegalStateException(String.format(
+                                "timeout.deadline (%d) > deadline (%d)", timeout.deadline, deadline));
+                    }
+                } else if (!timeout.isCancelled()) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        HashedWheelTimeout remove(HashedWheelTimeout timeout) {
+            HashedWheelTimeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+
+            if (timeout == head) {
+                if (timeout == tail) {
+                    tail = null;
+                    head = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            timeout.timer.pendingTimeouts.decrementAndGet();
+            return next;
+        }
+
+        void clearTimeouts(Set<Timeout> set) {
+            for (; ; ) {
+                HashedWheelTimeout timeout = pollTimeout();
+                if (timeout == null) {
+                    return;
+                }
+                if (timeout.isExpired() || timeout.isCancelled()) {
+                    continue;
+                }
+                set.add(timeout);
+            }
+        }
+
+        private HashedWheelTimeout pollTimeout() {
+            HashedWheelTimeout head = this.head;
+            if (head == null) {
+                return null;
+            }
+            HashedWheelTimeout next = head.next;
+            if (next == null) {
+                tail = this.head = null;
+            } else {
+                this.head = next;
+                next.prev = null;
+            }
+
+            head.next = null;
+            head.prev = null;
+            head.bucket = null;
+            return head;
+        }
+    }
+
+    private static final class SharedTimerHolder {
+        static final HashedWheelTimer INSTANCE = new HashedWheelTimer(
+                ThreadPoolUtil.buildThreadFactory("shared-wheel-timer", true), 10, TimeUnit.MILLISECONDS, 512);
+    }
+}
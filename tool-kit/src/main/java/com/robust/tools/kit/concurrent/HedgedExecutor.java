@@ -0,0 +1,399 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.type.Promise;
+import com.robust.tools.kit.number.MathUtil;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * @Description: 对冲请求, 降低访问多副本后端时的长尾延迟, 参考Jeff Dean的"The Tail at Scale".
+ * <p>
+ * 1. 先向第一个目标发起请求, 经过对冲延迟仍未完成时, 向下一个目标再发起一次, 取最先成功的结果, 取消其余请求.
+ * 只适用于幂等的读请求.
+ * <p>
+ * 2. 对冲延迟可以固定, 也可以取最近N次成功请求耗时的百分位(如p95), 即只对最慢的5%发起对冲. 样本不足时使用固定延迟.
+ * 耗时从请求开始计算, 对冲胜出时包含已等待的对冲延迟, 否则百分位会随对冲逐渐变小, 对冲越来越多.
+ * <p>
+ * 3. 预算: 每个请求存入budgetPercent%个令牌, 每次对冲取出1个, 令牌不足时不对冲, 使对冲最多增加budgetPercent%的负载,
+ * 后端整体变慢时不会因对冲而雪上加霜. 参考Finagle的RetryBudget.
+ * <p>
+ * 4. 所有已发起的请求都失败时立即以最后一个异常失败, 不再等待对冲. 对冲不是重试, 需要重试时与{@link AsyncRetry}组合.
+ * <p>
+ * 对冲由{@link HashedWheelTimer}(默认{@link HashedWheelTimer#shared()})触发, 异步请求在Timer的工作线程中发起,
+ * 同步任务使用{@link #submit(List, Function, ExecutorService)}交给线程池(如ThreadPoolBuilder创建的线程池)执行, 落败的任务被中断.
+ * 返回的Promise被取消时, 取消全部请求.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 19:00
+ * @Version: 1.0
+ */
+public class HedgedExecutor {
+
+    // 自适应延迟的下限, 避免耗时极短时几乎每个请求都立即对冲
+    private static final long MIN_ADAPTIVE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long TOKEN_SCALE = 1000;
+
+    private final long delayNanos;
+    private final LatencyWindow latencyWindow;
+    private final int maxHedges;
+    private final long depositPerRequest;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+    private final HashedWheelTimer timer;
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+    private final LongAdder budgetRejectedCount = new LongAdder();
+
+    private HedgedExecutor(Builder builder) {
+        this.delayNanos = builder.delayNanos;
+        this.latencyWindow = builder.percentile > 0 ? new LatencyWindow(builder.windowSize, builder.percentile) : null;
+        this.maxHedges = builder.maxHedges;
+        this.depositPerRequest = (long) (builder.budgetPercent / 100 * TOKEN_SCALE);
+        // 至少能存下一次对冲的令牌
+        this.maxTokens = Math.max(1, builder.maxBurst) * TOKEN_SCALE;
+        this.tokens = new AtomicLong(builder.maxBurst * TOKEN_SCALE);
+        this.timer = builder.timer != null ? builder.timer : HashedWheelTimer.shared();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 依次向targets发起异步请求, 第一次在调用者线程中发起.
+     *
+     * @param targets 副本列表, 第n次对冲发往第n+1个目标, 对冲次数不超过targets.size() - 1
+     * @param attempt 向指定目标发起请求, 返回的CompletionStage同时是Future时, 落败后被cancel(true)
+     */
+    public <T, R> Promise<R> execute(List<? extends T> targets,
+                                     Function<? super T, ? extends CompletionStage<R>> attempt) {
+        Validate.notEmpty(targets);
+        Validate.notNull(attempt);
+        requestCount.increment();
+        deposit();
+        Hedge<T, R> hedge = new Hedge<>(targets, attempt);
+        hedge.start();
+        return hedge.promise;
+    }
+
+    /**
+     * 依次向targets发起同步请求, 在executor中执行.
+     */
+    public <T, R> Promise<R> submit(List<? extends T> targets, Function<? super T, ? extends R> task,
+                                    ExecutorService executor) {
+        Validate.notNull(task);
+        Validate.notNull(executor);
+        return execute(targets, target -> {
+            Promise<R> result = new Promise<>();
+            Future<?> future = executor.submit(() -> {
+                try {
+                    result.complete(task.apply(target));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+            result.whenComplete((value, cause) -> {
+                if (result.isCancelled()) {
+                    future.cancel(true);
+                }
+            });
+            return result;
+        });
+    }
+
+    /**
+     * @return 当前的对冲延迟
+     */
+    public long getDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(currentDelayNanos());
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * @return 发起的对冲次数
+     */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /**
+     * @return 对冲请求先于原请求成功的次数, 与对冲次数之比反映对冲的收益
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    /**
+     * @return 因预算不足而放弃对冲的次数
+     */
+    public long getBudgetRejectedCount() {
+        return budgetRejectedCount.sum();
+    }
+
+    private long currentDelayNanos() {
+        if (latencyWindow == null) {
+            return delayNanos;
+        }
+        long adaptive = latencyWindow.percentileNanos();
+        return adaptive < 0 ? delayNanos : Math.max(adaptive, MIN_ADAPTIVE_DELAY_NANOS);
+    }
+
+    private void deposit() {
+        long current;
+        while ((current = tokens.get()) < maxTokens
+                && !tokens.compareAndSet(current, Math.min(maxTokens, current + depositPerRequest))) {
+            // retry
+        }
+    }
+
+    private boolean withdraw() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN_SCALE) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN_SCALE));
+        return true;
+    }
+
+    private final class Hedge<T, R> implements Runnable {
+        private final List<? extends T> targets;
+        private final Function<? super T, ? extends CompletionStage<R>> attempt;
+        private final int maxAttempts;
+        private final Promise<R> promise = new Promise<>();
+        private final CompletionStage<?>[] stages;
+        private final long startNanos = System.nanoTime();
+
+        private int launched;
+        private int failed;
+        private HashedWheelTimer.Timeout pending;
+
+        Hedge(List<? extends T> targets, Function<? super T, ? extends CompletionStage<R>> attempt) {
+            this.targets = targets;
+            this.attempt = attempt;
+            this.maxAttempts = Math.min(targets.size(), maxHedges + 1);
+            this.stages = new CompletionStage<?>[maxAttempts];
+        }
+
+        void start() {
+            promise.whenComplete((value, cause) -> cancelAll());
+            synchronized (this) {
+                launch();
+                scheduleNext();
+            }
+        }
+
+        /**
+         * 对冲延迟到期
+         */
+        @Override
+        public void run() {
+            synchronized (this) {
+                pending = null;
+                if (promise.isDone()) {
+                    return;
+                }
+                if (!withdraw()) {
+                    budgetRejectedCount.increment();
+                    return;
+                }
+                hedgeCount.increment();
+                launch();
+                scheduleNext();
+            }
+        }
+
+        private void launch() {
+            int index = launched++;
+            CompletionStage<R> stage;
+            try {
+                stage = attempt.apply(targets.get(index));
+                Validate.notNull(stage, "attempt must not return null");
+            } catch (Throwable t) {
+                onFailure(t);
+                return;
+            }
+            stages[index] = stage;
+            stage.whenComplete((value, cause) -> {
+                if (cause == null) {
+                    onSuccess(index, value, System.nanoTime() - startNanos);
+                } else {
+                    onFailure(cause);
+                }
+            });
+        }
+
+        private void scheduleNext() {
+            if (launched < maxAttempts && !promise.isDone()) {
+                try {
+                    pending = timer.newTimeout(this, currentDelayNanos(), TimeUnit.NANOSECONDS);
+                } catch (Throwable t) {
+                    // Timer不可用时退化为不对冲
+                    pending = null;
+                }
+            }
+        }
+
+        private void onSuccess(int index, R value, long latencyNanos) {
+            if (promise.complete(value)) {
+                if (latencyWindow != null) {
+                    latencyWindow.record(latencyNanos);
+                }
+                if (index > 0) {
+                    hedgeWinCount.increment();
+                }
+            }
+        }
+
+        private synchronized void onFailure(Throwable cause) {
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            failed++;
+            // 已发起的请求全部失败
+            if (failed == launched) {
+                promise.completeExceptionally(cause);
+            }
+        }
+
+        private void cancelAll() {
+            CompletionStage<?>[] snapshot;
+            synchronized (this) {
+                if (pending != null) {
+                    pending.cancel();
+                    pending = null;
+                }
+                snapshot = Arrays.copyOf(stages, launched);
+            }
+            for (CompletionStage<?> stage : snapshot) {
+                if (stage instanceof Future) {
+                    ((Future<?>) stage).cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * 最近N次成功请求的耗时, 每记录N/8次重新计算一次百分位
+     */
+    private static final class LatencyWindow {
+        private final AtomicLongArray samples;
+        private final int mask;
+        private final double percentile;
+        private final int recomputeInterval;
+        private final AtomicLong count = new AtomicLong();
+        private volatile long cachedNanos = -1;
+
+        LatencyWindow(int windowSize, double percentile) {
+            this.samples = new AtomicLongArray(windowSize);
+            this.mask = windowSize - 1;
+            this.percentile = percentile;
+            this.recomputeInterval = Math.max(1, windowSize / 8);
+        }
+
+        void record(long nanos) {
+            long n = count.getAndIncrement();
+            samples.set((int) (n & mask), nanos);
+            if ((n + 1) % recomputeInterval == 0) {
+                recompute(Math.min(n + 1, samples.length()));
+            }
+        }
+
+        /**
+         * @return 样本不足一个计算周期时返回-1
+         */
+        long percentileNanos() {
+            return cachedNanos;
+        }
+
+        private void recompute(long size) {
+            long[] sorted = new long[(int) size];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            cachedNanos = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+
+    public static class Builder {
+        private long delayNanos = TimeUnit.MILLISECONDS.toNanos(50);
+        private double percentile = 0;
+        private int windowSize = 1024;
+        private int maxHedges = 1;
+        private double budgetPercent = 10;
+        private int maxBurst = 10;
+        private HashedWheelTimer timer;
+
+        private Builder() {
+        }
+
+        /**
+         * 固定的对冲延迟, 启用自适应延迟时为样本不足时的初始值, 默认50毫秒
+         */
+        public Builder setDelay(long delay, TimeUnit unit) {
+            this.delayNanos = Validate.nonNegative("delay", unit.toNanos(delay));
+            return this;
+        }
+
+        /**
+         * 以最近windowSize次成功请求耗时的百分位作为对冲延迟, 如95即p95. 默认不启用.
+         *
+         * @param windowSize 样本数, 向上取整为2的幂, 默认1024
+         */
+        public Builder setAdaptiveDelay(double percentile, int windowSize) {
+            Validate.isTrue(percentile > 0 && percentile < 100, "percentile must be in (0, 100)");
+            Validate.positive("windowSize", windowSize);
+            this.percentile = percentile;
+            this.windowSize = MathUtil.findNextPositivePowerOfTwo(windowSize);
+            return this;
+        }
+
+        /**
+         * 每个请求最多的对冲次数, 默认1, 同时受目标数限制
+         */
+        public Builder setMaxHedges(int maxHedges) {
+            this.maxHedges = Validate.positive("maxHedges", maxHedges);
+            return this;
+        }
+
+        /**
+         * 对冲预算, 对冲次数最多为请求数的budgetPercent%, 另允许maxBurst次突发. 默认10%与10次.
+         */
+        public Builder setHedgeBudget(double budgetPercent, int maxBurst) {
+            Validate.isTrue(budgetPercent >= 0 && budgetPercent <= 100, "budgetPercent must be in [0, 100]");
+            this.budgetPercent = budgetPercent;
+            this.maxBurst = Validate.nonNegative("maxBurst", maxBurst);
+            return this;
+        }
+
+        /**
+         * 触发对冲的Timer, 默认为{@link HashedWheelTimer#shared()}
+         */
+        public Builder setTimer(HashedWheelTimer timer) {
+            this.timer = timer;
+            return this;
+        }
+
+        public HedgedExecutor build() {
+            return new HedgedExecutor(this);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Description: 按Key保序的Executor, 同一个Key的任务按提交顺序串行执行, 不同Key的任务在共享的线程池中并行执行.
+ * <p>
+ * 与"N个单线程池, 按Key哈希到其中一个"的做法相比, 慢任务只会阻塞同一Key的后续任务, 不会阻塞恰好哈希到同一线程的其他Key.
+ * <p>
+ * 实现:
+ * <p>
+ * 1. 每个活跃的Key对应一条无锁的任务链(ConcurrentLinkedQueue)和一个CAS维护的待执行计数.
+ * <p>
+ * 2. 计数从0变为1的提交者负责把该任务链作为一个任务提交到共享线程池, 之后的提交者只需入队.
+ * <p>
+ * 3. 任务链每次最多连续执行maxTasksPerRun个任务后重新提交到线程池, 避免热点Key长期占用线程.
+ * <p>
+ * 4. 任务链执行完毕变为空闲时, 以CAS将计数置为-1并从Map中移除, 因此内存只与活跃Key的数量相关.
+ * <p>
+ * 5. 共享线程池拒绝任务链时, 只有负责调度的提交者的任务被拒绝, 期间其他提交者已入队的任务在该提交者线程中执行, 不会丢失.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 14:30
+ * @Version: 1.0
+ */
+@Slf4j
+public class KeyedOrderedExecutor<K> {
+
+    private static final int DEFAULT_MAX_TASKS_PER_RUN = 64;
+
+    private final Executor delegate;
+    private final int maxTasksPerRun;
+    private final ConcurrentHashMap<K, SerialTasks> chains = new ConcurrentHashMap<>();
+
+    public KeyedOrderedExecutor(Executor delegate) {
+        this(delegate, DEFAULT_MAX_TASKS_PER_RUN);
+    }
+
+    /**
+     * @param delegate       实际执行任务的共享线程池
+     * @param maxTasksPerRun 同一Key连续执行多少个任务后让出线程, 默认64
+     */
+    public KeyedOrderedExecutor(Executor delegate, int maxTasksPerRun) {
+        Validate.notNull(delegate);
+        Validate.positive("maxTasksPerRun", maxTasksPerRun);
+        this.delegate = delegate;
+        this.maxTasksPerRun = maxTasksPerRun;
+    }
+
+    /**
+     * 提交任务, 与之前提交的同一Key的任务串行且保序执行.
+     * <p>
+     * 共享线程池拒绝时本任务不执行, 而同一Key在此期间被其他线程提交的任务已被接受, 将在当前线程中执行后才抛出异常.
+     *
+     * @throws RejectedExecutionException 共享线程池拒绝执行
+     */
+    public void execute(K key, Runnable task) {
+        Validate.notNull(key);
+        Validate.notNull(task);
+        for (; ; ) {
+            SerialTasks chain = chains.computeIfAbsent(key, SerialTasks::new);
+            if (chain.enqueue(task)) {
+                return;
+            }
+            // 该任务链刚被回收, 等待它从Map中移除后重试
+            Thread.yield();
+        }
+    }
+
+    /**
+     * 返回绑定了Key的Executor视图, 便于接入只接受Executor的已有代码.
+     */
+    public Executor executorFor(K key) {
+        Validate.notNull(key);
+        return task -> execute(key, task);
+    }
+
+    /**
+     * @return 当前有待执行任务的Key数量
+     */
+    public int getActiveKeyCount() {
+        return chains.size();
+    }
+
+    private final class SerialTasks implements Runnable {
+        private final K key;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // 已入队未执行完的任务数, -1表示已回收
+        private final AtomicInteger pending = new AtomicInteger();
+
+        SerialTasks(K key) {
+            this.key = key;
+        }
+
+        boolean enqueue(Runnable task) {
+            int current;
+            do {
+                current = pending.get();
+                if (current < 0) {
+                    return false;
+                }
+            } while (!pending.compareAndSet(current, current + 1));
+
+            tasks.offer(task);
+            if (current == 0) {
+                try {
+                    delegate.execute(this);
+                } catch (RejectedExecutionException e) {
+                    reject(task);
+                    throw e;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            int processed = 0;
+            for (; ; ) {
+                Runnable task;
+                // 计数已加但任务还未入队的短暂窗口
+                while ((task = tasks.poll()) == null) {
+                    Thread.yield();
+                }
+                runTask(task);
+
+                if (pending.decrementAndGet() == 0) {
+                    // 计数为0时尝试回收, 失败说明有新任务提交, 并且提交者已负责重新调度
+                    if (pending.compareAndSet(0, -1)) {
+                        chains.remove(key, this);
+                    }
+                    return;
+                }
+
+                if (++processed >= maxTasksPerRun) {
+                    try {
+                        delegate.execute(this);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // 线程池不再接受任务时在当前线程继续执行, 保证已接受的任务不丢失
+                        processed = 0;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 只撤回被拒绝的任务. 其他提交者看到计数大于0时不负责调度, 它们的任务由当前线程执行, 否则会被静默丢弃.
+         */
+        private void reject(Runnable task) {
+            tasks.remove(task);
+            if (pending.decrementAndGet() > 0) {
+                log.warn("Executor rejected the task chain of key {}, run accepted tasks in caller thread", key);
+                run();
+            } else if (pending.compareAndSet(0, -1)) {
+                chains.remove(key, this);
+            }
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // 任务的异常不影响同一Key的后续任务
+                log.error("Unexpected error occurred in task of key " + key, e);
+            }
+        }
+    }
+}
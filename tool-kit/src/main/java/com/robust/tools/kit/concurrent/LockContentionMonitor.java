@@ -0,0 +1,489 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.limit.TimeIntervalLimiter;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: 锁竞争监控, 线程池卡住时找出最热的锁.
+ * <p>
+ * 定期通过ThreadMXBean读取线程的竞争信息(不取栈, 开销很低, 可常驻开启):
+ * <p>
+ * 1. 每个线程: 与上一次读取相比的blocked/waited次数与时长增量, 第一次读取只记录基线.
+ * <p>
+ * 2. 每把锁: BLOCKED在synchronized上, 或WAITING在有持有者的j.u.c锁(如ReentrantLock)上的线程, 其增量计入该锁,
+ * 同时记录观察到的次数与最近的持有者. 已不再阻塞的线程, 其增量计入上一次观察到的锁. 只在Condition上等待(如空闲的池线程)的线程不计入.
+ * <p>
+ * 3. 按竞争时长保留Top N的锁; 一个周期内最热的锁竞争时长超过阈值时, 与{@link com.robust.tools.kit.concurrent.threadpool.AbortPolicyWithReport}
+ * 一样打印日志并尝试{@link ThreadDumper#tryThreadDump(String)}, 两者都有最少间隔.
+ * <p>
+ * 时长依赖JVM的线程竞争监控, 支持时会在构造时打开(全局开关); 不支持时只有次数.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 11:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class LockContentionMonitor {
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final String[] threadNamePrefixes;
+    private final long intervalMillis;
+    private final int topN;
+    private final int maxTrackedLocks;
+    private final long reportThresholdMillis;
+    private final TimeIntervalLimiter reportLimiter;
+    private final ThreadDumper threadDumper;
+    private final boolean timeSupported;
+
+    private Map<Long, ThreadState> threadStates = new HashMap<>();
+    private final Map<String, LockStats> lockStats = new HashMap<>();
+    private List<ThreadStats> lastThreadStats = new ArrayList<>();
+    private long pollCount;
+    private long suppressedReports;
+
+    private ScheduledExecutorService scheduler;
+
+    private LockContentionMonitor(Builder builder) {
+        this.threadNamePrefixes = builder.threadNamePrefixes;
+        this.intervalMillis = builder.intervalMillis;
+        this.topN = builder.topN;
+        this.maxTrackedLocks = builder.maxTrackedLocks;
+        this.reportThresholdMillis = builder.reportThresholdMillis;
+        this.reportLimiter = new TimeIntervalLimiter(builder.reportIntervalMillis, TimeUnit.MILLISECONDS);
+        this.threadDumper = builder.threadDump ? new ThreadDumper() : null;
+        boolean supported = threadMXBean.isThreadContentionMonitoringSupported();
+        if (supported && !threadMXBean.isThreadContentionMonitoringEnabled()) {
+            threadMXBean.setThreadContentionMonitoringEnabled(true);
+        }
+        this.timeSupported = supported;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public synchronized void start() {
+        Validate.validState(scheduler == null, "monitor already started");
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                ThreadPoolUtil.buildThreadFactory("lock-contention-monitor", true));
+        scheduler.scheduleWithFixedDelay(this::safePoll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            ThreadPoolUtil.gracefulShutdown(scheduler, 1000);
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 读取一次竞争信息, 计算增量, 超过阈值时报告
+     */
+    public void poll() {
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0);
+        synchronized (lockStats) {
+            pollCount++;
+            Map<Long, ThreadState> states = new HashMap<>(Math.max(16, threadStates.size() * 2));
+            Map<String, LockStats> interval = new HashMap<>();
+            List<ThreadStats> threads = new ArrayList<>();
+            for (ThreadInfo info : infos) {
+                if (info == null || !matches(info.getThreadName())) {
+                    continue;
+                }
+                ThreadState state = new ThreadState(info, timeSupported);
+                states.put(info.getThreadId(), state);
+                ThreadState previous = threadStates.get(info.getThreadId());
+                String lock = contendedLock(info);
+                state.lastLock = lock;
+
+                //第一次观察到的线程只记录基线
+                ThreadState base = previous != null ? previous : state;
+                long blockedCount = state.blockedCount - base.blockedCount;
+                long waitedCount = state.waitedCount - base.waitedCount;
+                long blockedTime = state.blockedTime - base.blockedTime;
+                long waitedTime = state.waitedTime - base.waitedTime;
+                if (blockedCount > 0 || waitedCount > 0 || blockedTime > 0 || waitedTime > 0 || lock != null) {
+                    threads.add(new ThreadStats(info.getThreadId(), info.getThreadName(), lock,
+                            blockedCount, blockedTime, waitedCount, waitedTime));
+                }
+
+                String attributed = lock != null ? lock : previous == null ? null : previous.lastLock;
+                if (attributed == null) {
+                    continue;
+                }
+                //已不再阻塞的线程, waited增量可能来自Condition等待, 只计入blocked增量
+                boolean waitingOnLock = lock != null && info.getThreadState() != Thread.State.BLOCKED;
+                long count = lock != null ? 1 : 0;
+                long time = blockedTime + (waitingOnLock || lock == null && previous.lastLockWaited ? waitedTime : 0);
+                state.lastLockWaited = waitingOnLock;
+                LockStats current = interval.computeIfAbsent(attributed, LockStats::new);
+                current.add(count, Math.max(0, time), lock != null ? info.getLockOwnerName() : null);
+            }
+            threadStates = states;
+            threads.sort(Comparator.comparingLong(ThreadStats::getContentionTimeMillis)
+                    .thenComparingLong(ThreadStats::getContentionCount).reversed());
+            lastThreadStats = threads;
+
+            LockStats hottest = null;
+            for (LockStats stats : interval.values()) {
+                lockStats.computeIfAbsent(stats.lockName, LockStats::new).merge(stats);
+                if (hottest == null || LockStats.ORDER.compare(stats, hottest) < 0) {
+                    hottest = stats;
+                }
+            }
+            evict();
+            if (hottest != null && hottest.contentionTimeMillis >= reportThresholdMillis) {
+                report(hottest, interval);
+            }
+        }
+    }
+
+    /**
+     * @return 累计竞争时长(相同时按次数)最多的N把锁
+     */
+    public List<LockStats> getTopLocks() {
+        synchronized (lockStats) {
+            List<LockStats> sorted = new ArrayList<>(lockStats.size());
+            for (LockStats stats : lockStats.values()) {
+                sorted.add(stats.copy());
+            }
+            sorted.sort(LockStats.ORDER);
+            return sorted.size() > topN ? new ArrayList<>(sorted.subList(0, topN)) : sorted;
+        }
+    }
+
+    /**
+     * @return 最近一个周期内有竞争的线程及其增量, 按竞争时长排序
+     */
+    public List<ThreadStats> getLastThreadStats() {
+        synchronized (lockStats) {
+            return new ArrayList<>(lastThreadStats);
+        }
+    }
+
+    public long getPollCount() {
+        synchronized (lockStats) {
+            return pollCount;
+        }
+    }
+
+    /**
+     * @return JVM是否提供阻塞与等待时长
+     */
+    public boolean isTimeSupported() {
+        return timeSupported;
+    }
+
+    private void safePoll() {
+        try {
+            poll();
+        } catch (Throwable t) {
+            log.warn("poll lock contention failed", t);
+        }
+    }
+
+    private boolean matches(String threadName) {
+        if (threadNamePrefixes.length == 0) {
+            return true;
+        }
+        for (String prefix : threadNamePrefixes) {
+            if (threadName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 线程当前竞争的锁: BLOCKED在monitor上, 或等待一个有持有者的同步器
+     */
+    private static String contendedLock(ThreadInfo info) {
+        Thread.State state = info.getThreadState();
+        if (state == Thread.State.BLOCKED) {
+            return info.getLockName();
+        }
+        if ((state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) && info.getLockOwnerId() != -1) {
+            return info.getLockName();
+        }
+        return null;
+    }
+
+    /**
+     * 跟踪的锁过多时, 淘汰竞争最少的一半
+     */
+    private void evict() {
+        if (lockStats.size() <= maxTrackedLocks) {
+            return;
+        }
+        List<LockStats> sorted = new ArrayList<>(lockStats.values());
+        sorted.sort(LockStats.ORDER);
+        for (int i = maxTrackedLocks / 2; i < sorted.size(); i++) {
+            lockStats.remove(sorted.get(i).lockName);
+        }
+    }
+
+    private void report(LockStats hottest, Map<String, LockStats> interval) {
+        if (!reportLimiter.tryAcquire()) {
+            suppressedReports++;
+            return;
+        }
+        List<LockStats> sorted = new ArrayList<>(interval.values());
+        sorted.sort(LockStats.ORDER);
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("Lock contention is HIGH! Hottest lock: ").append(hottest.lockName)
+                .append(" contended ").append(hottest.contentionTimeMillis).append("ms in last ")
+                .append(intervalMillis).append("ms");
+        if (suppressedReports > 0) {
+            sb.append(" (").append(suppressedReports).append(" reports suppressed since last report)");
+        }
+        for (int i = 0; i < Math.min(topN, sorted.size()); i++) {
+            sb.append("\n\t").append(sorted.get(i));
+        }
+        suppressedReports = 0;
+        log.warn(sb.toString());
+        if (threadDumper != null) {
+            threadDumper.tryThreadDump("lock contention on " + hottest.lockName);
+        }
+    }
+
+    private static final class ThreadState {
+        final long blockedCount;
+        final long waitedCount;
+        final long blockedTime;
+        final long waitedTime;
+        String lastLock;
+        boolean lastLockWaited;
+
+        ThreadState(ThreadInfo info, boolean timeSupported) {
+            this.blockedCount = info.getBlockedCount();
+            this.waitedCount = info.getWaitedCount();
+            this.blockedTime = timeSupported ? Math.max(0, info.getBlockedTime()) : 0;
+            this.waitedTime = timeSupported ? Math.max(0, info.getWaitedTime()) : 0;
+        }
+    }
+
+    /**
+     * 一把锁的竞争统计
+     */
+    public static final class LockStats {
+        static final Comparator<LockStats> ORDER = Comparator.comparingLong(LockStats::getContentionTimeMillis)
+                .thenComparingLong(LockStats::getContendedCount).reversed();
+
+        private final String lockName;
+        private long contendedCount;
+        private long contentionTimeMillis;
+        private String lastOwner;
+
+        LockStats(String lockName) {
+            this.lockName = lockName;
+        }
+
+        void add(long count, long timeMillis, String owner) {
+            contendedCount += count;
+            contentionTimeMillis += timeMillis;
+            if (owner != null) {
+                lastOwner = owner;
+            }
+        }
+
+        void merge(LockStats other) {
+            add(other.contendedCount, other.contentionTimeMillis, other.lastOwner);
+        }
+
+        LockStats copy() {
+            LockStats copy = new LockStats(lockName);
+            copy.merge(this);
+            return copy;
+        }
+
+        /**
+         * @return 锁的类名@identityHashCode
+         */
+        public String getLockName() {
+            return lockName;
+        }
+
+        /**
+         * @return 观察到线程阻塞在该锁上的次数
+         */
+        public long getContendedCount() {
+            return contendedCount;
+        }
+
+        /**
+         * @return 线程阻塞在该锁上的时长, 毫秒
+         */
+        public long getContentionTimeMillis() {
+            return contentionTimeMillis;
+        }
+
+        /**
+         * @return 最近观察到的持有者线程名
+         */
+        public String getLastOwner() {
+            return lastOwner;
+        }
+
+        @Override
+        public String toString() {
+            return lockName + " contended: " + contendedCount + ", time: " + contentionTimeMillis
+                    + "ms, last owner: " + lastOwner;
+        }
+    }
+
+    /**
+     * 一个线程在一个周期内的竞争增量
+     */
+    public static final class ThreadStats {
+        private final long threadId;
+        private final String threadName;
+        private final String contendedLock;
+        private final long blockedCount;
+        private final long blockedTimeMillis;
+        private final long waitedCount;
+        private final long waitedTimeMillis;
+
+        ThreadStats(long threadId, String threadName, String contendedLock, long blockedCount,
+                    long blockedTimeMillis, long waitedCount, long waitedTimeMillis) {
+            this.threadId = threadId;
+            this.threadName = threadName;
+            this.contendedLock = contendedLock;
+            this.blockedCount = blockedCount;
+            this.blockedTimeMillis = blockedTimeMillis;
+            this.waitedCount = waitedCount;
+            this.waitedTimeMillis = waitedTimeMillis;
+        }
+
+        public long getThreadId() {
+            return threadId;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * @return 读取时正在竞争的锁, 没有时为null
+         */
+        public String getContendedLock() {
+            return contendedLock;
+        }
+
+        public long getBlockedCount() {
+            return blockedCount;
+        }
+
+        public long getBlockedTimeMillis() {
+            return blockedTimeMillis;
+        }
+
+        public long getWaitedCount() {
+            return waitedCount;
+        }
+
+        public long getWaitedTimeMillis() {
+            return waitedTimeMillis;
+        }
+
+        long getContentionTimeMillis() {
+            return blockedTimeMillis + waitedTimeMillis;
+        }
+
+        long getContentionCount() {
+            return blockedCount + waitedCount;
+        }
+
+        @Override
+        public String toString() {
+            return threadName + " blocked: " + blockedCount + "/" + blockedTimeMillis + "ms, waited: "
+                    + waitedCount + "/" + waitedTimeMillis + "ms" + (contendedLock != null ? ", on " + contendedLock : "");
+        }
+    }
+
+    public static class Builder {
+        private String[] threadNamePrefixes = new String[0];
+        private long intervalMillis = 1000;
+        private int topN = 10;
+        private int maxTrackedLocks = 1024;
+        private long reportThresholdMillis = 1000;
+        private long reportIntervalMillis = TimeUnit.MINUTES.toMillis(10);
+        private boolean threadDump = true;
+
+        private Builder() {
+        }
+
+        /**
+         * 只监控线程名以这些前缀开头的线程, 默认监控全部线程
+         */
+        public Builder setThreadNamePrefixes(String... threadNamePrefixes) {
+            Validate.noNullElements(threadNamePrefixes);
+            this.threadNamePrefixes = threadNamePrefixes.clone();
+            return this;
+        }
+
+        /**
+         * 读取间隔, 默认1秒
+         */
+        public Builder setInterval(long interval, TimeUnit unit) {
+            this.intervalMillis = Validate.positive("interval", unit.toMillis(interval));
+            return this;
+        }
+
+        /**
+         * 保留与报告的锁数量, 默认10
+         */
+        public Builder setTopN(int topN) {
+            this.topN = Validate.positive("topN", topN);
+            return this;
+        }
+
+        /**
+         * 累计统计最多跟踪的锁数量, 默认1024
+         */
+        public Builder setMaxTrackedLocks(int maxTrackedLocks) {
+            this.maxTrackedLocks = Validate.positive("maxTrackedLocks", maxTrackedLocks);
+            return this;
+        }
+
+        /**
+         * 一个周期内最热的锁竞争时长超过该值时报告, 默认1000毫秒(多个线程的时长累加)
+         */
+        public Builder setReportThreshold(long threshold, TimeUnit unit) {
+            this.reportThresholdMillis = Validate.nonNegative("reportThreshold", unit.toMillis(threshold));
+            return this;
+        }
+
+        /**
+         * 两次报告的最少间隔, 默认10分钟, 与ThreadDumper一致
+         */
+        public Builder setReportInterval(long interval, TimeUnit unit) {
+            this.reportIntervalMillis = Validate.nonNegative("reportInterval", unit.toMillis(interval));
+            return this;
+        }
+
+        /**
+         * 报告时是否同时ThreadDump, 默认true
+         */
+        public Builder setThreadDump(boolean threadDump) {
+            this.threadDump = threadDump;
+            return this;
+        }
+
+        public LockContentionMonitor build() {
+            return new LockContentionMonitor(this);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.collection.QueueUtil;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * @Description: 微批处理器, 将逐条提交的数据合并成批, 再一次性交给批处理函数, 减少写DB/发消息等场景的交互次数.
+ * <p>
+ * 1. 生产者通过offer()/put()提交数据到有界队列, 队列满时offer()返回false或等待, put()一直阻塞, 形成背压.
+ * <p>
+ * 2. 单条消费线程取到第一条数据后, 最多再等待linger时间凑满batchSize条, 然后调用handler.
+ * <p>
+ * 3. 统计批次数, 数据条数, 平均批大小与平均等待(linger)时间.
+ * <p>
+ * 4. shutdown()后不再接受新数据, 消费线程等待进行中的offer()/put()入队完成, 处理完队列中剩余的数据后退出.
+ * shutdown()不中断消费线程, 正在执行的handler不受影响, 空闲的消费线程在下一次定时poll时发现关闭.
+ * <p>
+ * 传给handler的List每批新建, handler可以持有它.
+ * <pre>
+ * MicroBatchExecutor&lt;Row&gt; batcher = MicroBatchExecutor.builder(rows -&gt; dao.batchInsert(rows))
+ *         .setBatchSize(200).setLinger(10, TimeUnit.MILLISECONDS).setQueueSize(10000).build();
+ * batcher.put(row);
+ * </pre>
+ * @Author: robust
+ * @CreateDate: 2026/10/19 13:20
+ * @Version: 1.0
+ */
+@Slf4j
+public class MicroBatchExecutor<T> {
+
+    private final Consumer<List<T>> handler;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final ArrayBlockingQueue<T> queue;
+    private final Thread consumerThread;
+
+    private volatile boolean shutdown = false;
+    // 已通过状态检查但尚未入队完成的生产者数, 消费线程关闭时等待其归零
+    private final AtomicInteger activeProducers = new AtomicInteger();
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder itemCount = new LongAdder();
+    private final LongAdder lingerNanosTotal = new LongAdder();
+    private final AtomicLong maxLingerNanos = new AtomicLong();
+
+    private MicroBatchExecutor(Consumer<List<T>> handler, int batchSize, long lingerNanos, int queueSize,
+                               ThreadFactory threadFactory) {
+        this.handler = handler;
+        this.batchSize = batchSize;
+        this.lingerNanos = lingerNanos;
+        this.queue = QueueUtil.newArrayBlockingQueue(queueSize);
+        this.consumerThread = threadFactory.newThread(this::runLoop);
+        consumerThread.start();
+    }
+
+    public static <T> Builder<T> builder(Consumer<List<T>> handler) {
+        return new Builder<>(handler);
+    }
+
+    /**
+     * 提交数据, 队列已满或已关闭时立即返回false.
+     */
+    public boolean offer(T item) {
+        Validate.notNull(item);
+        // 先登记再检查状态, 消费线程看到关闭后只需等待已登记的生产者
+        activeProducers.incrementAndGet();
+        try {
+            return !shutdown && queue.offer(item);
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 提交数据, 队列已满时最多等待timeout, 已关闭时返回false.
+     */
+    public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+        Validate.notNull(item);
+        activeProducers.incrementAndGet();
+        try {
+            return !shutdown && queue.offer(item, timeout, unit);
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 提交数据, 队列已满时一直阻塞.
+     *
+     * @throws IllegalStateException 已关闭
+     */
+    public void put(T item) throws InterruptedException {
+        Validate.notNull(item);
+        activeProducers.incrementAndGet();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException("MicroBatchExecutor has been shutdown");
+            }
+            queue.put(item);
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    private void runLoop() {
+        try {
+            // 依次检查关闭标志, 进行中的生产者, 队列, 保证退出时不会有数据在之后入队
+            while (!shutdown || activeProducers.get() != 0 || !queue.isEmpty()) {
+                T first;
+                try {
+                    // 定时poll, 空闲时也能及时发现关闭
+                    first = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (first != null) {
+                    collectAndHandle(first);
+                }
+            }
+        } finally {
+            log.debug("MicroBatchExecutor consumer thread exit");
+        }
+    }
+
+    private void collectAndHandle(T first) {
+        long start = System.nanoTime();
+        List<T> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+
+        long deadline = start + lingerNanos;
+        while (batch.size() < batchSize && !shutdown) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            T item;
+            try {
+                item = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (item == null) {
+                break;
+            }
+            batch.add(item);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+
+        long linger = System.nanoTime() - start;
+        batchCount.increment();
+        itemCount.add(batch.size());
+        lingerNanosTotal.add(linger);
+        long max;
+        while (linger > (max = maxLingerNanos.get()) && !maxLingerNanos.compareAndSet(max, linger)) {
+            // retry
+        }
+
+        try {
+            handler.accept(batch);
+        } catch (Throwable e) {
+            // 保证消费线程不会因为handler的异常而退出
+            log.error("Unexpected error occurred in batch handler, batch size: " + batch.size(), e);
+        }
+    }
+
+    /**
+     * 不再接受新数据, 消费线程处理完队列中剩余数据后退出.
+     */
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    /**
+     * shutdown并等待剩余数据处理完成.
+     *
+     * @return 是否在超时前处理完成
+     */
+    public boolean shutdownAndAwait(long timeout, TimeUnit unit) throws InterruptedException {
+        shutdown();
+        unit.timedJoin(consumerThread, timeout);
+        return !consumerThread.isAlive();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @return 队列中等待处理的数据条数
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getItemCount() {
+        return itemCount.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : (double) itemCount.sum() / batches;
+    }
+
+    public double getAverageLingerMillis() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : lingerNanosTotal.sum() / 1e6 / batches;
+    }
+
+    public double getMaxLingerMillis() {
+        return maxLingerNanos.get() / 1e6;
+    }
+
+    public static class Builder<T> {
+        private final Consumer<List<T>> handler;
+        private int batchSize = 100;
+        private long linger = 10;
+        private TimeUnit lingerUnit = TimeUnit.MILLISECONDS;
+        private int queueSize = 10000;
+
+        private ThreadFactory threadFactory;
+        private String threadNamePrefix;
+
+        private Builder(Consumer<List<T>> handler) {
+            Validate.notNull(handler);
+            this.handler = handler;
+        }
+
+        /**
+         * 每批最大条数, 默认100
+         */
+        public Builder<T> setBatchSize(int batchSize) {
+            Validate.positive("batchSize", batchSize);
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * 取到第一条数据后最多等待凑批的时间, 默认10毫秒
+         */
+        public Builder<T> setLinger(long linger, TimeUnit lingerUnit) {
+            Validate.nonNegative("linger", linger);
+            this.linger = linger;
+            this.lingerUnit = lingerUnit;
+            return this;
+        }
+
+        /**
+         * 有界队列长度, 默认10000
+         */
+        public Builder<T> setQueueSize(int queueSize) {
+            Validate.positive("queueSize", queueSize);
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * 与threadNamePrefix互斥, 优先使用ThreadFactory
+         */
+        public Builder<T> setThreadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * 与threadFactory互斥, 优先使用ThreadFactory
+         */
+        public Builder<T> setThreadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        public MicroBatchExecutor<T> build() {
+            if (threadFactory == null) {
+                threadFactory = threadNamePrefix != null ? ThreadPoolUtil.buildThreadFactory(threadNamePrefix, true)
+                        : Executors.defaultThreadFactory();
+            }
+            return new MicroBatchExecutor<>(handler, batchSize, lingerUnit.toNanos(linger), queueSize,
+                    threadFactory);
+        }
+    }
+}
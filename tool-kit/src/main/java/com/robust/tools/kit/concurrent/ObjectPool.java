@@ -0,0 +1,326 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.collection.type.MpmcArrayQueue;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * @Description: 通用对象池, 取代各处手写的ThreadLocal重用(StringBuilder, MessageDigest, Cipher等), 参考Netty的Recycler.
+ * <p>
+ * 1. 每个线程有一个小的本地缓存(默认16个), borrow()/release()优先在本地缓存中完成, 无锁无竞争.
+ * <p>
+ * 2. 本地缓存满了的对象归还到共享的有界无锁队列({@link MpmcArrayQueue}), 本地缓存为空时从共享队列获取,
+ * 使A线程借出, B线程归还的对象可以跨线程重用. 共享队列也满时丢弃对象, 交给GC.
+ * <p>
+ * 3. 本地缓存通过SoftReference持有, 空闲线程的缓存可在内存紧张时被GC回收, 线程结束后随ThreadLocal一起回收.
+ * 另可设置validator, 丢弃不宜长期持有的对象(如扩容过大的StringBuilder).
+ * <p>
+ * 4. 归还时执行reset钩子清理对象状态.
+ * <p>
+ * 5. 泄漏检测: 按采样率跟踪借出的对象并记录借出时的调用栈, 对象未归还就被GC时打印告警, 默认关闭.
+ * <p>
+ * 借出的对象只能归还一次, 归还后不能再使用.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 15:00
+ * @Version: 1.0
+ */
+@Slf4j
+public class ObjectPool<T> {
+
+    private final Supplier<? extends T> factory;
+    private final Consumer<? super T> reset;
+    private final Predicate<? super T> validator;
+    private final int maxPerThread;
+    private final MpmcArrayQueue<T> shared;
+    private final int leakSampleInterval;
+
+    private final ThreadLocal<SoftReference<LocalCache>> localCache = new ThreadLocal<>();
+
+    private final ConcurrentHashMap<Object, LeakTracker<T>> trackers = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> leakQueue = new ReferenceQueue<>();
+
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+
+    private ObjectPool(Builder<T> builder) {
+        this.factory = builder.factory;
+        this.reset = builder.reset;
+        this.validator = builder.validator;
+        this.maxPerThread = builder.maxPerThread;
+        this.shared = builder.maxShared > 0 ? new MpmcArrayQueue<>(builder.maxShared) : null;
+        this.leakSampleInterval = builder.leakSampleInterval;
+    }
+
+    /**
+     * @param factory 池中无可用对象时创建新对象
+     */
+    public static <T> Builder<T> builder(Supplier<? extends T> factory) {
+        return new Builder<>(factory);
+    }
+
+    /**
+     * 借出对象, 依次尝试本地缓存, 共享队列, 最后新建
+     */
+    public T borrow() {
+        T obj = null;
+        if (maxPerThread > 0) {
+            LocalCache cache = cache(false);
+            if (cache != null) {
+                obj = cache.pop();
+            }
+        }
+        if (obj == null && shared != null) {
+            obj = shared.poll();
+        }
+        if (obj == null) {
+            obj = factory.get();
+            Validate.notNull(obj, "factory must not return null");
+            createdCount.increment();
+        }
+        if (leakSampleInterval > 0) {
+            reportLeaks();
+            if (ThreadLocalRandom.current().nextInt(leakSampleInterval) == 0) {
+                LeakTracker<T> tracker = new LeakTracker<>(obj, leakQueue);
+                trackers.put(tracker, tracker);
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * 归还对象, 执行reset后依次放入本地缓存, 共享队列, 都满时丢弃
+     */
+    public void release(T obj) {
+        Validate.notNull(obj);
+        if (leakSampleInterval > 0 && !trackers.isEmpty()) {
+            LeakTracker<T> tracker = trackers.remove(new LookupKey(obj));
+            if (tracker != null) {
+                tracker.clear();
+            }
+        }
+        if (reset != null) {
+            try {
+                reset.accept(obj);
+            } catch (RuntimeException e) {
+                log.warn("reset pooled object failed, drop it", e);
+                droppedCount.increment();
+                return;
+            }
+        }
+        if (validator != null && !validator.test(obj)) {
+            droppedCount.increment();
+            return;
+        }
+        if (maxPerThread > 0 && cache(true).push(obj)) {
+            return;
+        }
+        if (shared != null && shared.offer(obj)) {
+            return;
+        }
+        droppedCount.increment();
+    }
+
+    /**
+     * 清空共享队列, 各线程的本地缓存随线程结束或GC回收
+     */
+    public void clear() {
+        if (shared != null) {
+            shared.clear();
+        }
+    }
+
+    /**
+     * @return 共享队列中的对象数
+     */
+    public int getSharedSize() {
+        return shared == null ? 0 : shared.size();
+    }
+
+    /**
+     * @return 新建的对象数, 远大于并发数时说明池的容量不足或对象没有归还
+     */
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    /**
+     * @return 归还时因池满或校验失败被丢弃的对象数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * @return 检测到的泄漏数
+     */
+    public long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    private LocalCache cache(boolean create) {
+        SoftReference<LocalCache> ref = localCache.get();
+        LocalCache cache = ref == null ? null : ref.get();
+        if (cache == null && create) {
+            cache = new LocalCache(maxPerThread);
+            localCache.set(new SoftReference<>(cache));
+        }
+        return cache;
+    }
+
+    /**
+     * 被GC的跟踪对象仍在trackers中, 说明借出后没有归还
+     */
+    private void reportLeaks() {
+        for (; ; ) {
+            LeakTracker<?> tracker = (LeakTracker<?>) leakQueue.poll();
+            if (tracker == null) {
+                return;
+            }
+            if (trackers.remove(tracker) != null) {
+                leakCount.increment();
+                log.warn("LEAK: pooled object was garbage collected without release(), borrowed at:",
+                        tracker.borrowedAt);
+            }
+        }
+    }
+
+    private final class LocalCache {
+        private final Object[] elements;
+        private int size;
+
+        LocalCache(int capacity) {
+            this.elements = new Object[capacity];
+        }
+
+        T pop() {
+            if (size == 0) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            T obj = (T) elements[--size];
+            elements[size] = null;
+            return obj;
+        }
+
+        boolean push(T obj) {
+            if (size == elements.length) {
+                return false;
+            }
+            elements[size++] = obj;
+            return true;
+        }
+    }
+
+    /**
+     * 弱引用借出的对象, 按对象identity比较
+     */
+    private static final class LeakTracker<T> extends WeakReference<T> {
+        private final int hash;
+        private final Throwable borrowedAt;
+
+        LeakTracker(T referent, ReferenceQueue<T> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+            this.borrowedAt = new Throwable("borrowed by " + Thread.currentThread().getName());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return this == obj;
+        }
+    }
+
+    /**
+     * 归还时按identity查找LeakTracker, 不持有被跟踪对象之外的引用
+     */
+    private static final class LookupKey {
+        private final Object obj;
+
+        LookupKey(Object obj) {
+            this.obj = obj;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(obj);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof LeakTracker && ((LeakTracker<?>) other).get() == obj;
+        }
+    }
+
+    public static class Builder<T> {
+        private final Supplier<? extends T> factory;
+        private Consumer<? super T> reset;
+        private Predicate<? super T> validator;
+        private int maxPerThread = 16;
+        private int maxShared = 256;
+        private int leakSampleInterval = 0;
+
+        private Builder(Supplier<? extends T> factory) {
+            this.factory = Validate.notNull(factory);
+        }
+
+        /**
+         * 归还时清理对象状态, 抛出异常时丢弃该对象
+         */
+        public Builder<T> setReset(Consumer<? super T> reset) {
+            this.reset = reset;
+            return this;
+        }
+
+        /**
+         * 归还时(reset之后)校验对象, 返回false时丢弃, 如丢弃扩容过大的缓冲区
+         */
+        public Builder<T> setValidator(Predicate<? super T> validator) {
+            this.validator = validator;
+            return this;
+        }
+
+        /**
+         * 每个线程本地缓存的最大对象数, 默认16, 为0时不使用本地缓存
+         */
+        public Builder<T> setMaxPerThread(int maxPerThread) {
+            this.maxPerThread = Validate.nonNegative("maxPerThread", maxPerThread);
+            return this;
+        }
+
+        /**
+         * 共享队列的最大对象数(向上取整为2的幂), 默认256, 为0时不跨线程重用
+         */
+        public Builder<T> setMaxShared(int maxShared) {
+            this.maxShared = Validate.nonNegative("maxShared", maxShared);
+            return this;
+        }
+
+        /**
+         * 泄漏检测的采样间隔, 平均每N次借出跟踪一次, 默认0不检测. 跟踪需要记录调用栈, 不宜过密.
+         */
+        public Builder<T> setLeakSampleInterval(int leakSampleInterval) {
+            this.leakSampleInterval = Validate.nonNegative("leakSampleInterval", leakSampleInterval);
+            return this;
+        }
+
+        public ObjectPool<T> build() {
+            return new ObjectPool<>(this);
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.collection.QueueUtil;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolBuilder;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @Description: 有界的多阶段处理流水线, 取代各处手写的"生产者 -> 转换 -> 输出"线程与队列.
+ * <p>
+ * 1. 每个阶段有自己的有界输入队列与固定数量的工作线程(由{@link ThreadPoolBuilder}创建), 工作线程取出数据, 处理后放入下一阶段的队列.
+ * <p>
+ * 2. 背压: 下一阶段的队列满时当前阶段的工作线程阻塞, 逐级传递到源头, put()阻塞, offer()返回false.
+ * <p>
+ * 3. 阶段函数返回null时丢弃该数据(过滤), 抛出异常时记录日志并丢弃, 工作线程不会退出.
+ * <p>
+ * 4. 可选的保序: 源头为数据编号, 并行度大于1的阶段把处理完的数据暂存在重排缓冲区, 按编号依次放入下一阶段.
+ * 重排缓冲区的大小受阶段队列长度限制. 输出阶段并行度为1时按提交顺序输出.
+ * <p>
+ * 5. shutdownAndAwait(): 不再接受新数据, 等待进行中的提交入队, 再按阶段顺序排空: 前一阶段处理完剩余数据后, 才通知下一阶段上游已结束,
+ * 每个阶段的线程池通过{@link ThreadPoolUtil#gracefulShutdown}关闭.
+ * <p>
+ * 6. 统计每个阶段的队列深度, 处理数, 过滤数, 失败数与处理耗时, 两次快照之差即为吞吐量.
+ * <pre>
+ * Pipeline&lt;String&gt; pipeline = Pipeline.&lt;String&gt;builder("order")
+ *         .stage("parse", 4, line -&gt; parse(line))
+ *         .stage("enrich", 8, order -&gt; enrich(order))
+ *         .setOrdered(true)
+ *         .sink("save", 1, order -&gt; dao.save(order));
+ * pipeline.put(line);
+ * </pre>
+ * @Author: robust
+ * @CreateDate: 2026/10/20 18:00
+ * @Version: 1.0
+ */
+@Slf4j
+public class Pipeline<I> {
+
+    private final String name;
+    private final boolean ordered;
+    private final List<Stage> stages;
+    private final Stage head;
+
+    // 保序时为提交的数据编号, 使用可限时获取的锁, 保证offer(timeout)不会无限等待正在put()的线程
+    private final ReentrantLock sourceLock = new ReentrantLock();
+    private long nextSeq;
+    private volatile boolean shutdown = false;
+    // 已通过状态检查但尚未入队完成的提交数
+    private final AtomicInteger activeProducers = new AtomicInteger();
+
+    private Pipeline(Builder<I, ?> builder) {
+        this.name = builder.name;
+        this.ordered = builder.ordered;
+        List<Stage> list = new ArrayList<>(builder.specs.size());
+        Stage next = null;
+        for (int i = builder.specs.size() - 1; i >= 0; i--) {
+            StageSpec spec = builder.specs.get(i);
+            next = new Stage(spec, next, i == builder.specs.size() - 1);
+            list.add(0, next);
+        }
+        this.stages = Collections.unmodifiableList(list);
+        this.head = list.get(0);
+        for (Stage stage : stages) {
+            stage.start();
+        }
+    }
+
+    /**
+     * @param name 流水线名称, 用作线程名前缀
+     */
+    public static <I> Builder<I, I> builder(String name) {
+        return new Builder<>(name);
+    }
+
+    /**
+     * 提交数据, 第一阶段的队列已满或已关闭时立即返回false. 保序时其他线程正在提交也返回false.
+     */
+    public boolean offer(I item) {
+        Validate.notNull(item);
+        if (!enter()) {
+            return false;
+        }
+        try {
+            if (!ordered) {
+                return head.queue.offer(new Envelope(item));
+            }
+            if (!sourceLock.tryLock()) {
+                return false;
+            }
+            try {
+                Envelope envelope = new Envelope(item);
+                envelope.seq = nextSeq;
+                if (head.queue.offer(envelope)) {
+                    nextSeq++;
+                    return true;
+                }
+                return false;
+            } finally {
+                sourceLock.unlock();
+            }
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 提交数据, 第一阶段的队列已满时最多等待timeout, 已关闭时返回false.
+     * 保序时等待其他线程提交的时间也计入timeout.
+     */
+    public boolean offer(I item, long timeout, TimeUnit unit) throws InterruptedException {
+        Validate.notNull(item);
+        if (!enter()) {
+            return false;
+        }
+        try {
+            if (!ordered) {
+                return head.queue.offer(new Envelope(item), timeout, unit);
+            }
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!sourceLock.tryLock(timeout, unit)) {
+                return false;
+            }
+            try {
+                Envelope envelope = new Envelope(item);
+                envelope.seq = nextSeq;
+                if (head.queue.offer(envelope, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    nextSeq++;
+                    return true;
+                }
+                return false;
+            } finally {
+                sourceLock.unlock();
+            }
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 提交数据, 第一阶段的队列已满时一直阻塞.
+     *
+     * @throws IllegalStateException 已关闭
+     */
+    public void put(I item) throws InterruptedException {
+        Validate.notNull(item);
+        if (!enter()) {
+            throw new IllegalStateException("Pipeline " + name + " has been shutdown");
+        }
+        try {
+            if (!ordered) {
+                head.queue.put(new Envelope(item));
+                return;
+            }
+            sourceLock.lockInterruptibly();
+            try {
+                Envelope envelope = new Envelope(item);
+                envelope.seq = nextSeq;
+                head.queue.put(envelope);
+                nextSeq++;
+            } finally {
+                sourceLock.unlock();
+            }
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+    }
+
+    /**
+     * 先登记再检查状态, shutdownAndAwait()看到登记数归零后, 第一阶段的队列不会再增加
+     *
+     * @return 已关闭时返回false, 不需要注销
+     */
+    private boolean enter() {
+        activeProducers.incrementAndGet();
+        if (shutdown) {
+            activeProducers.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 不再接受新数据, 等待进行中的提交完成, 再按阶段顺序处理完剩余数据后关闭各阶段的线程池.
+     * 超时后中断仍在运行的工作线程, 未处理的数据被丢弃.
+     *
+     * @return 是否在超时前全部处理完成
+     */
+    public boolean shutdownAndAwait(long timeout, TimeUnit unit) {
+        shutdown = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean drained = true;
+        // 阶段的工作线程在上游结束且队列为空时退出, 必须等进行中的offer()/put()入队后再通知第一阶段
+        while (activeProducers.get() != 0) {
+            if (deadline - System.nanoTime() <= 0) {
+                drained = false;
+                break;
+            }
+            ThreadUtil.sleep(1);
+        }
+        for (Stage stage : stages) {
+            stage.upstreamDone = true;
+            long remainingMillis = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            drained &= ThreadPoolUtil.gracefulShutdown(stage.pool, (int) Math.min(Integer.MAX_VALUE, remainingMillis),
+                    TimeUnit.MILLISECONDS);
+        }
+        return drained;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 各阶段当前统计的快照, 按阶段顺序
+     */
+    public List<StageStats> getStats() {
+        List<StageStats> stats = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            stats.add(stage.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * 在流水线中传递的数据, 每条数据只分配一次, 各阶段替换其中的value
+     */
+    private static final class Envelope {
+        long seq;
+        Object value;
+
+        Envelope(Object value) {
+            this.value = value;
+        }
+    }
+
+    private final class Stage {
+        private final String stageName;
+        private final int parallelism;
+        private final int queueSize;
+        private final Function<Object, Object> function;
+        private final boolean sink;
+        private final Stage next;
+        private final ArrayBlockingQueue<Envelope> queue;
+        private final ExecutorService pool;
+
+        // 并行处理时按编号重排, 为null时不重排
+        private final Map<Long, Envelope> reorderBuffer;
+        private final Semaphore reorderWindow;
+        private long nextEmitSeq;
+
+        private volatile boolean upstreamDone = false;
+
+        private final LongAdder processedCount = new LongAdder();
+        private final LongAdder filteredCount = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        Stage(StageSpec spec, Stage next, boolean sink) {
+            this.stageName = spec.name;
+            this.parallelism = spec.parallelism;
+            this.queueSize = spec.queueSize;
+            this.function = spec.function;
+            this.sink = sink;
+            this.next = next;
+            this.queue = QueueUtil.newArrayBlockingQueue(spec.queueSize);
+            this.pool = ThreadPoolBuilder.fixedPool().setPoolSize(spec.parallelism)
+                    .setThreadNamePrefix(name + "-" + spec.name).setDaemon(true).build();
+            if (ordered && !sink && spec.parallelism > 1) {
+                this.reorderBuffer = new HashMap<>();
+                this.reorderWindow = new Semaphore(Math.max(spec.queueSize, spec.parallelism));
+            } else {
+                this.reorderBuffer = null;
+                this.reorderWindow = null;
+            }
+        }
+
+        void start() {
+            for (int i = 0; i < parallelism; i++) {
+                pool.execute(this::runLoop);
+            }
+        }
+
+        private void runLoop() {
+            try {
+                for (; ; ) {
+                    if (reorderWindow != null) {
+                        reorderWindow.acquire();
+                    }
+                    Envelope envelope = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (envelope == null) {
+                        if (reorderWindow != null) {
+                            reorderWindow.release();
+                        }
+                        if (upstreamDone && queue.isEmpty()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    process(envelope);
+                    emit(envelope);
+                }
+            } catch (InterruptedException e) {
+                log.warn("Pipeline {} stage {} interrupted, {} items left in queue", name, stageName, queue.size());
+            }
+        }
+
+        private void process(Envelope envelope) {
+            if (envelope.value == null) {
+                // 保序时上游过滤掉的数据仍然传递, 保持编号连续
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                envelope.value = function.apply(envelope.value);
+                if (envelope.value == null && !sink) {
+                    filteredCount.increment();
+                }
+            } catch (Throwable t) {
+                // 保证工作线程不会因为阶段函数的异常而退出
+                errorCount.increment();
+                envelope.value = null;
+                log.error("Unexpected error occurred in pipeline " + name + " stage " + stageName, t);
+            }
+            busyNanos.add(System.nanoTime() - start);
+            processedCount.increment();
+        }
+
+        private void emit(Envelope envelope) throws InterruptedException {
+            if (next == null) {
+                return;
+            }
+            if (reorderBuffer == null) {
+                if (envelope.value != null || ordered) {
+                    next.queue.put(envelope);
+                }
+                return;
+            }
+            synchronized (reorderBuffer) {
+                reorderBuffer.put(envelope.seq, envelope);
+                Envelope ready;
+                while ((ready = reorderBuffer.remove(nextEmitSeq)) != null) {
+                    nextEmitSeq++;
+                    reorderWindow.release();
+                    next.queue.put(ready);
+                }
+            }
+        }
+
+        StageStats stats() {
+            return new StageStats(stageName, parallelism, queue.size(), queueSize, processedCount.sum(),
+                    filteredCount.sum(), errorCount.sum(), busyNanos.sum());
+        }
+    }
+
+    /**
+     * 阶段统计的快照
+     */
+    public static final class StageStats {
+        private final String name;
+        private final int parallelism;
+        private final int queueSize;
+        private final int queueCapacity;
+        private final long processedCount;
+        private final long filteredCount;
+        private final long errorCount;
+        private final long busyNanos;
+        private final long timestamp = System.nanoTime();
+
+        StageStats(String name, int parallelism, int queueSize, int queueCapacity, long processedCount,
+                   long filteredCount, long errorCount, long busyNanos) {
+            this.name = name;
+            this.parallelism = parallelism;
+            this.queueSize = queueSize;
+            this.queueCapacity = queueCapacity;
+            this.processedCount = processedCount;
+            this.filteredCount = filteredCount;
+            this.errorCount = errorCount;
+            this.busyNanos = busyNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        /**
+         * @return 输入队列中等待处理的数据条数, 长期接近容量说明该阶段是瓶颈
+         */
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public long getProcessedCount() {
+            return processedCount;
+        }
+
+        public long getFilteredCount() {
+            return filteredCount;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * @return 平均每条数据的处理耗时
+         */
+        public double getAverageLatencyMillis() {
+            return processedCount == 0 ? 0 : busyNanos / 1e6 / processedCount;
+        }
+
+        /**
+         * @return 从previous到本快照之间每秒处理的数据条数
+         */
+        public double getThroughput(StageStats previous) {
+            Validate.notNull(previous);
+            long elapsed = timestamp - previous.timestamp;
+            return elapsed <= 0 ? 0 : (processedCount - previous.processedCount) * 1e9 / elapsed;
+        }
+
+        @Override
+        public String toString() {
+            return "StageStats{name=" + name + ", parallelism=" + parallelism + ", queue=" + queueSize + "/"
+                    + queueCapacity + ", processed=" + processedCount + ", filtered=" + filteredCount + ", errors="
+                    + errorCount + ", avgLatencyMillis=" + getAverageLatencyMillis() + '}';
+        }
+    }
+
+    private static final class StageSpec {
+        final String name;
+        final int parallelism;
+        final int queueSize;
+        final Function<Object, Object> function;
+
+        StageSpec(String name, int parallelism, int queueSize, Function<Object, Object> function) {
+            this.name = name;
+            this.parallelism = parallelism;
+            this.queueSize = queueSize;
+            this.function = function;
+        }
+    }
+
+    /**
+     * @param <I> 流水线的输入类型
+     * @param <O> 最后一个已声明阶段的输出类型
+     */
+    public static class Builder<I, O> {
+        private final String name;
+        private final List<StageSpec> specs = new ArrayList<>();
+        private int queueSize = 1024;
+        private boolean ordered = false;
+
+        private Builder(String name) {
+            Validate.notBlank(name);
+            this.name = name;
+        }
+
+        /**
+         * 之后声明的阶段的输入队列长度, 默认1024
+         */
+        public Builder<I, O> setQueueSize(int queueSize) {
+            this.queueSize = Validate.positive("queueSize", queueSize);
+            return this;
+        }
+
+        /**
+         * 是否保持提交顺序, 默认false
+         */
+        public Builder<I, O> setOrdered(boolean ordered) {
+            this.ordered = ordered;
+            return this;
+        }
+
+        /**
+         * 声明转换阶段, function返回null时丢弃该数据
+         *
+         * @param parallelism 工作线程数
+         */
+        public <R> Builder<I, R> stage(String stageName, int parallelism, Function<? super O, ? extends R> function) {
+            // 阶段之间以Object传递, 类型由Builder的泛型保证
+            @SuppressWarnings("unchecked")
+            Function<Object, Object> untyped = (Function<Object, Object>) function;
+            addStage(stageName, parallelism, untyped);
+            @SuppressWarnings("unchecked")
+            Builder<I, R> self = (Builder<I, R>) this;
+            return self;
+        }
+
+        /**
+         * 声明输出阶段并创建流水线
+         *
+         * @param parallelism 工作线程数, 保序输出时应为1
+         */
+        public Pipeline<I> sink(String stageName, int parallelism, Consumer<? super O> consumer) {
+            Validate.notNull(consumer);
+            @SuppressWarnings("unchecked")
+            Consumer<Object> sink = (Consumer<Object>) consumer;
+            addStage(stageName, parallelism, value -> {
+                sink.accept(value);
+                return null;
+            });
+            return new Pipeline<>(this);
+        }
+
+        private void addStage(String stageName, int parallelism, Function<Object, Object> function) {
+            Validate.notBlank(stageName);
+            Validate.positive("parallelism", parallelism);
+            Validate.notNull(function);
+            specs.add(new StageSpec(stageName, parallelism, queueSize, function));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.type.Promise;
+import com.robust.tools.kit.time.ClockUtil;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: 合并同一个key上并发的重复调用, 参考Go的singleflight. 用于热点缓存失效时, 防止大量请求同时回源(缓存击穿).
+ * <p>
+ * 1. 同一key同时只有一个调用者(leader)执行Callable, 期间到达的其他调用者等待并共享其结果或异常, 计入被合并的调用数.
+ * <p>
+ * 2. 进行中的调用以key为键存放在ConcurrentHashMap中, 值为{@link Promise}, 未命中时只有一次putIfAbsent.
+ * <p>
+ * 3. 可选的结果TTL: 成功的结果在TTL内继续返回给后到的调用者, 不再执行Callable. 失败的结果从不保留.
+ * 过期的结果在访问时替换, 并由{@link HashedWheelTimer#shared()}定时清理, 不会无限占用内存.
+ * <p>
+ * 共享的异常是同一个实例, 调用者不应修改它. Callable中不能以同一个key再次调用execute(), 否则会等待自己而死锁.
+ * <p>
+ * 时间取自{@link ClockUtil}, 测试时可替换为DummyClock.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 17:00
+ * @Version: 1.0
+ */
+public class SingleFlight<K, V> {
+
+    private final long resultTtlMillis;
+    private final ConcurrentHashMap<K, Call<V>> calls = new ConcurrentHashMap<>();
+
+    private final LongAdder executedCount = new LongAdder();
+    private final LongAdder suppressedCount = new LongAdder();
+    private final LongAdder cachedCount = new LongAdder();
+
+    /**
+     * 不保留结果, 只合并同时进行的调用
+     */
+    public SingleFlight() {
+        this(0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param resultTtl 成功的结果保留多久, 为0时不保留
+     */
+    public SingleFlight(long resultTtl, TimeUnit unit) {
+        Validate.notNull(unit);
+        this.resultTtlMillis = Validate.nonNegative("resultTtl", unit.toMillis(resultTtl));
+    }
+
+    /**
+     * 执行callable, 同一key已有进行中的调用(或未过期的结果)时等待并返回其结果.
+     *
+     * @throws Exception callable抛出的异常, 合并的调用者收到同一个异常
+     */
+    public V execute(K key, Callable<? extends V> callable) throws Exception {
+        Validate.notNull(key);
+        Validate.notNull(callable);
+        for (; ; ) {
+            Call<V> call = calls.get(key);
+            if (call != null) {
+                if (!call.isDone()) {
+                    suppressedCount.increment();
+                    return await(call);
+                }
+                if (!call.isExpired()) {
+                    cachedCount.increment();
+                    return await(call);
+                }
+                calls.remove(key, call);
+            }
+            Call<V> created = new Call<>();
+            if (calls.putIfAbsent(key, created) == null) {
+                return run(key, created, callable);
+            }
+        }
+    }
+
+    /**
+     * 丢弃key上保留的结果, 进行中的调用不受影响, 但之后到达的调用者会重新执行.
+     */
+    public void forget(K key) {
+        calls.remove(key);
+    }
+
+    /**
+     * @return 进行中的调用与保留的结果数
+     */
+    public int size() {
+        return calls.size();
+    }
+
+    /**
+     * @return 实际执行Callable的次数
+     */
+    public long getExecutedCount() {
+        return executedCount.sum();
+    }
+
+    /**
+     * @return 因同一key已有进行中的调用而被合并的调用数
+     */
+    public long getSuppressedCount() {
+        return suppressedCount.sum();
+    }
+
+    /**
+     * @return 直接返回保留结果的调用数
+     */
+    public long getCachedCount() {
+        return cachedCount.sum();
+    }
+
+    private V run(K key, Call<V> call, Callable<? extends V> callable) throws Exception {
+        executedCount.increment();
+        V result;
+        try {
+            result = callable.call();
+        } catch (Throwable t) {
+            // 先移除再完成, 之后到达的调用者重新执行而不会拿到失败的结果
+            calls.remove(key, call);
+            call.completeExceptionally(t);
+            throw t;
+        }
+        if (resultTtlMillis > 0) {
+            call.expireAt = ClockUtil.currentTimeMillis() + resultTtlMillis;
+            call.complete(result);
+            HashedWheelTimer.shared().newTimeout(() -> calls.remove(key, call), resultTtlMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            calls.remove(key, call);
+            call.complete(result);
+        }
+        return result;
+    }
+
+    private V await(Call<V> call) throws Exception {
+        try {
+            return call.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Call<V> extends Promise<V> {
+        // 在complete()之前写入, 完成后对读到完成状态的线程可见
+        long expireAt;
+
+        boolean isExpired() {
+            return expireAt == 0 || ClockUtil.currentTimeMillis() >= expireAt;
+        }
+    }
+}
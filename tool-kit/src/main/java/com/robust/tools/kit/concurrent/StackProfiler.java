@@ -0,0 +1,438 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import com.robust.tools.kit.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: 持续运行的低开销栈采样Profiler, 与{@link ThreadDumper}在失败瞬间的一次性全量Dump互补.
+ * <p>
+ * 1. 只采样线程名匹配前缀的线程(如ThreadPoolBuilder中设置的threadNamePrefix), 通过ThreadMXBean一次取回所选线程的栈,
+ * 不获取锁信息, 匹配的线程id每秒刷新一次.
+ * <p>
+ * 2. 采样结果按帧聚合到一棵前缀树中, 第一层为线程组(匹配的前缀), 节点数达到上限后新的分支被截断到已有的最深节点, 内存有上限.
+ * 深度超过maxDepth的栈只保留栈顶的maxDepth帧, 栈底以{@link #TRUNCATED_FRAME}代替, 不会以栈中间的某一帧作为根.
+ * <p>
+ * 3. 导出为collapsed stack格式(每行"帧1;帧2;...;帧n 次数"), 可直接交给FlameGraph或async-profiler的转换工具生成火焰图,
+ * 写入临时文件后原子替换, 读取方不会看到写了一半的文件.
+ * <p>
+ * 获取栈需要进入safepoint, 采样间隔默认20毫秒, 不宜过小.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 10:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class StackProfiler {
+
+    private static final long REFRESH_THREADS_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 代替超出maxDepth的栈底的帧
+     */
+    public static final String TRUNCATED_FRAME = "[truncated]";
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final String[] threadNamePrefixes;
+    private final long intervalMillis;
+    private final int maxDepth;
+    private final int maxNodes;
+    private final boolean lineNumbers;
+    private final boolean runnableOnly;
+    private final File exportFile;
+    private final long exportIntervalMillis;
+
+    private final Node root = new Node(null);
+    private int nodeCount;
+    private long sampleCount;
+    private long truncatedCount;
+
+    private long[] threadIds = new long[0];
+    private String[] threadGroups = new String[0];
+    private long threadsRefreshedAt;
+    private boolean threadsRefreshed;
+
+    private ScheduledExecutorService scheduler;
+
+    private StackProfiler(Builder builder) {
+        this.threadNamePrefixes = builder.threadNamePrefixes;
+        this.intervalMillis = builder.intervalMillis;
+        this.maxDepth = builder.maxDepth;
+        this.maxNodes = builder.maxNodes;
+        this.lineNumbers = builder.lineNumbers;
+        this.runnableOnly = builder.runnableOnly;
+        this.exportFile = builder.exportFile;
+        this.exportIntervalMillis = builder.exportIntervalMillis;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 启动后台采样线程, 设置了导出文件时同时定时导出
+     */
+    public synchronized void start() {
+        Validate.validState(scheduler == null, "profiler already started");
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                ThreadPoolUtil.buildThreadFactory("stack-profiler", true));
+        scheduler.scheduleWithFixedDelay(this::safeSample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        if (exportFile != null) {
+            scheduler.scheduleWithFixedDelay(this::safeExport, exportIntervalMillis, exportIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 停止采样, 设置了导出文件时最后导出一次
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        ThreadPoolUtil.gracefulShutdown(scheduler, 1000);
+        scheduler = null;
+        if (exportFile != null) {
+            safeExport();
+        }
+    }
+
+    /**
+     * 采样一次所选线程的栈并聚合
+     */
+    public void sample() {
+        synchronized (root) {
+            long now = System.nanoTime();
+            if (!threadsRefreshed || now - threadsRefreshedAt >= REFRESH_THREADS_NANOS) {
+                refreshThreads();
+                threadsRefreshedAt = now;
+                threadsRefreshed = true;
+            }
+            if (threadIds.length == 0) {
+                return;
+            }
+            //多取一帧, 用于判断栈是否超出maxDepth
+            ThreadInfo[] infos = threadMXBean.getThreadInfo(threadIds,
+                    maxDepth == Integer.MAX_VALUE ? maxDepth : maxDepth + 1);
+            for (int i = 0; i < infos.length; i++) {
+                ThreadInfo info = infos[i];
+                //线程已结束
+                if (info == null) {
+                    continue;
+                }
+                if (runnableOnly && info.getThreadState() != Thread.State.RUNNABLE) {
+                    continue;
+                }
+                StackTraceElement[] stack = info.getStackTrace();
+                if (stack.length == 0) {
+                    continue;
+                }
+                add(threadGroups[i], stack);
+            }
+        }
+    }
+
+    /**
+     * 以collapsed stack格式写出聚合结果
+     */
+    public void writeCollapsed(Writer writer) throws IOException {
+        Validate.notNull(writer);
+        synchronized (root) {
+            List<String> path = new ArrayList<>();
+            StringBuilder sb = new StringBuilder(256);
+            for (Node child : root.children.values()) {
+                writeNode(child, path, sb, writer);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * 导出到文件, 先写临时文件再原子替换
+     */
+    public void exportCollapsed(File file) throws IOException {
+        Validate.notNull(file);
+        Path target = file.toPath();
+        Path tmp = target.resolveSibling(file.getName() + ".tmp");
+        try (Writer writer = FileUtil.asBufferedWriter(tmp)) {
+            writeCollapsed(writer);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 清空已聚合的结果, 如每次导出后开始新的统计周期
+     */
+    public void reset() {
+        synchronized (root) {
+            root.children.clear();
+            nodeCount = 0;
+            sampleCount = 0;
+            truncatedCount = 0;
+        }
+    }
+
+    /**
+     * @return 聚合的栈数量
+     */
+    public long getSampleCount() {
+        synchronized (root) {
+            return sampleCount;
+        }
+    }
+
+    /**
+     * @return 因节点数达到上限而被截断的栈数量
+     */
+    public long getTruncatedCount() {
+        synchronized (root) {
+            return truncatedCount;
+        }
+    }
+
+    public int getNodeCount() {
+        synchronized (root) {
+            return nodeCount;
+        }
+    }
+
+    private void safeSample() {
+        try {
+            sample();
+        } catch (Throwable t) {
+            log.warn("stack sampling failed", t);
+        }
+    }
+
+    private void safeExport() {
+        try {
+            exportCollapsed(exportFile);
+        } catch (Throwable t) {
+            log.warn("export collapsed stacks to {} failed", exportFile, t);
+        }
+    }
+
+    private void refreshThreads() {
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0);
+        long self = Thread.currentThread().getId();
+        long[] ids = new long[infos.length];
+        String[] groups = new String[infos.length];
+        int size = 0;
+        for (ThreadInfo info : infos) {
+            if (info == null || info.getThreadId() == self) {
+                continue;
+            }
+            String group = matchGroup(info.getThreadName());
+            if (group != null) {
+                ids[size] = info.getThreadId();
+                groups[size] = group;
+                size++;
+            }
+        }
+        threadIds = Arrays.copyOf(ids, size);
+        threadGroups = Arrays.copyOf(groups, size);
+    }
+
+    /**
+     * 线程组名: 匹配的前缀, 未设置前缀时为去掉末尾编号的线程名
+     */
+    private String matchGroup(String threadName) {
+        if (threadNamePrefixes.length == 0) {
+            int end = threadName.length();
+            while (end > 0 && Character.isDigit(threadName.charAt(end - 1))) {
+                end--;
+            }
+            while (end > 1 && threadName.charAt(end - 1) == '-') {
+                end--;
+            }
+            return end == 0 ? threadName : threadName.substring(0, end);
+        }
+        for (String prefix : threadNamePrefixes) {
+            if (threadName.startsWith(prefix)) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    private void add(String group, StackTraceElement[] stack) {
+        sampleCount++;
+        Node node = child(root, group);
+        if (node == null) {
+            truncatedCount++;
+            return;
+        }
+        //超出maxDepth时栈底不完整, 挂在同一个截断节点下, 与完整的栈区分
+        int depth = stack.length;
+        if (depth > maxDepth) {
+            depth = maxDepth;
+            node = child(node, TRUNCATED_FRAME);
+            if (node == null) {
+                truncatedCount++;
+                return;
+            }
+        }
+        //栈顶在数组头部, 从栈底开始插入
+        for (int i = depth - 1; i >= 0; i--) {
+            Node next = child(node, frameName(stack[i]));
+            if (next == null) {
+                truncatedCount++;
+                break;
+            }
+            node = next;
+        }
+        node.selfCount++;
+    }
+
+    private Node child(Node parent, String frame) {
+        Node node = parent.children.get(frame);
+        if (node == null) {
+            if (nodeCount >= maxNodes) {
+                return null;
+            }
+            node = new Node(frame);
+            parent.children.put(frame, node);
+            nodeCount++;
+        }
+        return node;
+    }
+
+    private String frameName(StackTraceElement element) {
+        String name = element.getClassName() + '.' + element.getMethodName();
+        if (lineNumbers && element.getLineNumber() >= 0) {
+            return name + ':' + element.getLineNumber();
+        }
+        return name;
+    }
+
+    private static void writeNode(Node node, List<String> path, StringBuilder sb, Writer writer) throws IOException {
+        path.add(node.frame);
+        if (node.selfCount > 0) {
+            sb.setLength(0);
+            for (int i = 0; i < path.size(); i++) {
+                if (i > 0) {
+                    sb.append(';');
+                }
+                sb.append(path.get(i));
+            }
+            sb.append(' ').append(node.selfCount).append('\n');
+            writer.write(sb.toString());
+        }
+        for (Node child : node.children.values()) {
+            writeNode(child, path, sb, writer);
+        }
+        path.remove(path.size() - 1);
+    }
+
+    private static final class Node {
+        final String frame;
+        final Map<String, Node> children = new HashMap<>(4);
+        long selfCount;
+
+        Node(String frame) {
+            this.frame = frame;
+        }
+    }
+
+    public static class Builder {
+        private String[] threadNamePrefixes = new String[0];
+        private long intervalMillis = 20;
+        private int maxDepth = 64;
+        private int maxNodes = 100000;
+        private boolean lineNumbers = false;
+        private boolean runnableOnly = false;
+        private File exportFile;
+        private long exportIntervalMillis = TimeUnit.MINUTES.toMillis(1);
+
+        private Builder() {
+        }
+
+        /**
+         * 只采样线程名以这些前缀开头的线程, 默认采样全部线程
+         */
+        public Builder setThreadNamePrefixes(String... threadNamePrefixes) {
+            Validate.noNullElements(threadNamePrefixes);
+            this.threadNamePrefixes = threadNamePrefixes.clone();
+            return this;
+        }
+
+        /**
+         * 采样间隔, 默认20毫秒
+         */
+        public Builder setInterval(long interval, TimeUnit unit) {
+            this.intervalMillis = Validate.positive("interval", unit.toMillis(interval));
+            return this;
+        }
+
+        /**
+         * 每个栈最多采集的帧数(从栈顶算起), 默认64, 更深的栈以{@link StackProfiler#TRUNCATED_FRAME}为根
+         */
+        public Builder setMaxDepth(int maxDepth) {
+            this.maxDepth = Validate.positive("maxDepth", maxDepth);
+            return this;
+        }
+
+        /**
+         * 前缀树的最大节点数, 默认100000
+         */
+        public Builder setMaxNodes(int maxNodes) {
+            this.maxNodes = Validate.positive("maxNodes", maxNodes);
+            return this;
+        }
+
+        /**
+         * 帧是否区分行号, 默认不区分, 区分行号会使节点数大幅增加
+         */
+        public Builder setLineNumbers(boolean lineNumbers) {
+            this.lineNumbers = lineNumbers;
+            return this;
+        }
+
+        /**
+         * 是否只统计RUNNABLE状态的线程(近似CPU火焰图), 默认false, 同时统计阻塞与等待
+         */
+        public Builder setRunnableOnly(boolean runnableOnly) {
+            this.runnableOnly = runnableOnly;
+            return this;
+        }
+
+        /**
+         * 定时导出collapsed stack到该文件, 默认每分钟一次, 结果是累计的
+         */
+        public Builder setExportFile(File exportFile) {
+            this.exportFile = Validate.notNull(exportFile);
+            return this;
+        }
+
+        public Builder setExportInterval(long interval, TimeUnit unit) {
+            this.exportIntervalMillis = Validate.positive("exportInterval", unit.toMillis(interval));
+            return this;
+        }
+
+        public StackProfiler build() {
+            return new StackProfiler(this);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.number.MathUtil;
+import com.robust.tools.kit.text.HashUtil;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * @Description: 分段锁, 提供"每个key一把锁"的语义而不必为每个key创建锁, 参考Guava的Striped.
+ * <p>
+ * 1. 分段数向上取整为2的幂(最大2^30), key的hashCode经{@link HashUtil#mix32(int)}打散后取模, 不同的key可能共用同一段.
+ * <p>
+ * 2. 预先创建的分段锁对象做了Cache Line填充, 相邻分段被不同线程加锁时不会伪共享.
+ * <p>
+ * 3. 懒加载的弱引用版本: 分段在第一次使用时才创建, 没有线程持有时可被GC回收, 适合分段数很大(如百万级)而同时活跃的key较少的场景.
+ * 使用方需在加锁期间持有返回的锁对象的引用(局部变量即可).
+ * <p>
+ * 同时锁多个key时使用{@link #bulkGet(Iterable)}, 按分段下标排序后依次加锁, 避免死锁.
+ * @Author: robust
+ * @CreateDate: 2026/10/20 16:00
+ * @Version: 1.0
+ */
+public abstract class Striped<L> {
+
+    private final int mask;
+
+    private Striped(int stripes) {
+        Validate.positive("stripes", stripes);
+        Validate.isTrue(stripes <= 1 << 30, "stripes must not exceed 2^30: %d", stripes);
+        this.mask = MathUtil.findNextPositivePowerOfTwo(stripes) - 1;
+    }
+
+    /**
+     * 预先创建的分段ReentrantLock
+     */
+    public static Striped<Lock> lock(int stripes) {
+        return new EagerStriped<>(stripes, PaddedLock::new);
+    }
+
+    /**
+     * 懒加载, 弱引用的分段ReentrantLock
+     */
+    public static Striped<Lock> lazyWeakLock(int stripes) {
+        return new LazyStriped<>(stripes, ReentrantLock::new);
+    }
+
+    /**
+     * 预先创建的分段ReentrantReadWriteLock
+     */
+    public static Striped<ReadWriteLock> readWriteLock(int stripes) {
+        return new EagerStriped<>(stripes, PaddedReadWriteLock::new);
+    }
+
+    /**
+     * 懒加载, 弱引用的分段ReentrantReadWriteLock
+     */
+    public static Striped<ReadWriteLock> lazyWeakReadWriteLock(int stripes) {
+        return new LazyStriped<>(stripes, WeakSafeReadWriteLock::new);
+    }
+
+    /**
+     * 预先创建的分段Semaphore, 每段permits个许可
+     */
+    public static Striped<Semaphore> semaphore(int stripes, int permits) {
+        Validate.nonNegative("permits", permits);
+        return new EagerStriped<>(stripes, () -> new PaddedSemaphore(permits));
+    }
+
+    /**
+     * 懒加载, 弱引用的分段Semaphore, 每段permits个许可. 被回收后重新创建的分段许可数恢复为permits.
+     */
+    public static Striped<Semaphore> lazyWeakSemaphore(int stripes, int permits) {
+        Validate.nonNegative("permits", permits);
+        return new LazyStriped<>(stripes, () -> new Semaphore(permits));
+    }
+
+    /**
+     * 预先创建的分段计数器, 计入key所在分段, 同一分段的key共用一个计数.
+     */
+    public static Striped<AtomicLong> counter(int stripes) {
+        return new EagerStriped<>(stripes, PaddedAtomicLong::new);
+    }
+
+    /**
+     * 由supplier创建每个分段的对象
+     */
+    public static <L> Striped<L> custom(int stripes, Supplier<L> supplier) {
+        Validate.notNull(supplier);
+        return new EagerStriped<>(stripes, supplier);
+    }
+
+    /**
+     * @return key对应的分段
+     */
+    public L get(Object key) {
+        return getAt(indexFor(key));
+    }
+
+    /**
+     * @return 下标对应的分段
+     */
+    public abstract L getAt(int index);
+
+    /**
+     * @return key对应的分段下标
+     */
+    public int indexFor(Object key) {
+        return HashUtil.mix32(key.hashCode()) & mask;
+    }
+
+    /**
+     * @return 分段数
+     */
+    public int size() {
+        return mask + 1;
+    }
+
+    /**
+     * 返回多个key对应的分段, 按分段下标排序, 依次加锁可避免死锁. 多个key落在同一分段时会重复出现.
+     */
+    public List<L> bulkGet(Iterable<?> keys) {
+        int[] indexes = new int[16];
+        int size = 0;
+        for (Object key : keys) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = indexFor(key);
+        }
+        Arrays.sort(indexes, 0, size);
+        List<L> stripes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            stripes.add(getAt(indexes[i]));
+        }
+        return stripes;
+    }
+
+    private static final class EagerStriped<L> extends Striped<L> {
+        private final Object[] stripes;
+
+        EagerStriped(int stripes, Supplier<? extends L> supplier) {
+            super(stripes);
+            this.stripes = new Object[size()];
+            for (int i = 0; i < this.stripes.length; i++) {
+                this.stripes[i] = supplier.get();
+            }
+        }
+
+        @Override
+        public L getAt(int index) {
+            // 数组中的元素都由supplier创建
+            @SuppressWarnings("unchecked")
+            L stripe = (L) stripes[index];
+            return stripe;
+        }
+    }
+
+    private static final class LazyStriped<L> extends Striped<L> {
+        private final AtomicReferenceArray<StripeReference<L>> stripes;
+        private final Supplier<? extends L> supplier;
+        private final ReferenceQueue<L> queue = new ReferenceQueue<>();
+
+        LazyStriped(int stripes, Supplier<? extends L> supplier) {
+            super(stripes);
+            this.stripes = new AtomicReferenceArray<>(size());
+            this.supplier = supplier;
+        }
+
+        @Override
+        public L getAt(int index) {
+            StripeReference<L> existing = stripes.get(index);
+            L stripe = existing == null ? null : existing.get();
+            if (stripe != null) {
+                return stripe;
+            }
+            L created = supplier.get();
+            StripeReference<L> reference = new StripeReference<>(created, index, queue);
+            while (!stripes.compareAndSet(index, existing, reference)) {
+                existing = stripes.get(index);
+                stripe = existing == null ? null : existing.get();
+                if (stripe != null) {
+                    return stripe;
+                }
+            }
+            drainQueue();
+            return created;
+        }
+
+        /**
+         * 清理已被回收的分段的引用
+         */
+        private void drainQueue() {
+            Reference<? extends L> polled;
+            while ((polled = queue.poll()) != null) {
+                // 注册到queue的只有StripeReference
+                @SuppressWarnings("unchecked")
+                StripeReference<L> reference = (StripeReference<L>) polled;
+                stripes.compareAndSet(reference.index, reference, null);
+            }
+        }
+    }
+
+    /**
+     * 弱引用分段, 记录下标以便被回收后清理
+     */
+    private static final class StripeReference<L> extends WeakReference<L> {
+        final int index;
+
+        StripeReference(L referent, int index, ReferenceQueue<L> queue) {
+            super(referent, queue);
+            this.index = index;
+        }
+    }
+
+    /*-----------------填充Cache Line的分段对象----------------------------*/
+
+    private static final class PaddedLock extends ReentrantLock {
+        private static final long serialVersionUID = 3914668215402489428L;
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private static final class PaddedReadWriteLock extends ReentrantReadWriteLock {
+        private static final long serialVersionUID = -7772454632731861276L;
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private static final class PaddedSemaphore extends Semaphore {
+        private static final long serialVersionUID = 5640314075276535234L;
+        long p1, p2, p3, p4, p5, p6, p7;
+
+        PaddedSemaphore(int permits) {
+            super(permits);
+        }
+    }
+
+    private static final class PaddedAtomicLong extends AtomicLong {
+        private static final long serialVersionUID = 6020359787720321602L;
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    /*-----------------弱引用安全的ReadWriteLock----------------------------*/
+
+    /**
+     * ReentrantReadWriteLock的读写锁视图不引用外层对象, 调用方只持有readLock()时外层对象可能被回收,
+     * 重新创建的分段与仍被持有的锁不再互斥. 视图与Condition都强引用外层对象.
+     */
+    private static final class WeakSafeReadWriteLock implements ReadWriteLock {
+        private final ReentrantReadWriteLock delegate = new ReentrantReadWriteLock();
+
+        @Override
+        public Lock readLock() {
+            return new WeakSafeLock(delegate.readLock(), this);
+        }
+
+        @Override
+        public Lock writeLock() {
+            return new WeakSafeLock(delegate.writeLock(), this);
+        }
+    }
+
+    private static final class WeakSafeLock implements Lock {
+        private final Lock delegate;
+        private final Object strongReference;
+
+        WeakSafeLock(Lock delegate, Object strongReference) {
+            this.delegate = delegate;
+            this.strongReference = strongReference;
+        }
+
+        @Override
+        public void lock() {
+            delegate.lock();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            delegate.lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLock() {
+            return delegate.tryLock();
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return delegate.tryLock(time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            delegate.unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            return new WeakSafeCondition(delegate.newCondition(), strongReference);
+        }
+    }
+
+    private static final class WeakSafeCondition implements Condition {
+        private final Condition delegate;
+        private final Object strongReference;
+
+        WeakSafeCondition(Condition delegate, Object strongReference) {
+            this.delegate = delegate;
+            this.strongReference = strongReference;
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            delegate.await();
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            delegate.awaitUninterruptibly();
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            return delegate.awaitNanos(nanosTimeout);
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            return delegate.await(time, unit);
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            return delegate.awaitUntil(deadline);
+        }
+
+        @Override
+        public void signal() {
+            delegate.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            delegate.signalAll();
+        }
+    }
+}
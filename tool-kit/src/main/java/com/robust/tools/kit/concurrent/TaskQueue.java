@@ -1,28 +1,44 @@
 package com.robust.tools.kit.concurrent;
 
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.collection.QueueUtil;
 import com.robust.tools.kit.concurrent.threadpool.QueuableCachedThreadPool;
 
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 /**
  * @Description: copy from tomcat 8.5.x
  * <p>
  * https://github.com/apache/tomcat/blob/8.5.x/java/org/apache/tomcat/util/threads/TaskQueue.java
+ * <p>
+ * 改为转发到内部的BlockingQueue, 默认为LinkedBlockingQueue, 也可使用{@link QueueUtil#newBlockingMpmcArrayQueue(int)}等无锁队列.
  * @Author: robust
  * @CreateDate: 2019/8/5 9:48
  * @Version: 1.0
  */
-public class TaskQueue extends LinkedBlockingQueue<Runnable> {
+public class TaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
 
-    private static final long serialVersionUID = 7983389165001386578L;
+    private final BlockingQueue<Runnable> delegate;
 
-    private transient volatile QueuableCachedThreadPool parent = null;
+    private volatile QueuableCachedThreadPool parent = null;
 
     public TaskQueue(int capacity) {
-        super(capacity);
+        this(new LinkedBlockingQueue<>(capacity));
+    }
+
+    /**
+     * @param delegate 实际存放任务的队列, 需支持多生产者多消费者
+     */
+    public TaskQueue(BlockingQueue<Runnable> delegate) {
+        this.delegate = Validate.notNull(delegate);
     }
 
     public void setParent(QueuableCachedThreadPool pool) {
@@ -33,28 +49,104 @@ public class TaskQueue extends LinkedBlockingQueue<Runnable> {
         if (parent.isShutdown()) {
             throw new RejectedExecutionException("Executor not running, can't force a command into the queue.");
         }
-        return super.offer(runnable);// forces the item onto the queue, to be used if the task is rejected
+        return delegate.offer(runnable);// forces the item onto the queue, to be used if the task is rejected
     }
 
     public boolean force(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
         if (parent.isShutdown()) {
             throw new RejectedExecutionException("Executor not running, can't force a command into the queue");
         }
-        return super.offer(runnable, timeout, unit); // forces the item onto the queue, to be used if the task is rejected
+        return delegate.offer(runnable, timeout, unit); // forces the item onto the queue, to be used if the task is rejected
     }
 
+    @Override
     public boolean offer(Runnable o) {
         /**
          * {@link ThreadPoolExecutor#getPoolSize()} 是个有锁操作，尽量减少
          */
         int currentPoolSize = parent.getPoolSize();
         //we are maxed out on threads, simply queue the object
-        if (currentPoolSize >= parent.getMaximumPoolSize()) return super.offer(o);
+        if (currentPoolSize >= parent.getMaximumPoolSize()) return delegate.offer(o);
         //we have idle threads, just add it to the queue
-        if (parent.getSubmittedCount() <= currentPoolSize) return super.offer(o);
+        if (parent.getSubmittedCount() <= currentPoolSize) return delegate.offer(o);
         //if we have less threads than maximum force creation of a new thread
         if (currentPoolSize < parent.getMaximumPoolSize()) return false;
         //if we reached here, we need to add it to the queue
-        return super.offer(o);
+        return delegate.offer(o);
+    }
+
+    @Override
+    public Runnable poll() {
+        return delegate.poll();
+    }
+
+    @Override
+    public Runnable peek() {
+        return delegate.peek();
+    }
+
+    @Override
+    public void put(Runnable runnable) throws InterruptedException {
+        delegate.put(runnable);
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.offer(runnable, timeout, unit);
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        return delegate.take();
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.poll(timeout, unit);
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return delegate.remainingCapacity();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return delegate.remove(o);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super Runnable> filter) {
+        return delegate.removeIf(filter);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return delegate.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        return delegate.retainAll(c);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return delegate.drainTo(c);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        return delegate.drainTo(c, maxElements);
+    }
+
+    @Override
+    public Iterator<Runnable> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
     }
 }
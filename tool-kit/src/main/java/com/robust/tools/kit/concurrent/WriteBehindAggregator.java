@@ -0,0 +1,295 @@
+package com.robust.tools.kit.concurrent;
+
+import com.google.common.util.concurrent.AtomicLongMap;
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.collection.type.MoreMaps;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolBuilder;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * @Description: 延迟写(write-behind)的计数聚合器, 在内存中累加按key的计数, 定期把汇总结果交给flushHandler持久化,
+ * 把百万次逐条写入变为每个周期每个key一次写入.
+ * <p>
+ * 1. 计数存放在按key分段的{@link MoreMaps#createConcurrentCounterMap()}中, 分段由{@link Striped}选择.
+ * 写入方持有分段的读锁, 同一分段的写入互不阻塞.
+ * <p>
+ * 2. flush时逐个分段持有写锁, 把当前的Map换为空Map, 交换后立即释放, 写入方只在交换的瞬间等待.
+ * 换下的快照合并后在flush线程中交给flushHandler, flushHandler的耗时不影响写入.
+ * <p>
+ * 3. flush的时机: 定期(默认10秒), key数达到阈值时(由写入方通知flush线程, 不在写入线程中执行), 调用{@link #flush()}, 以及shutdown()时.
+ * <p>
+ * 4. 除了累加计数的add(), 也支持覆盖写入的put(), 用于"最新值"语义的upsert.
+ * <p>
+ * flushHandler抛出异常时该快照被丢弃并计入失败次数, 需要可靠持久化时应在flushHandler中自行重试.
+ * <pre>
+ * WriteBehindAggregator&lt;String&gt; pv = WriteBehindAggregator.&lt;String&gt;builder(snapshot -&gt; dao.incrementAll(snapshot))
+ *         .setFlushInterval(30, TimeUnit.SECONDS).setMaxKeys(100000).build();
+ * pv.increment(url);
+ * </pre>
+ * @Author: robust
+ * @CreateDate: 2026/10/20 21:00
+ * @Version: 1.0
+ */
+@Slf4j
+public class WriteBehindAggregator<K> {
+
+    private final Consumer<Map<K, Long>> flushHandler;
+    private final int maxKeysPerStripe;
+    private final Striped<ReadWriteLock> locks;
+    private final AtomicReferenceArray<AtomicLongMap<K>> maps;
+    private final ScheduledThreadPoolExecutor flusher;
+
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean shutdown = false;
+
+    private final LongAdder updateCount = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder flushedKeyCount = new LongAdder();
+    private final LongAdder failedFlushCount = new LongAdder();
+
+    private WriteBehindAggregator(Builder<K> builder) {
+        this.flushHandler = builder.flushHandler;
+        this.locks = Striped.readWriteLock(builder.stripes);
+        this.maxKeysPerStripe = Math.max(1, builder.maxKeys / locks.size());
+        this.maps = new AtomicReferenceArray<>(locks.size());
+        for (int i = 0; i < maps.length(); i++) {
+            maps.set(i, MoreMaps.createConcurrentCounterMap());
+        }
+        this.flusher = ThreadPoolBuilder.scheduledPool().setThreadNamePrefix(builder.threadNamePrefix).build();
+        flusher.scheduleWithFixedDelay(this::safeFlush, builder.flushIntervalMillis, builder.flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param flushHandler 接收每个周期汇总的快照, 在flush线程中执行, 快照为新建的Map, 可以持有
+     */
+    public static <K> Builder<K> builder(Consumer<Map<K, Long>> flushHandler) {
+        return new Builder<>(flushHandler);
+    }
+
+    public void increment(K key) {
+        add(key, 1);
+    }
+
+    /**
+     * 累加key的计数
+     *
+     * @throws IllegalStateException 已关闭
+     */
+    public void add(K key, long delta) {
+        Validate.notNull(key);
+        int index = locks.indexFor(key);
+        Lock lock = locks.getAt(index).readLock();
+        lock.lock();
+        try {
+            checkNotShutdown();
+            AtomicLongMap<K> map = maps.get(index);
+            map.addAndGet(key, delta);
+            afterUpdate(map);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 覆盖key的值, 同一周期内之前累加的计数被丢弃
+     *
+     * @throws IllegalStateException 已关闭
+     */
+    public void put(K key, long value) {
+        Validate.notNull(key);
+        int index = locks.indexFor(key);
+        Lock lock = locks.getAt(index).readLock();
+        lock.lock();
+        try {
+            checkNotShutdown();
+            AtomicLongMap<K> map = maps.get(index);
+            map.put(key, value);
+            afterUpdate(map);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 立即在调用者线程中flush, 与定期flush互斥.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            Map<K, Long> snapshot = new HashMap<>();
+            for (int i = 0; i < maps.length(); i++) {
+                AtomicLongMap<K> swapped;
+                Lock lock = locks.getAt(i).writeLock();
+                lock.lock();
+                try {
+                    swapped = maps.get(i);
+                    if (swapped.isEmpty()) {
+                        continue;
+                    }
+                    maps.set(i, MoreMaps.createConcurrentCounterMap());
+                } finally {
+                    lock.unlock();
+                }
+                // 同一个key总在同一分段, 各分段的key不重复
+                snapshot.putAll(swapped.asMap());
+            }
+            if (snapshot.isEmpty()) {
+                return;
+            }
+            flushCount.increment();
+            flushedKeyCount.add(snapshot.size());
+            try {
+                flushHandler.accept(snapshot);
+            } catch (Throwable t) {
+                failedFlushCount.increment();
+                log.error("Unexpected error occurred in flush handler, " + snapshot.size() + " keys dropped", t);
+            }
+        }
+    }
+
+    /**
+     * 不再接受写入, 停止定期flush, 在调用者线程中flush剩余的数据.
+     *
+     * @param timeout 等待进行中的flush结束的时间
+     */
+    public void shutdown(int timeout, TimeUnit unit) {
+        // 取全部写锁, 保证之后不会有写入进入已换下的Map
+        for (int i = 0; i < maps.length(); i++) {
+            Lock lock = locks.getAt(i).writeLock();
+            lock.lock();
+            try {
+                shutdown = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        ThreadPoolUtil.gracefulShutdown(flusher, timeout, unit);
+        flush();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * @return 尚未flush的key数
+     */
+    public long getPendingKeyCount() {
+        long count = 0;
+        for (int i = 0; i < maps.length(); i++) {
+            count += maps.get(i).size();
+        }
+        return count;
+    }
+
+    /**
+     * @return add()/put()的调用次数, 与flush的key数之比即为合并的倍数
+     */
+    public long getUpdateCount() {
+        return updateCount.sum();
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getFlushedKeyCount() {
+        return flushedKeyCount.sum();
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushCount.sum();
+    }
+
+    private void checkNotShutdown() {
+        if (shutdown) {
+            throw new IllegalStateException("WriteBehindAggregator has been shutdown");
+        }
+    }
+
+    private void afterUpdate(AtomicLongMap<K> map) {
+        updateCount.increment();
+        // key数达到阈值时通知flush线程, 多次通知只执行一次
+        if (map.size() >= maxKeysPerStripe && flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::safeFlush);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 保证定期任务不会因为异常而停止
+     */
+    private void safeFlush() {
+        try {
+            flush();
+        } catch (Throwable t) {
+            log.error("Unexpected error occurred in write-behind flush", t);
+        }
+    }
+
+    public static class Builder<K> {
+        private final Consumer<Map<K, Long>> flushHandler;
+        private long flushIntervalMillis = 10000;
+        private int maxKeys = 100000;
+        private int stripes = 16;
+        private String threadNamePrefix = "write-behind";
+
+        private Builder(Consumer<Map<K, Long>> flushHandler) {
+            this.flushHandler = Validate.notNull(flushHandler);
+        }
+
+        /**
+         * 定期flush的间隔, 默认10秒
+         */
+        public Builder<K> setFlushInterval(long interval, TimeUnit unit) {
+            this.flushIntervalMillis = Validate.positive("flushInterval", unit.toMillis(interval));
+            return this;
+        }
+
+        /**
+         * 未flush的key数达到该值时提前flush, 按分段平均计算, 默认100000
+         */
+        public Builder<K> setMaxKeys(int maxKeys) {
+            this.maxKeys = Validate.positive("maxKeys", maxKeys);
+            return this;
+        }
+
+        /**
+         * 分段数, 向上取整为2的幂, 默认16
+         */
+        public Builder<K> setStripes(int stripes) {
+            this.stripes = Validate.positive("stripes", stripes);
+            return this;
+        }
+
+        /**
+         * flush线程名前缀, 默认write-behind
+         */
+        public Builder<K> setThreadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = Validate.notBlank(threadNamePrefix);
+            return this;
+        }
+
+        public WriteBehindAggregator<K> build() {
+            return new WriteBehindAggregator<>(this);
+        }
+    }
+}
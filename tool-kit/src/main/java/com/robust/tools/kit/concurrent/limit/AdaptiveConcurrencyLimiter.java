@@ -0,0 +1,348 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.base.annotation.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @Description: 根据观测到的RTT自适应调整并发上限的限流器, 参考Netflix concurrency-limits.
+ * <p>
+ * 信号量或QPS限流的静态阈值, 不是太低浪费容量, 就是太高在下游变慢时堆积请求. 本限流器以"在途请求数"为限制对象,
+ * 每个请求结束时把RTT与是否被丢弃作为样本, 由{@link LimitAlgorithm}(AIMD, Vegas, Gradient)调整上限:
+ * 下游变慢时RTT上升, 上限随之下降, 多出的请求直接被拒绝(快速失败)而不是排队.
+ * <p>
+ * 使用方式:
+ * <pre>
+ * AdaptiveConcurrencyLimiter.Listener listener = limiter.tryAcquire();
+ * if (listener == null) {
+ *     // 被限流, 快速失败
+ * }
+ * try {
+ *     call();
+ *     listener.onSuccess();
+ * } catch (TimeoutException e) {
+ *     listener.onDropped();
+ * } catch (Exception e) {
+ *     listener.onIgnore();
+ * }
+ * </pre>
+ * <p>
+ * 开销: 获取时一次CAS, 结束时一次CAS与一次原子减. 算法的更新由锁保护, 因此算法实现本身无需线程安全.
+ * 成功的样本用tryLock, 其他线程正在更新时直接丢弃而不等待, 热路径上没有阻塞; 被丢弃的样本是过载信号, 必须等待锁后计入.
+ * <p>
+ * Listener重复结束时只有第一次生效, 不会重复释放许可.
+ * <p>
+ * https://github.com/Netflix/concurrency-limits
+ * @Author: robust
+ * @CreateDate: 2026/10/19 20:20
+ * @Version: 1.0
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final AtomicIntegerFieldUpdater<Listener> RELEASED =
+            AtomicIntegerFieldUpdater.newUpdater(Listener.class, "released");
+
+    private final LimitAlgorithm algorithm;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final LongAdder rejectedCount = new LongAdder();
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm) {
+        Validate.notNull(algorithm);
+        this.algorithm = algorithm;
+        this.limit = algorithm.getLimit();
+    }
+
+    /**
+     * 尝试获取一个并发许可.
+     *
+     * @return 在途请求已达上限时返回null, 否则返回Listener, 请求结束时必须调用其中一个方法释放许可
+     */
+    @Nullable
+    public Listener tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejectedCount.increment();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return new Listener(System.nanoTime(), current + 1);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return 因超过并发上限被拒绝的次数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private void onSample(long startTime, long rtt, int inFlightAtStart, boolean didDrop) {
+        if (didDrop) {
+            updateLock.lock();
+        } else if (!updateLock.tryLock()) {
+            return;
+        }
+        try {
+            limit = algorithm.onSample(startTime, rtt, inFlightAtStart, didDrop);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * 请求结束时的回调, 三个方法只应调用其中一个, 重复调用被忽略.
+     */
+    public final class Listener {
+        private final long startTime;
+        private final int inFlightAtStart;
+        // 由RELEASED更新, 为1时已结束
+        volatile int released;
+
+        private Listener(long startTime, int inFlightAtStart) {
+            this.startTime = startTime;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * 请求成功, RTT作为样本参与上限调整
+         */
+        public void onSuccess() {
+            if (!release()) {
+                return;
+            }
+            onSample(startTime, System.nanoTime() - startTime, inFlightAtStart, false);
+        }
+
+        /**
+         * 请求被下游丢弃或超时, 是过载的信号, 算法将降低上限
+         */
+        public void onDropped() {
+            if (!release()) {
+                return;
+            }
+            onSample(startTime, System.nanoTime() - startTime, inFlightAtStart, true);
+        }
+
+        /**
+         * 请求失败但与负载无关(如参数错误), 只释放许可, 不作为样本
+         */
+        public void onIgnore() {
+            release();
+        }
+
+        private boolean release() {
+            if (!RELEASED.compareAndSet(this, 0, 1)) {
+                return false;
+            }
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * 并发上限的调整算法, 由限流器保证单线程调用.
+     */
+    public interface LimitAlgorithm {
+
+        int getLimit();
+
+        /**
+         * @param startTime       请求开始的nanoTime
+         * @param rtt             请求耗时, 单位纳秒
+         * @param inFlightAtStart 请求开始时的在途请求数
+         * @param didDrop         请求是否被丢弃
+         * @return 新的并发上限
+         */
+        int onSample(long startTime, long rtt, int inFlightAtStart, boolean didDrop);
+
+        /**
+         * 加性增, 乘性减. 被丢弃或RTT超过timeout时上限乘以backoffRatio, 否则在途请求较多时上限加1.
+         */
+        static LimitAlgorithm aimd(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                   long timeout, TimeUnit unit) {
+            return new AimdLimit(initialLimit, minLimit, maxLimit, backoffRatio, unit.toNanos(timeout));
+        }
+
+        /**
+         * TCP Vegas: 以最小RTT估计无排队时的耗时, 推算下游的排队长度, 排队少时增加上限, 排队多时降低上限.
+         */
+        static LimitAlgorithm vegas(int initialLimit, int maxLimit) {
+            return new VegasLimit(initialLimit, maxLimit);
+        }
+
+        /**
+         * 以长期RTT均值与当前RTT的比值(梯度)调整上限, 对RTT的缓慢漂移不敏感.
+         */
+        static LimitAlgorithm gradient(int initialLimit, int minLimit, int maxLimit) {
+            return new GradientLimit(initialLimit, minLimit, maxLimit);
+        }
+    }
+
+    static class AimdLimit implements LimitAlgorithm {
+        private final int minLimit;
+        private final int maxLimit;
+        private final double backoffRatio;
+        private final long timeoutNanos;
+        private int limit;
+
+        AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long timeoutNanos) {
+            Validate.isTrue(minLimit >= 1 && minLimit <= initialLimit && initialLimit <= maxLimit,
+                    "require 1 <= minLimit <= initialLimit <= maxLimit");
+            Validate.isTrue(backoffRatio > 0 && backoffRatio < 1, "backoffRatio must be in (0, 1)");
+            this.limit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        public int getLimit() {
+            return limit;
+        }
+
+        @Override
+        public int onSample(long startTime, long rtt, int inFlightAtStart, boolean didDrop) {
+            if (didDrop || rtt > timeoutNanos) {
+                limit = Math.max(minLimit, (int) (limit * backoffRatio));
+            } else if (inFlightAtStart * 2 >= limit) {
+                // 在途请求不足上限一半时说明并未用满, 不增加
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            return limit;
+        }
+    }
+
+    static class VegasLimit implements LimitAlgorithm {
+        // 每隔约probeMultiplier * limit个样本重新探测最小RTT, 避免下游永久变慢后仍用旧的最小RTT
+        private static final int PROBE_MULTIPLIER = 30;
+
+        private final int maxLimit;
+        private double limit;
+        private long rttNoLoad = 0;
+        private long sampleCount = 0;
+
+        VegasLimit(int initialLimit, int maxLimit) {
+            Validate.isTrue(initialLimit >= 1 && initialLimit <= maxLimit, "require 1 <= initialLimit <= maxLimit");
+            this.limit = initialLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        @Override
+        public int getLimit() {
+            return (int) limit;
+        }
+
+        @Override
+        public int onSample(long startTime, long rtt, int inFlightAtStart, boolean didDrop) {
+            if (rtt <= 0) {
+                return (int) limit;
+            }
+            if (++sampleCount >= PROBE_MULTIPLIER * (long) limit) {
+                sampleCount = 0;
+                rttNoLoad = rtt;
+                return (int) limit;
+            }
+            if (rttNoLoad == 0 || rtt < rttNoLoad) {
+                rttNoLoad = rtt;
+                return (int) limit;
+            }
+
+            double log10 = Math.max(1, Math.log10(limit));
+            double newLimit;
+            if (didDrop) {
+                newLimit = limit - log10;
+            } else if (inFlightAtStart * 2 < limit) {
+                // 未用满上限时不增加
+                return (int) limit;
+            } else {
+                // 估算的下游排队长度
+                double queueSize = Math.ceil(limit * (1 - (double) rttNoLoad / rtt));
+                double alpha = 3 * log10;
+                double beta = 6 * log10;
+                if (queueSize <= log10) {
+                    newLimit = limit + beta;
+                } else if (queueSize < alpha) {
+                    newLimit = limit + log10;
+                } else if (queueSize > beta) {
+                    newLimit = limit - log10;
+                } else {
+                    return (int) limit;
+                }
+            }
+            limit = Math.max(1, Math.min(maxLimit, newLimit));
+            return (int) limit;
+        }
+    }
+
+    static class GradientLimit implements LimitAlgorithm {
+        // 长期RTT的指数平均窗口
+        private static final int LONG_WINDOW = 600;
+        // 容忍长期RTT的2倍
+        private static final double RTT_TOLERANCE = 2.0;
+        private static final double SMOOTHING = 0.2;
+
+        private final int minLimit;
+        private final int maxLimit;
+        private double limit;
+        private double longRtt = 0;
+        private int warmupCount = 0;
+
+        GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+            Validate.isTrue(minLimit >= 1 && minLimit <= initialLimit && initialLimit <= maxLimit,
+                    "require 1 <= minLimit <= initialLimit <= maxLimit");
+            this.limit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        @Override
+        public int getLimit() {
+            return (int) limit;
+        }
+
+        @Override
+        public int onSample(long startTime, long rtt, int inFlightAtStart, boolean didDrop) {
+            if (rtt <= 0) {
+                return (int) limit;
+            }
+            // 预热期用算术平均, 之后用指数平均
+            if (warmupCount < 10) {
+                warmupCount++;
+                longRtt = longRtt + (rtt - longRtt) / warmupCount;
+            } else {
+                longRtt = longRtt * (LONG_WINDOW - 1) / LONG_WINDOW + (double) rtt / LONG_WINDOW;
+            }
+            if (!didDrop && inFlightAtStart * 2 < limit) {
+                // 未用满上限时不调整
+                return (int) limit;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / rtt));
+            if (didDrop) {
+                gradient = 0.5;
+            }
+            // 预留sqrt(limit)的排队空间, 使上限在RTT稳定时仍能缓慢增长
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            return (int) limit;
+        }
+    }
+}
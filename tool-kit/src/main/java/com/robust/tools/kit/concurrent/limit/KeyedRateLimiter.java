@@ -0,0 +1,286 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.number.MathUtil;
+import com.robust.tools.kit.text.HashUtil;
+import com.robust.tools.kit.time.ClockUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: 按key独立限流的令牌桶, 用于百万级用户/IP的限流, 内存有上限.
+ * <p>
+ * 每个key一个{@link TokenBucketRateLimiter}对象, key多时内存与GC都无法承受, 还需要额外的过期清理.
+ * 本类把每个key的状态压缩为两个long: key本身与"令牌被取空的理论时间点"(GCRA, 同TokenBucketRateLimiter),
+ * 全部存放在一个开放寻址(线性探测)的AtomicLongArray中, tryAcquire只有数组读与一次CAS, 不分配任何对象.
+ * <p>
+ * 过期: 桶重新装满的key与新key等价, 其槽位可直接被其他key接管, 无需后台清理线程.
+ * 探测maxProbes个槽位仍找不到空闲或过期槽位时, 淘汰其中最接近装满的key, 并计入淘汰数.
+ * 因此容量是内存的硬上限, 容量不足时的代价只是少量key被放宽限制.
+ * <p>
+ * 接管槽位分三步: 先把key CAS为占用标记, 再把状态重置为满桶, 最后写入新key. 新key只会看到重置后的状态,
+ * 原key在占用标记写入后重新查找, 它在此之前读到的旧状态也因重置而CAS失败.
+ * <p>
+ * 与占用标记及空槽位相同的两个key值不进入表中, 由两个独立的状态单独限流, 不与其他key混淆.
+ * <p>
+ * 近似性: 为保持无锁, 并发首次访问同一key时可能短暂占用两个槽位, 被淘汰的key重新进入时也是满桶,
+ * 都只会让个别请求多放行, 不会误拒绝. 字符串key逐个字符散列为long(FNV-1a再经mix64打散), 不编码也不分配对象,
+ * 理论上存在哈希碰撞.
+ * <p>
+ * 时间取自{@link ClockUtil#nanoTime()}, 测试时可替换为DummyClock.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 22:10
+ * @Version: 1.0
+ */
+public class KeyedRateLimiter {
+
+    private static final long EMPTY = 0L;
+    // 槽位正在被接管
+    private static final long CLAIMED = Long.MIN_VALUE;
+    private static final int DEFAULT_MAX_PROBES = 16;
+
+    private final double permitsPerSecond;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int mask;
+    private final int maxProbes;
+    // 槽位i的key在2i, 令牌被取空的时间点在2i+1
+    private final AtomicLongArray table;
+    // key为EMPTY与CLAIMED时的状态
+    private final AtomicLongArray reservedStates = new AtomicLongArray(2);
+    private final long origin;
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param permitsPerSecond 每个key每秒发放的令牌数
+     * @param maxBurst         每个key的桶容量, 即闲时能积累的最大令牌数
+     * @param capacity         最多同时跟踪的活跃key数, 向上取整为2的幂, 内存为capacity * 16字节
+     */
+    public KeyedRateLimiter(double permitsPerSecond, int maxBurst, int capacity) {
+        Validate.positive("permitsPerSecond", permitsPerSecond);
+        Validate.positive("maxBurst", maxBurst);
+        Validate.positive("capacity", capacity);
+        this.permitsPerSecond = permitsPerSecond;
+        this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = maxBurst * intervalNanos;
+        int size = MathUtil.findNextPositivePowerOfTwo(capacity);
+        this.mask = size - 1;
+        this.maxProbes = Math.min(DEFAULT_MAX_PROBES, size);
+        this.table = new AtomicLongArray(size * 2);
+        // 保证now()总大于burstNanos, 使初始为0的时间点表示满桶
+        this.origin = ClockUtil.nanoTime() - burstNanos - 1;
+    }
+
+    public boolean tryAcquire(long key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * 非阻塞获取key的permits个令牌, 令牌不足时立即返回false, 不预支.
+     */
+    public boolean tryAcquire(long key, int permits) {
+        Validate.positive("permits", permits);
+        long cost = permits * intervalNanos;
+        int reserved = reservedIndex(key);
+        if (reserved >= 0) {
+            for (; ; ) {
+                long now = now();
+                long current = reservedStates.get(reserved);
+                long next = Math.max(current, now - burstNanos) + cost;
+                if (next > now) {
+                    return false;
+                }
+                if (reservedStates.compareAndSet(reserved, current, next)) {
+                    return true;
+                }
+            }
+        }
+        for (; ; ) {
+            long now = now();
+            int slot = findOrClaim(key, now);
+            int stateIndex = (slot << 1) + 1;
+            long current = table.get(stateIndex);
+            if (table.get(slot << 1) != key) {
+                // 刚好被其他key接管, 重新查找
+                continue;
+            }
+            long next = Math.max(current, now - burstNanos) + cost;
+            if (next > now) {
+                return false;
+            }
+            if (table.compareAndSet(stateIndex, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean tryAcquire(String key) {
+        return tryAcquire(hash(key), 1);
+    }
+
+    public boolean tryAcquire(String key, int permits) {
+        return tryAcquire(hash(key), permits);
+    }
+
+    /**
+     * 直接按char散列, 避免murmur128AsLong的Hasher与UTF-8编码在每次调用时分配对象
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, length = key.length(); i < length; i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return HashUtil.mix64(h);
+    }
+
+    /**
+     * @return key当前可用的令牌数(近似值), 未跟踪的key返回桶容量
+     */
+    public long availablePermits(long key) {
+        long now = now();
+        long emptyAt = now - burstNanos;
+        int reserved = reservedIndex(key);
+        if (reserved >= 0) {
+            emptyAt = Math.max(emptyAt, reservedStates.get(reserved));
+            return Math.max(0L, (now - emptyAt) / intervalNanos);
+        }
+        int start = (int) HashUtil.mix64(key) & mask;
+        for (int probe = 0; probe < maxProbes; probe++) {
+            int slot = (start + probe) & mask;
+            long slotKey = table.get(slot << 1);
+            if (slotKey == key) {
+                emptyAt = Math.max(emptyAt, table.get((slot << 1) + 1));
+                break;
+            }
+            if (slotKey == EMPTY) {
+                break;
+            }
+        }
+        return Math.max(0L, (now - emptyAt) / intervalNanos);
+    }
+
+    /**
+     * 遍历整个表统计未过期的key数, 用于监控, 不要频繁调用.
+     */
+    public int size() {
+        long expiredBefore = now() - burstNanos;
+        int size = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            long slotKey = table.get(slot << 1);
+            if (slotKey != EMPTY && slotKey != CLAIMED && table.get((slot << 1) + 1) > expiredBefore) {
+                size++;
+            }
+        }
+        for (int i = 0; i < reservedStates.length(); i++) {
+            if (reservedStates.get(i) > expiredBefore) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return 因容量不足而被淘汰的活跃key数, 持续增长时应增大容量
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public double getRate() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * 在探测序列中查找key, 找不到时依次尝试接管第一个过期槽位, 空槽位, 或淘汰最接近满桶的槽位.
+     * <p>
+     * 槽位的key只会被替换而不会清空, 因此遇到空槽位即可确定key不在表中.
+     */
+    private int findOrClaim(long key, long now) {
+        long expiredBefore = now - burstNanos;
+        int start = (int) HashUtil.mix64(key) & mask;
+        for (; ; ) {
+            int expiredSlot = -1;
+            long expiredKey = EMPTY;
+            int emptySlot = -1;
+            int oldestSlot = -1;
+            long oldestKey = EMPTY;
+            long oldestEmptyAt = Long.MAX_VALUE;
+            for (int probe = 0; probe < maxProbes; probe++) {
+                int slot = (start + probe) & mask;
+                long slotKey = table.get(slot << 1);
+                if (slotKey == key) {
+                    return slot;
+                }
+                if (slotKey == EMPTY) {
+                    emptySlot = slot;
+                    break;
+                }
+                if (slotKey == CLAIMED) {
+                    continue;
+                }
+                long emptyAt = table.get((slot << 1) + 1);
+                if (emptyAt <= expiredBefore) {
+                    if (expiredSlot < 0) {
+                        expiredSlot = slot;
+                        expiredKey = slotKey;
+                    }
+                } else if (emptyAt < oldestEmptyAt) {
+                    oldestEmptyAt = emptyAt;
+                    oldestSlot = slot;
+                    oldestKey = slotKey;
+                }
+            }
+
+            if (expiredSlot >= 0) {
+                if (takeOver(expiredSlot, expiredKey, key, expiredBefore)) {
+                    return expiredSlot;
+                }
+            } else if (emptySlot >= 0) {
+                // 从未使用过的槽位状态为初始值, 没有旧key竞争
+                if (table.compareAndSet(emptySlot << 1, EMPTY, key)) {
+                    return emptySlot;
+                }
+            } else if (oldestSlot >= 0) {
+                if (takeOver(oldestSlot, oldestKey, key, expiredBefore)) {
+                    evictionCount.increment();
+                    return oldestSlot;
+                }
+            } else {
+                // 探测范围内的槽位都在被接管, 稍后重试
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * 先占用槽位, 重置状态后再发布新key, 保证新key不会读到旧key的状态.
+     *
+     * @param fullAt 满桶的时间点, 总大于0, 与从未使用过的槽位的初始状态不同, 使旧key持有的初始状态CAS失败
+     */
+    private boolean takeOver(int slot, long oldKey, long key, long fullAt) {
+        if (!table.compareAndSet(slot << 1, oldKey, CLAIMED)) {
+            return false;
+        }
+        table.set((slot << 1) + 1, fullAt);
+        table.set(slot << 1, key);
+        return true;
+    }
+
+    /**
+     * @return 与空槽位或占用标记相同的key在reservedStates中的下标, 其他key返回-1
+     */
+    private static int reservedIndex(long key) {
+        return key == EMPTY ? 0 : key == CLAIMED ? 1 : -1;
+    }
+
+    private long now() {
+        return ClockUtil.nanoTime() - origin;
+    }
+}
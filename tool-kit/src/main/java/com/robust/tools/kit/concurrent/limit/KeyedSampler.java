@@ -0,0 +1,64 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.number.MathUtil;
+import com.robust.tools.kit.text.HashUtil;
+import com.robust.tools.kit.time.ClockUtil;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @Description: 按key限速的采样器, 每个key每秒最多命中N次, 避免个别热点接口占满全部采样配额, 冷门接口却没有样本.
+ * <p>
+ * 与{@link Sampler.RateBoundedSampler}相同, 每个key的状态是一个long(高32位为当前秒, 低32位为本秒已命中次数),
+ * 按key的哈希分散到固定大小的AtomicLongArray中, 内存固定, select()只有数组读与一次CAS, 不分配对象.
+ * <p>
+ * 哈希冲突的key共用同一份配额, 槽位数应为key数的数倍. 对象key使用其hashCode(), String的hashCode已缓存.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 23:00
+ * @Version: 1.0
+ */
+public class KeyedSampler {
+
+    private final int samplesPerSecond;
+    private final int mask;
+    private final AtomicLongArray states;
+
+    /**
+     * @param samplesPerSecond 每个key每秒最多命中次数
+     * @param slots            槽位数, 向上取整为2的幂
+     */
+    public KeyedSampler(int samplesPerSecond, int slots) {
+        this.samplesPerSecond = Validate.positive("samplesPerSecond", samplesPerSecond);
+        int size = MathUtil.findNextPositivePowerOfTwo(Validate.positive("slots", slots));
+        this.mask = size - 1;
+        this.states = new AtomicLongArray(size);
+    }
+
+    public boolean select(Object key) {
+        return select(key.hashCode());
+    }
+
+    public boolean select(long key) {
+        int index = (int) HashUtil.mix64(key) & mask;
+        long second = ClockUtil.currentTimeMillis() / 1000;
+        for (; ; ) {
+            long current = states.get(index);
+            long next;
+            if ((current >>> 32) != second) {
+                next = second << 32 | 1;
+            } else if ((int) current >= samplesPerSecond) {
+                return false;
+            } else {
+                next = current + 1;
+            }
+            if (states.compareAndSet(index, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public int getSamplesPerSecond() {
+        return samplesPerSecond;
+    }
+}
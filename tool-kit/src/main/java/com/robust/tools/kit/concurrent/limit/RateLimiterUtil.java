@@ -21,7 +21,9 @@ public class RateLimiterUtil {
      * @param maxBurstSeconds  最大的突发缓冲时间，用来应对突发流量。Guava的实现默认是1s，permitsPerSecond * maxBurstSeconds,
      *                         就是闲置时预留的缓冲token数量
      * @return
+     * @deprecated 依赖反射Guava的私有类与字段, 升级Guava或在模块化的JDK中会失效, 请使用{@link #createTokenBucket(double, double)}
      */
+    @Deprecated
     public static RateLimiter create(double permitsPerSecond, double maxBurstSeconds)
             throws ReflectiveOperationException {
         return create(permitsPerSecond, maxBurstSeconds, true);
@@ -35,7 +37,10 @@ public class RateLimiterUtil {
      *                         就是闲置时预留的缓冲token数量
      * @param filledWithToken  是否需要创建时就保留有 permitsPerSecond * maxBurstSeconds 的token
      * @return
+     * @deprecated 依赖反射Guava的私有类与字段, 升级Guava或在模块化的JDK中会失效, 请使用
+     * {@link #createTokenBucket(double, double, boolean)}
      */
+    @Deprecated
     public static RateLimiter create(double permitsPerSecond, double maxBurstSeconds, boolean filledWithToken)
             throws ReflectiveOperationException {
         Class<?> sleepingStopwatch =
@@ -58,6 +63,30 @@ public class RateLimiterUtil {
         return rateLimiter;
     }
 
+    /**
+     * 创建无锁的令牌桶限流器, 创建时桶已装满.
+     *
+     * @param permitsPerSecond 每秒允许的请求数，可看成QPS(每秒查询率)
+     * @param maxBurstSeconds  最大的突发缓冲时间，permitsPerSecond * maxBurstSeconds就是闲置时预留的缓冲token数量
+     * @see TokenBucketRateLimiter
+     */
+    public static TokenBucketRateLimiter createTokenBucket(double permitsPerSecond, double maxBurstSeconds) {
+        return createTokenBucket(permitsPerSecond, maxBurstSeconds, true);
+    }
+
+    /**
+     * 创建无锁的令牌桶限流器.
+     *
+     * @param permitsPerSecond 每秒允许的请求数，可看成QPS(每秒查询率)
+     * @param maxBurstSeconds  最大的突发缓冲时间，permitsPerSecond * maxBurstSeconds就是闲置时预留的缓冲token数量
+     * @param filledWithToken  是否需要创建时就保留有 permitsPerSecond * maxBurstSeconds 的token
+     * @see TokenBucketRateLimiter
+     */
+    public static TokenBucketRateLimiter createTokenBucket(double permitsPerSecond, double maxBurstSeconds,
+                                                           boolean filledWithToken) {
+        return new TokenBucketRateLimiter(permitsPerSecond, maxBurstSeconds, filledWithToken);
+    }
+
     private static boolean setFiled(Object object, String filedName, Object value) {
         Field field = null;
         try {
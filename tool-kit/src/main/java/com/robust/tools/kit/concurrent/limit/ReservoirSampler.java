@@ -0,0 +1,82 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.base.Validate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @Description: 线程安全的蓄水池采样, 从无限长的数据流中均匀地保留K个样本(Algorithm R).
+ * <p>
+ * 第n个元素以K/n的概率被保留, 随机替换蓄水池中的一个样本. 计数用AtomicLong, 样本存放在AtomicReferenceArray中,
+ * offer()只有一次原子加与一次数组写, 不加锁也不分配对象.
+ * <p>
+ * 并发写入同一个槽位时后写者覆盖前者, 对均匀性的影响可以忽略.
+ * <p>
+ * 典型用法: 每个统计周期创建一个新的ReservoirSampler, 周期结束时取出样本, 如慢请求的样例, 耗时分位数的估算.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 22:50
+ * @Version: 1.0
+ */
+public class ReservoirSampler<T> {
+
+    private final int size;
+    private final AtomicReferenceArray<T> reservoir;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * @param size 保留的样本数K
+     */
+    public ReservoirSampler(int size) {
+        this.size = Validate.positive("size", size);
+        this.reservoir = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * 提交一个元素
+     *
+     * @return 是否被放入蓄水池(之后仍可能被替换)
+     */
+    public boolean offer(T item) {
+        Validate.notNull(item);
+        long n = count.incrementAndGet();
+        if (n <= size) {
+            reservoir.set((int) (n - 1), item);
+            return true;
+        }
+        long index = ThreadLocalRandom.current().nextLong(n);
+        if (index < size) {
+            reservoir.set((int) index, item);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 当前样本的快照, 元素数为min(K, 已提交数)
+     */
+    public List<T> getSamples() {
+        List<T> samples = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            T item = reservoir.get(i);
+            if (item != null) {
+                samples.add(item);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * @return 已提交的元素总数
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -2,6 +2,9 @@ package com.robust.tools.kit.concurrent.limit;
 
 import com.robust.tools.kit.base.Validate;
 import com.robust.tools.kit.number.RandomUtil;
+import com.robust.tools.kit.time.ClockUtil;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @Description: 采样器(美[sæmplɚ])
@@ -55,6 +58,18 @@ public class Sampler {
         return new Sampler(selectPercent);
     }
 
+    /**
+     * 创建限速采样器, 每秒最多命中samplesPerSecond次.
+     * <p>
+     * 与固定比例相比, 流量突增时不会压垮下游(如链路追踪的存储), 流量很低时则全部命中.
+     *
+     * @param samplesPerSecond 每秒最多命中次数
+     * @return
+     */
+    public static Sampler createRateBounded(int samplesPerSecond) {
+        return new RateBoundedSampler(samplesPerSecond);
+    }
+
     /**
      * 采样率为100时，总是返回true
      */
@@ -87,4 +102,42 @@ public class Sampler {
             return INSTANCE;
         }
     }
+
+    /**
+     * 每秒最多命中N次的采样器.
+     * <p>
+     * 状态是一个long, 高32位为当前秒, 低32位为本秒已命中次数, 一次CAS即可完成判断与计数, 无锁且不分配对象.
+     * 本秒的配额用完后直接返回false, 不再CAS. 配额按自然秒发放, 命中会集中在每秒的前部.
+     */
+    public static class RateBoundedSampler extends Sampler {
+        private final int samplesPerSecond;
+        private final AtomicLong state = new AtomicLong();
+
+        public RateBoundedSampler(int samplesPerSecond) {
+            this.samplesPerSecond = Validate.positive("samplesPerSecond", samplesPerSecond);
+        }
+
+        @Override
+        public boolean select() {
+            long second = ClockUtil.currentTimeMillis() / 1000;
+            for (; ; ) {
+                long current = state.get();
+                long next;
+                if ((current >>> 32) != second) {
+                    next = second << 32 | 1;
+                } else if ((int) current >= samplesPerSecond) {
+                    return false;
+                } else {
+                    next = current + 1;
+                }
+                if (state.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        public int getSamplesPerSecond() {
+            return samplesPerSecond;
+        }
+    }
 }
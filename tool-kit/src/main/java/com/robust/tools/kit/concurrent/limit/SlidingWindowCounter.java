@@ -0,0 +1,112 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.time.ClockUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: 滑动时间窗口计数器, 可用作低开销的滚动QPS统计.
+ * <p>
+ * 把窗口切分为bucketCount个时间桶组成环, 每个桶用LongAdder计数, 并发的累加分散在不同的Cell上, 没有CAS竞争.
+ * 桶过期时以CAS整体替换为新桶(每个桶周期只分配一次), 而不是清零旧桶, 避免清零与累加的竞争.
+ * <p>
+ * 统计值只包含起始时间在窗口内的桶, 精度为一个桶的时长. 时间取自{@link ClockUtil}, 测试时可替换为DummyClock.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 19:10
+ * @Version: 1.0
+ */
+public class SlidingWindowCounter {
+
+    private final long windowMillis;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    /**
+     * @param window      窗口时长
+     * @param unit        窗口时长单位
+     * @param bucketCount 窗口切分的桶数, 越多越精确, 但求和越慢
+     */
+    public SlidingWindowCounter(long window, TimeUnit unit, int bucketCount) {
+        Validate.positive("bucketCount", bucketCount);
+        this.windowMillis = Validate.positive("window", unit.toMillis(window));
+        Validate.isTrue(windowMillis % bucketCount == 0,
+                "window(" + windowMillis + "ms) must be divisible by bucketCount(" + bucketCount + ")");
+        this.bucketCount = bucketCount;
+        this.bucketMillis = windowMillis / bucketCount;
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        currentBucket(ClockUtil.currentTimeMillis()).count.add(delta);
+    }
+
+    /**
+     * @return 当前窗口内的计数和
+     */
+    public long sum() {
+        return sum(ClockUtil.currentTimeMillis());
+    }
+
+    /**
+     * @return 当前窗口内每秒的平均计数
+     */
+    public double ratePerSecond() {
+        return sum() * 1000.0 / windowMillis;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    long sum(long now) {
+        long windowStart = bucketStart(now) - windowMillis + bucketMillis;
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.start >= windowStart) {
+                total += bucket.count.sum();
+            }
+        }
+        return total;
+    }
+
+    private Bucket currentBucket(long now) {
+        long start = bucketStart(now);
+        int index = (int) ((start / bucketMillis) % bucketCount);
+        for (; ; ) {
+            Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.start == start) {
+                return bucket;
+            }
+            if (bucket != null && bucket.start > start) {
+                // 时钟回拨, 计入较新的桶
+                return bucket;
+            }
+            Bucket fresh = new Bucket(start);
+            if (buckets.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private long bucketStart(long now) {
+        return now - now % bucketMillis;
+    }
+
+    private static final class Bucket {
+        final long start;
+        final LongAdder count = new LongAdder();
+
+        Bucket(long start) {
+            this.start = start;
+        }
+    }
+}
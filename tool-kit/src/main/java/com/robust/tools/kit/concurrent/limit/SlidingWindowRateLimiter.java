@@ -0,0 +1,73 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.base.Validate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Description: 滑动窗口限流器, 保证任意一个窗口内通过的请求数不超过limit, 用于"每分钟N次"这类配额.
+ * <p>
+ * TimeIntervalLimiter每个间隔只允许一次, Guava RateLimiter会把请求平滑到毫秒级, 都无法表达"窗口内N次".
+ * <p>
+ * 基于{@link SlidingWindowCounter}, 先求和判断再累加, 两步之间没有加锁, 高并发时可能略微超出limit(最多超出并发线程数),
+ * 以此换取计数的无竞争. 精度为窗口时长/bucketCount.
+ * <p>
+ * 同时可通过{@link #ratePerSecond()}获取当前窗口内通过请求的QPS.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 19:30
+ * @Version: 1.0
+ */
+public class SlidingWindowRateLimiter {
+
+    private final long limit;
+    private final SlidingWindowCounter counter;
+
+    /**
+     * @param limit       每个窗口内允许通过的请求数
+     * @param window      窗口时长
+     * @param unit        窗口时长单位
+     * @param bucketCount 窗口切分的桶数, 建议10-60
+     */
+    public SlidingWindowRateLimiter(long limit, long window, TimeUnit unit, int bucketCount) {
+        this.limit = Validate.positive("limit", limit);
+        this.counter = new SlidingWindowCounter(window, unit, bucketCount);
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    public boolean tryAcquire(int permits) {
+        Validate.positive("permits", permits);
+        if (counter.sum() + permits > limit) {
+            return false;
+        }
+        counter.add(permits);
+        return true;
+    }
+
+    /**
+     * @return 当前窗口内已通过的请求数
+     */
+    public long getCurrentCount() {
+        return counter.sum();
+    }
+
+    /**
+     * @return 当前窗口内剩余可通过的请求数
+     */
+    public long getRemaining() {
+        return Math.max(0, limit - counter.sum());
+    }
+
+    /**
+     * @return 当前窗口内通过请求的QPS
+     */
+    public double ratePerSecond() {
+        return counter.ratePerSecond();
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,385 @@
+package com.robust.tools.kit.concurrent.threadpool;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.type.ThreadLocalContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @Description: 按优先级与截止时间调度的线程池.
+ * <p>
+ * 1. 队列为按(优先级, 截止时间, 提交顺序)排序的PriorityBlockingQueue, 优先级数值越小越先执行, 同优先级时截止时间早的先执行.
+ * <p>
+ * 2. 工作线程从队列取任务时, 丢弃已过截止时间的任务并回调{@link ExpiredHandler}, 过载时不再执行已无意义的过期任务.
+ * 被丢弃的Future会被cancel, 等待结果的调用方得到CancellationException.
+ * <p>
+ * 3. PriorityBlockingQueue本身无界, 这里按queueSize限制长度, 队列满时交给RejectHandler, 默认为{@link AbortPolicyWithReport}.
+ * <p>
+ * 注意与FixedThreadPool一样, 线程数未达到poolSize时新任务直接交给新线程执行, 只有排队的任务才按优先级调度.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 15:40
+ * @Version: 1.0
+ */
+@Slf4j
+public class PriorityThreadPool extends ThreadPoolExecutor {
+
+    /**
+     * 默认优先级, 普通execute()/submit()提交的任务使用
+     */
+    public static final int NORMAL_PRIORITY = 5;
+
+    private static final Comparator<Runnable> TASK_COMPARATOR = (r1, r2) -> {
+        Prioritized t1 = (Prioritized) r1;
+        Prioritized t2 = (Prioritized) r2;
+        int result = Integer.compare(t1.getPriority(), t2.getPriority());
+        if (result != 0) {
+            return result;
+        }
+        if (t1.hasDeadline() != t2.hasDeadline()) {
+            // 有截止时间的先执行
+            return t1.hasDeadline() ? -1 : 1;
+        }
+        if (t1.hasDeadline()) {
+            // nanoTime可能溢出, 只能比较差值
+            long diff = t1.getDeadlineNanos() - t2.getDeadlineNanos();
+            if (diff != 0) {
+                return diff < 0 ? -1 : 1;
+            }
+        }
+        return Long.compare(t1.getSequence(), t2.getSequence());
+    };
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder expiredCount = new LongAdder();
+    private final ExpiredHandler expiredHandler;
+    private boolean propagateContext;
+
+    public PriorityThreadPool(int poolSize, int queueSize, ThreadFactory threadFactory,
+                              RejectedExecutionHandler rejectedHandler, ExpiredHandler expiredHandler) {
+        super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new PriorityTaskQueue(queueSize), threadFactory,
+                rejectedHandler);
+        Validate.notNull(expiredHandler);
+        this.expiredHandler = expiredHandler;
+        ((PriorityTaskQueue) getQueue()).setParent(this);
+    }
+
+    /**
+     * 以默认优先级执行任务, 没有截止时间
+     */
+    @Override
+    public void execute(Runnable command) {
+        Validate.notNull(command);
+        if (command instanceof Prioritized) {
+            super.execute(command);
+        } else {
+            super.execute(new PriorityRunnable(decorate(command), NORMAL_PRIORITY, 0, false,
+                    sequence.incrementAndGet()));
+        }
+    }
+
+    /**
+     * @param priority 数值越小越先执行
+     */
+    public void execute(Runnable command, int priority) {
+        Validate.notNull(command);
+        super.execute(new PriorityRunnable(decorate(command), priority, 0, false, sequence.incrementAndGet()));
+    }
+
+    /**
+     * @param priority 数值越小越先执行
+     * @param timeout  从现在起的截止时间, 超过后仍在排队的任务将被丢弃
+     */
+    public void execute(Runnable command, int priority, long timeout, TimeUnit unit) {
+        Validate.notNull(command);
+        super.execute(new PriorityRunnable(decorate(command), priority, deadline(timeout, unit), true,
+                sequence.incrementAndGet()));
+    }
+
+    /**
+     * @param priority 数值越小越先执行
+     * @param timeout  从现在起的截止时间, 超过后仍在排队的任务将被丢弃, 返回的Future被cancel
+     */
+    public <T> Future<T> submit(Callable<T> task, int priority, long timeout, TimeUnit unit) {
+        Validate.notNull(task);
+        PriorityFutureTask<T> future = new PriorityFutureTask<>(decorate(task), priority, deadline(timeout, unit),
+                true, sequence.incrementAndGet());
+        super.execute(future);
+        return future;
+    }
+
+    /**
+     * @param priority 数值越小越先执行
+     */
+    public <T> Future<T> submit(Callable<T> task, int priority) {
+        Validate.notNull(task);
+        PriorityFutureTask<T> future = new PriorityFutureTask<>(decorate(task), priority, 0, false,
+                sequence.incrementAndGet());
+        super.execute(future);
+        return future;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return newTaskFor(new RunnableAdapter<>(runnable, value));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new PriorityFutureTask<>(decorate(callable), NORMAL_PRIORITY, 0, false, sequence.incrementAndGet());
+    }
+
+    /**
+     * 提交任务时捕获ThreadLocalContext, 由ThreadPoolBuilder设置
+     */
+    void setPropagateContext(boolean propagateContext) {
+        this.propagateContext = propagateContext;
+    }
+
+    private Runnable decorate(Runnable command) {
+        return propagateContext ? ThreadLocalContext.wrap(command) : command;
+    }
+
+    private <T> Callable<T> decorate(Callable<T> task) {
+        return propagateContext ? ThreadLocalContext.wrap(task) : task;
+    }
+
+    /**
+     * @return 因过期被丢弃的任务数
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    private static long deadline(long timeout, TimeUnit unit) {
+        return System.nanoTime() + unit.toNanos(timeout);
+    }
+
+    private void onExpired(Runnable task) {
+        expiredCount.increment();
+        if (task instanceof Future) {
+            ((Future<?>) task).cancel(false);
+        }
+        try {
+            expiredHandler.onExpired(task, this);
+        } catch (Throwable e) {
+            log.error("Unexpected error occurred in expired handler", e);
+        }
+    }
+
+    /**
+     * 任务过期被丢弃时的回调, 在取任务的工作线程中执行.
+     */
+    public interface ExpiredHandler {
+        void onExpired(Runnable task, PriorityThreadPool pool);
+    }
+
+    /**
+     * 默认的过期回调, 打印告警日志
+     */
+    public static class LogExpiredHandler implements ExpiredHandler {
+        @Override
+        public void onExpired(Runnable task, PriorityThreadPool pool) {
+            log.warn("Task expired before execution and was discarded, priority: {}, expired count: {}",
+                    ((Prioritized) task).getPriority(), pool.getExpiredCount());
+        }
+    }
+
+    /**
+     * 可排序的任务
+     */
+    public interface Prioritized {
+        int getPriority();
+
+        boolean hasDeadline();
+
+        long getDeadlineNanos();
+
+        long getSequence();
+
+        default boolean isExpired() {
+            return hasDeadline() && System.nanoTime() - getDeadlineNanos() > 0;
+        }
+    }
+
+    private static class PriorityRunnable implements Runnable, Prioritized {
+        private final Runnable task;
+        private final int priority;
+        private final long deadlineNanos;
+        private final boolean hasDeadline;
+        private final long sequence;
+
+        PriorityRunnable(Runnable task, int priority, long deadlineNanos, boolean hasDeadline, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+            this.hasDeadline = hasDeadline;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public boolean hasDeadline() {
+            return hasDeadline;
+        }
+
+        @Override
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        @Override
+        public long getSequence() {
+            return sequence;
+        }
+    }
+
+    private static class PriorityFutureTask<T> extends FutureTask<T> implements Prioritized {
+        private final int priority;
+        private final long deadlineNanos;
+        private final boolean hasDeadline;
+        private final long sequence;
+
+        PriorityFutureTask(Callable<T> callable, int priority, long deadlineNanos, boolean hasDeadline,
+                           long sequence) {
+            super(callable);
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+            this.hasDeadline = hasDeadline;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public boolean hasDeadline() {
+            return hasDeadline;
+        }
+
+        @Override
+        public long getDeadlineNanos() {
+            return deadlineNanos;
+        }
+
+        @Override
+        public long getSequence() {
+            return sequence;
+        }
+    }
+
+    private static class RunnableAdapter<T> implements Callable<T> {
+        private final Runnable task;
+        private final T result;
+
+        RunnableAdapter(Runnable task, T result) {
+            this.task = task;
+            this.result = result;
+        }
+
+        @Override
+        public T call() {
+            task.run();
+            return result;
+        }
+    }
+
+    /**
+     * 限制长度的优先级队列, 出队时丢弃已过期的任务.
+     */
+    static class PriorityTaskQueue extends PriorityBlockingQueue<Runnable> {
+        private static final long serialVersionUID = -3536370587146359345L;
+
+        private final int capacity;
+        private transient volatile PriorityThreadPool parent;
+
+        PriorityTaskQueue(int capacity) {
+            super(11, TASK_COMPARATOR);
+            this.capacity = capacity;
+        }
+
+        void setParent(PriorityThreadPool parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * 有界时检查容量与入队在同一把锁内完成, 并发提交不会超过capacity. 出队只会减少size(), 因此只需串行化入队.
+         * PriorityBlockingQueue内部使用自己的锁, 这里的监视器只用于有界时的入队.
+         */
+        @Override
+        public boolean offer(Runnable runnable) {
+            if (capacity <= 0) {
+                return super.offer(runnable);
+            }
+            synchronized (this) {
+                if (size() >= capacity) {
+                    return false;
+                }
+                return super.offer(runnable);
+            }
+        }
+
+        @Override
+        public Runnable take() throws InterruptedException {
+            for (; ; ) {
+                Runnable task = super.take();
+                if (!expired(task)) {
+                    return task;
+                }
+            }
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            long deadline = System.nanoTime() + nanos;
+            for (; ; ) {
+                Runnable task = super.poll(nanos, TimeUnit.NANOSECONDS);
+                if (task == null || !expired(task)) {
+                    return task;
+                }
+                nanos = deadline - System.nanoTime();
+            }
+        }
+
+        @Override
+        public Runnable poll() {
+            for (; ; ) {
+                Runnable task = super.poll();
+                if (task == null || !expired(task)) {
+                    return task;
+                }
+            }
+        }
+
+        private boolean expired(Runnable task) {
+            if (task instanceof Prioritized && ((Prioritized) task).isExpired()) {
+                parent.onExpired(task);
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.robust.tools.kit.concurrent.threadpool;
 
 import com.robust.tools.kit.concurrent.TaskQueue;
+import com.robust.tools.kit.concurrent.type.ThreadLocalContext;
 
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,6 +31,8 @@ public class QueuableCachedThreadPool extends ThreadPoolExecutor {
      */
     private final AtomicInteger submittedCount = new AtomicInteger(0);
 
+    private boolean propagateContext;
+
     public QueuableCachedThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
                                     TaskQueue workQueue, ThreadFactory threadFactory, RejectedExecutionHandler rejectedHandler) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, rejectedHandler);
@@ -38,6 +41,13 @@ public class QueuableCachedThreadPool extends ThreadPoolExecutor {
     }
 
 
+    /**
+     * 提交任务时捕获ThreadLocalContext, 由ThreadPoolBuilder设置
+     */
+    void setPropagateContext(boolean propagateContext) {
+        this.propagateContext = propagateContext;
+    }
+
     public int getSubmittedCount() {
         return submittedCount.get();
     }
@@ -69,6 +79,9 @@ public class QueuableCachedThreadPool extends ThreadPoolExecutor {
      * @throws NullPointerException       if command or unit is null
      */
     public void execute(Runnable command, long timeout, TimeUnit unit) {
+        if (propagateContext) {
+            command = ThreadLocalContext.wrap(command);
+        }
         submittedCount.incrementAndGet();
         try {
             super.execute(command);
@@ -0,0 +1,424 @@
+package com.robust.tools.kit.concurrent.threadpool;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.type.Sequence;
+import com.robust.tools.kit.concurrent.type.ThreadLocalContext;
+import com.robust.tools.kit.number.MathUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @Description: 参考Disruptor实现的基于RingBuffer的单消费线程Executor, 用于低延时的事件处理.
+ * <p>
+ * 与LinkedBlockingQueue为队列的线程池相比:
+ * <p>
+ * 1. 任务槽位在创建时预分配, 提交任务时不再创建链表节点, 也不需要获取锁.
+ * <p>
+ * 2. 生产者游标与消费者游标使用填充过的{@link Sequence}, 避免伪共享.
+ * <p>
+ * 3. 单生产者模式下提交任务没有CAS, 多生产者模式下通过CAS抢占序号, 再以每个槽位的轮次标记发布.
+ * <p>
+ * 4. 消费线程等待任务的方式可选择: 阻塞(最省CPU), 让出CPU(yield), 忙等(最低延时, 独占一个CPU核).
+ * <p>
+ * 当RingBuffer已满时, 生产者自旋等待消费者腾出槽位(背压), 而不是拒绝任务.
+ * <p>
+ * 关闭时, 消费线程等待进行中的execute()发布完成, 执行完所有已发布的任务后退出, 与shutdown()并发的execute()要么被执行,
+ * 要么抛出RejectedExecutionException. shutdownNow()则取出RingBuffer中未执行的任务返回给调用者, 等待槽位的生产者抛出RejectedExecutionException.
+ * <p>
+ * https://github.com/LMAX-Exchange/disruptor
+ * @Author: robust
+ * @CreateDate: 2026/10/19 10:30
+ * @Version: 1.0
+ */
+@Slf4j
+public class RingBufferExecutor extends AbstractExecutorService {
+
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    private static final AtomicIntegerFieldUpdater<RingBufferExecutor> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(RingBufferExecutor.class, "state");
+
+    private final int bufferSize;
+    private final int indexMask;
+    private final int indexShift;
+    // 消费线程与shutdownNow()都可能取出任务, 以getAndSet保证每个任务只被取出一次
+    private final AtomicReferenceArray<Runnable> entries;
+    // 每个槽位已发布的轮次(sequence >>> indexShift), 用于多生产者时判断槽位是否已发布
+    private final AtomicIntegerArray availableBuffer;
+
+    private final ProducerType producerType;
+    private final WaitStrategy waitStrategy;
+
+    // 生产者已申请的最大序号
+    private final Sequence cursor = new Sequence();
+    // 消费者已执行完的最大序号
+    private final Sequence consumed = new Sequence();
+
+    // 单生产者模式下仅由生产者线程访问
+    private long nextValue = -1L;
+    private long cachedGatingSequence = -1L;
+
+    private volatile int state = RUNNING;
+    // 已通过状态检查但尚未发布完成的execute()数, 消费线程关闭时等待其归零
+    private final AtomicInteger activeProducers = new AtomicInteger();
+    private final BooleanSupplier halted = () -> state != RUNNING;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final Thread consumerThread;
+    private boolean propagateContext;
+
+    /**
+     * @param bufferSize    RingBuffer大小, 必须为2的幂
+     * @param producerType  单生产者或多生产者
+     * @param waitStrategy  消费线程的等待策略
+     * @param threadFactory 创建消费线程的工厂
+     */
+    public RingBufferExecutor(int bufferSize, ProducerType producerType, WaitStrategy waitStrategy,
+                              ThreadFactory threadFactory) {
+        Validate.isTrue(MathUtil.isPowerOfTwo(bufferSize), "bufferSize must be a power of 2: " + bufferSize);
+        Validate.notNull(producerType);
+        Validate.notNull(waitStrategy);
+        Validate.notNull(threadFactory);
+
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.entries = new AtomicReferenceArray<>(bufferSize);
+        this.availableBuffer = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            availableBuffer.lazySet(i, -1);
+        }
+        this.producerType = producerType;
+        this.waitStrategy = waitStrategy;
+
+        this.consumerThread = threadFactory.newThread(this::runLoop);
+        consumerThread.start();
+    }
+
+    /**
+     * 提交任务, RingBuffer已满时自旋等待.
+     *
+     * @throws RejectedExecutionException Executor已关闭, 或等待槽位时被shutdownNow()
+     */
+    @Override
+    public void execute(Runnable command) {
+        Validate.notNull(command);
+        if (propagateContext) {
+            command = ThreadLocalContext.wrap(command);
+        }
+        // 先登记再检查状态, 消费线程看到状态变化后只需等待已登记的生产者
+        activeProducers.incrementAndGet();
+        try {
+            if (state != RUNNING) {
+                throw new RejectedExecutionException("RingBufferExecutor has been shutdown");
+            }
+
+            long sequence = producerType == ProducerType.SINGLE ? nextSingle() : nextMulti();
+            entries.lazySet((int) sequence & indexMask, command);
+            availableBuffer.lazySet((int) sequence & indexMask, (int) (sequence >>> indexShift));
+            if (producerType == ProducerType.SINGLE) {
+                cursor.set(sequence);
+            }
+        } finally {
+            activeProducers.decrementAndGet();
+        }
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    private void checkNotStopped() {
+        if (state == STOP) {
+            throw new RejectedExecutionException("RingBufferExecutor has been shutdown");
+        }
+    }
+
+    private long nextSingle() {
+        long next = nextValue + 1;
+        long wrapPoint = next - bufferSize;
+        if (wrapPoint > cachedGatingSequence) {
+            long gating;
+            while (wrapPoint > (gating = consumed.get())) {
+                checkNotStopped();
+                LockSupport.parkNanos(1L);
+            }
+            cachedGatingSequence = gating;
+        }
+        nextValue = next;
+        return next;
+    }
+
+    private long nextMulti() {
+        long current;
+        long next;
+        do {
+            current = cursor.get();
+            next = current + 1;
+            long wrapPoint = next - bufferSize;
+            if (wrapPoint > consumed.get()) {
+                checkNotStopped();
+                LockSupport.parkNanos(1L);
+                continue;
+            }
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        } while (true);
+    }
+
+    private boolean isPublished(long sequence) {
+        return availableBuffer.get((int) sequence & indexMask) == (int) (sequence >>> indexShift);
+    }
+
+    private void runLoop() {
+        long next = consumed.get() + 1L;
+        try {
+            while (state != STOP) {
+                long available = waitStrategy.waitFor(next, cursor, halted);
+                if (available < next) {
+                    if (state != RUNNING) {
+                        // 已关闭, 等进行中的生产者发布完成后cursor不再变化, 执行到最后一个已发布的任务再退出
+                        if (activeProducers.get() == 0 && cursor.get() < next) {
+                            break;
+                        }
+                        Thread.yield();
+                    }
+                    continue;
+                }
+
+                while (next <= available && isPublished(next) && state != STOP) {
+                    Runnable task = entries.getAndSet((int) next & indexMask, null);
+                    // 为null时已被shutdownNow()取出
+                    if (task != null) {
+                        runTask(task);
+                    }
+                    consumed.lazySet(next);
+                    next++;
+                }
+            }
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            // 保证消费线程不会因为任务的异常而退出
+            log.error("Unexpected error occurred in task", e);
+        }
+    }
+
+    /**
+     * 提交任务时捕获ThreadLocalContext, 由ThreadPoolBuilder设置
+     */
+    void setPropagateContext(boolean propagateContext) {
+        this.propagateContext = propagateContext;
+    }
+
+    /**
+     * @return RingBuffer中已申请但未执行完的任务数
+     */
+    public long getPendingCount() {
+        return cursor.get() - consumed.get();
+    }
+
+    public long remainingCapacity() {
+        return bufferSize - getPendingCount();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public void shutdown() {
+        // CAS避免覆盖并发的shutdownNow()设置的STOP
+        STATE.compareAndSet(this, RUNNING, SHUTDOWN);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * 停止消费线程, 返回RingBuffer中已发布但未执行的任务, 与ThreadPoolExecutor一致, 由调用者决定是否执行或取消.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        state = STOP;
+        waitStrategy.signalAllWhenBlocking();
+        consumerThread.interrupt();
+        // 等待槽位的生产者看到STOP后立即退出, 已申请到序号的生产者很快发布完成, 之后cursor不再变化
+        while (activeProducers.get() != 0) {
+            Thread.yield();
+        }
+        List<Runnable> pending = new ArrayList<>();
+        long last = cursor.get();
+        for (long sequence = consumed.get() + 1L; sequence <= last; sequence++) {
+            if (!isPublished(sequence)) {
+                continue;
+            }
+            Runnable task = entries.getAndSet((int) sequence & indexMask, null);
+            if (task != null) {
+                pending.add(task);
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * 生产者类型. 单生产者模式要求只有一条线程调用execute(), 否则序号会冲突.
+     */
+    public enum ProducerType {
+        SINGLE, MULTI
+    }
+
+    /**
+     * 消费线程等待序号可用的策略.
+     */
+    public interface WaitStrategy {
+
+        /**
+         * 等待直到cursor大于等于sequence, 或者halted返回true.
+         *
+         * @return 当前cursor的值, 可能小于sequence(已停止时)
+         */
+        long waitFor(long sequence, Sequence cursor, BooleanSupplier halted);
+
+        /**
+         * 生产者发布序号后, 唤醒阻塞中的消费线程
+         */
+        void signalAllWhenBlocking();
+
+        /**
+         * 阻塞等待, CPU占用最低, 延时最高. 仅在消费线程确实在等待时, 生产者才需要获取锁来唤醒.
+         */
+        static WaitStrategy blocking() {
+            return new BlockingWaitStrategy();
+        }
+
+        /**
+         * 自旋一定次数后Thread.yield(), 在延时与CPU占用间折衷.
+         */
+        static WaitStrategy yielding() {
+            return new YieldingWaitStrategy();
+        }
+
+        /**
+         * 忙等, 延时最低, 但会独占一个CPU核, 仅在CPU核数大于线程数时使用.
+         */
+        static WaitStrategy busySpin() {
+            return new BusySpinWaitStrategy();
+        }
+    }
+
+    static class BlockingWaitStrategy implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition processorNotifyCondition = lock.newCondition();
+        private final AtomicBoolean signalNeeded = new AtomicBoolean(false);
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, BooleanSupplier halted) {
+            long available = cursor.get();
+            if (available >= sequence || halted.getAsBoolean()) {
+                return available;
+            }
+            lock.lock();
+            try {
+                while ((available = cursor.get()) < sequence) {
+                    signalNeeded.set(true);
+                    // 设置标志后再检查一次, 防止错过生产者的唤醒
+                    if ((available = cursor.get()) >= sequence || halted.getAsBoolean()) {
+                        break;
+                    }
+                    processorNotifyCondition.await();
+                }
+            } catch (InterruptedException e) {
+                // 消费线程为Executor独占, 中断仅用于shutdownNow时唤醒, 由调用方重新检查状态
+                available = cursor.get();
+            } finally {
+                lock.unlock();
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+            if (signalNeeded.getAndSet(false)) {
+                lock.lock();
+                try {
+                    processorNotifyCondition.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    static class YieldingWaitStrategy implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, BooleanSupplier halted) {
+            long available;
+            int counter = SPIN_TRIES;
+            while ((available = cursor.get()) < sequence && !halted.getAsBoolean()) {
+                if (counter == 0) {
+                    Thread.yield();
+                } else {
+                    --counter;
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    static class BusySpinWaitStrategy implements WaitStrategy {
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, BooleanSupplier halted) {
+            long available;
+            while ((available = cursor.get()) < sequence && !halted.getAsBoolean()) {
+                // busy spin
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.robust.tools.kit.concurrent.threadpool;
 
 import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.collection.QueueUtil;
 import com.robust.tools.kit.concurrent.TaskQueue;
+import com.robust.tools.kit.concurrent.type.ThreadLocalContext;
 
 import java.util.concurrent.*;
 
@@ -60,6 +62,22 @@ public class ThreadPoolBuilder {
         return new QueuableCachedThreadPoolBuilder();
     }
 
+    /**
+     * @return 基于RingBuffer的低延时单消费线程Executor构建器
+     * @see RingBufferThreadPoolBuilder
+     */
+    public static RingBufferThreadPoolBuilder ringBufferPool() {
+        return new RingBufferThreadPoolBuilder();
+    }
+
+    /**
+     * @return 按优先级与截止时间调度的线程池构建器
+     * @see PriorityThreadPoolBuilder
+     */
+    public static PriorityThreadPoolBuilder priorityPool() {
+        return new PriorityThreadPoolBuilder();
+    }
+
     /**
      * 创建FixedThreadPool,建议必须设置queueSize保证有界.
      * 1、任务提交时,如果线程数还没达到poolSize即创建新的线程并绑定任务(即poolSize次提交后线程总数必达到poolSize,不会重用之前的线程)
@@ -79,6 +97,8 @@ public class ThreadPoolBuilder {
         private ThreadFactory threadFactory;
         private String threadNamePrefix;
         private Boolean daemon;
+        private boolean propagateContext;
+        private boolean lockFreeQueue;
 
         private RejectedExecutionHandler rejectedHandler;
 
@@ -96,7 +116,8 @@ public class ThreadPoolBuilder {
 
         /**
          * 不设置时为-1,使用不限长度的LinkedBlockingQueue.
-         * 为正数时使用ArrayBlockingQueue.
+         * 为正数时使用ArrayBlockingQueue, 设置了lockFreeQueue时使用无锁的MPMC数组队列,
+         * 此时容量为queueSize向上取整为2的幂(如1000取整为1024, 最大为2^30), 可排队的任务数可能多于queueSize.
          *
          * @param queueSize
          * @return
@@ -145,15 +166,37 @@ public class ThreadPoolBuilder {
             return this;
         }
 
+        /**
+         * 提交任务时捕获提交者的ThreadLocalContext, 任务执行期间在工作线程中恢复, 默认false
+         */
+        public FixedThreadPoolBuilder setPropagateContext(boolean propagateContext) {
+            this.propagateContext = propagateContext;
+            return this;
+        }
+
+        /**
+         * 有界队列使用无锁的MPMC数组队列代替ArrayBlockingQueue, 需同时设置queueSize, 默认false.
+         * 容量为queueSize向上取整为2的幂, 如queueSize为1000时队列满1024个任务才开始拒绝.
+         */
+        public FixedThreadPoolBuilder setLockFreeQueue(boolean lockFreeQueue) {
+            this.lockFreeQueue = lockFreeQueue;
+            return this;
+        }
+
         public ThreadPoolExecutor build() {
-            BlockingQueue<Runnable> queue =
-                    this.queueSize < 1 ? new LinkedBlockingQueue<>() : new ArrayBlockingQueue<>(queueSize);
+            Validate.isTrue(!lockFreeQueue || queueSize >= 1, "lock free queue must be bounded");
+            BlockingQueue<Runnable> queue = this.queueSize < 1 ? new LinkedBlockingQueue<>()
+                    : lockFreeQueue ? QueueUtil.newBlockingMpmcArrayQueue(queueSize) : new ArrayBlockingQueue<>(queueSize);
 
             threadFactory = createThreadFactory(threadFactory, threadNamePrefix, daemon);
 
             if (rejectedHandler == null) {
                 rejectedHandler = defaultRejectedHandler;
             }
+            if (propagateContext) {
+                return new ContextThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, queue,
+                        threadFactory, rejectedHandler);
+            }
             return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, queue,
                     threadFactory, rejectedHandler);
         }
@@ -187,6 +230,7 @@ public class ThreadPoolBuilder {
         private ThreadFactory threadFactory;
         private String threadNamePrefix;
         private Boolean daemon;
+        private boolean propagateContext;
 
         private RejectedExecutionHandler rejectedHandler;
 
@@ -253,11 +297,23 @@ public class ThreadPoolBuilder {
             return this;
         }
 
+        /**
+         * 提交任务时捕获提交者的ThreadLocalContext, 任务执行期间在工作线程中恢复, 默认false
+         */
+        public CachedThreadPoolBuilder setPropagateContext(boolean propagateContext) {
+            this.propagateContext = propagateContext;
+            return this;
+        }
+
         public ThreadPoolExecutor build() {
             threadFactory = createThreadFactory(threadFactory, threadNamePrefix, daemon);
             if (rejectedHandler == null) {
                 rejectedHandler = defaultRejectedHandler;
             }
+            if (propagateContext) {
+                return new ContextThreadPoolExecutor(minSize, maxSize, keepAliveTime, timeUnit,
+                        new SynchronousQueue<>(), threadFactory, rejectedHandler);
+            }
             return new ThreadPoolExecutor(minSize, maxSize, keepAliveTime, timeUnit,
                     new SynchronousQueue<>(), threadFactory, rejectedHandler);
         }
@@ -270,6 +326,7 @@ public class ThreadPoolBuilder {
         private int poolSize = 1;
         private ThreadFactory threadFactory;
         private String threadNamePrefix;
+        private boolean propagateContext;
 
         /**
          * @param poolSize 默认为1
@@ -302,8 +359,19 @@ public class ThreadPoolBuilder {
             return this;
         }
 
+        /**
+         * 提交任务时捕获提交者的ThreadLocalContext, 任务执行期间在工作线程中恢复, 默认false
+         */
+        public ScheduledThreadPoolBuilder setPropagateContext(boolean propagateContext) {
+            this.propagateContext = propagateContext;
+            return this;
+        }
+
         public ScheduledThreadPoolExecutor build() {
             threadFactory = createThreadFactory(threadFactory, threadNamePrefix, Boolean.TRUE);
+            if (propagateContext) {
+                return new ContextScheduledThreadPoolExecutor(poolSize, threadFactory);
+            }
             return new ScheduledThreadPoolExecutor(poolSize, threadFactory);
         }
 
@@ -325,6 +393,8 @@ public class ThreadPoolBuilder {
         private ThreadFactory threadFactory;
         private String threadNamePrefix;
         private Boolean daemon;
+        private boolean propagateContext;
+        private boolean lockFreeQueue;
 
         private RejectedExecutionHandler rejectedHandler;
 
@@ -387,13 +457,225 @@ public class ThreadPoolBuilder {
             return this;
         }
 
+        /**
+         * 提交任务时捕获提交者的ThreadLocalContext, 任务执行期间在工作线程中恢复, 默认false
+         */
+        public QueuableCachedThreadPoolBuilder setPropagateContext(boolean propagateContext) {
+            this.propagateContext = propagateContext;
+            return this;
+        }
+
+        /**
+         * TaskQueue使用无锁的MPMC数组队列代替LinkedBlockingQueue, 容量为queueSize向上取整为2的幂, 默认false
+         */
+        public QueuableCachedThreadPoolBuilder setLockFreeQueue(boolean lockFreeQueue) {
+            this.lockFreeQueue = lockFreeQueue;
+            return this;
+        }
+
         public QueuableCachedThreadPool build() {
             threadFactory = createThreadFactory(threadFactory, threadNamePrefix, daemon);
             if (rejectedHandler == null) {
                 rejectedHandler = defaultRejectedHandler;
             }
-            return new QueuableCachedThreadPool(minSize, maxSize, keepAlive, timeUnit,
-                    new TaskQueue(queueSize), threadFactory, rejectedHandler);
+            QueuableCachedThreadPool pool = new QueuableCachedThreadPool(minSize, maxSize, keepAlive, timeUnit,
+                    lockFreeQueue ? new TaskQueue(QueueUtil.<Runnable>newBlockingMpmcArrayQueue(queueSize))
+                            : new TaskQueue(queueSize), threadFactory, rejectedHandler);
+            pool.setPropagateContext(propagateContext);
+            return pool;
+        }
+    }
+
+    /**
+     * 创建基于RingBuffer的单消费线程Executor, 用于对延时敏感的事件处理.
+     * <p>
+     * 1. 槽位预分配, 提交任务时不分配链表节点也不加锁, bufferSize必须为2的幂, 默认1024.
+     * <p>
+     * 2. 默认为多生产者模式, 如确定只有一条线程提交任务, 可设置为单生产者模式免去CAS.
+     * <p>
+     * 3. 默认为阻塞等待策略, 对延时要求极高且有空闲CPU核时可选择yielding或busySpin.
+     * <p>
+     * 4. RingBuffer已满时生产者自旋等待, 不会调用RejectHandler.
+     *
+     * @see RingBufferExecutor
+     */
+    public static class RingBufferThreadPoolBuilder {
+        private int bufferSize = 1024;
+        private RingBufferExecutor.ProducerType producerType = RingBufferExecutor.ProducerType.MULTI;
+        private RingBufferExecutor.WaitStrategy waitStrategy;
+
+        private ThreadFactory threadFactory;
+        private String threadNamePrefix;
+        private Boolean daemon;
+        private boolean propagateContext;
+
+        /**
+         * RingBuffer大小, 必须为2的幂, 默认1024
+         */
+        public RingBufferThreadPoolBuilder setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public RingBufferThreadPoolBuilder setProducerType(RingBufferExecutor.ProducerType producerType) {
+            this.producerType = producerType;
+            return this;
+        }
+
+        /**
+         * 默认为{@link RingBufferExecutor.WaitStrategy#blocking()}
+         */
+        public RingBufferThreadPoolBuilder setWaitStrategy(RingBufferExecutor.WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * 与threadNamePrefix互斥, 优先使用ThreadFactory
+         */
+        public RingBufferThreadPoolBuilder setThreadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * 与threadFactory互斥, 优先使用ThreadFactory
+         */
+        public RingBufferThreadPoolBuilder setThreadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        /**
+         * 与threadFactory互斥, 优先使用ThreadFactory
+         * <p>
+         * 默认为NULL，不进行设置，使用JDK的默认值.
+         */
+        public RingBufferThreadPoolBuilder setDaemon(Boolean daemon) {
+            this.daemon = daemon;
+            return this;
+        }
+
+        /**
+         * 提交任务时捕获提交者的ThreadLocalContext, 任务执行期间在工作线程中恢复, 默认false
+         */
+        public RingBufferThreadPoolBuilder setPropagateContext(boolean propagateContext) {
+            this.propagateContext = propagateContext;
+            return this;
+        }
+
+        public RingBufferExecutor build() {
+            threadFactory = createThreadFactory(threadFactory, threadNamePrefix, daemon);
+            if (waitStrategy == null) {
+                waitStrategy = RingBufferExecutor.WaitStrategy.blocking();
+            }
+            RingBufferExecutor executor = new RingBufferExecutor(bufferSize, producerType, waitStrategy, threadFactory);
+            executor.setPropagateContext(propagateContext);
+            return executor;
+        }
+    }
+
+    /**
+     * 创建按优先级与截止时间调度的线程池, 过载时优先执行高优先级的任务, 并丢弃排队中已过期的任务.
+     * <p>
+     * 1. 线程数固定为poolSize, 默认为1.
+     * <p>
+     * 2. queueSize默认为-1即不限长度, 建议设置. 队列满时调用RejectHandler, 默认为{@link AbortPolicyWithReport},
+     * 打印线程池状态与ThreadDump后抛出RejectedExecutionException.
+     * <p>
+     * 3. 过期任务在出队时被丢弃, 并回调ExpiredHandler, 默认打印告警日志.
+     *
+     * @see PriorityThreadPool
+     */
+    public static class PriorityThreadPoolBuilder {
+        private int poolSize = 1;
+        private int queueSize = -1;
+
+        private ThreadFactory threadFactory;
+        private String threadNamePrefix;
+        private Boolean daemon;
+        private boolean propagateContext;
+
+        private RejectedExecutionHandler rejectedHandler;
+        private PriorityThreadPool.ExpiredHandler expiredHandler;
+
+        public PriorityThreadPoolBuilder setPoolSize(int poolSize) {
+            Validate.isTrue(poolSize >= 1);
+            this.poolSize = poolSize;
+            return this;
+        }
+
+        /**
+         * 不设置时为-1, 不限长度
+         */
+        public PriorityThreadPoolBuilder setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        /**
+         * 与threadNamePrefix互斥, 优先使用ThreadFactory
+         */
+        public PriorityThreadPoolBuilder setThreadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        /**
+         * 与threadFactory互斥, 优先使用ThreadFactory
+         */
+        public PriorityThreadPoolBuilder setThreadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        /**
+         * 与threadFactory互斥, 优先使用ThreadFactory
+         * <p>
+         * 默认为NULL，不进行设置，使用JDK的默认值.
+         */
+        public PriorityThreadPoolBuilder setDaemon(Boolean daemon) {
+            this.daemon = daemon;
+            return this;
+        }
+
+        /**
+         * 默认为AbortPolicyWithReport
+         */
+        public PriorityThreadPoolBuilder setRejectedHandler(RejectedExecutionHandler rejectedHandler) {
+            this.rejectedHandler = rejectedHandler;
+            return this;
+        }
+
+        /**
+         * 默认为{@link PriorityThreadPool.LogExpiredHandler}
+         */
+        public PriorityThreadPoolBuilder setExpiredHandler(PriorityThreadPool.ExpiredHandler expiredHandler) {
+            this.expiredHandler = expiredHandler;
+            return this;
+        }
+
+        /**
+         * 提交任务时捕获提交者的ThreadLocalContext, 任务执行期间在工作线程中恢复, 默认false
+         */
+        public PriorityThreadPoolBuilder setPropagateContext(boolean propagateContext) {
+            this.propagateContext = propagateContext;
+            return this;
+        }
+
+        public PriorityThreadPool build() {
+            threadFactory = createThreadFactory(threadFactory, threadNamePrefix, daemon);
+            if (rejectedHandler == null) {
+                rejectedHandler = new AbortPolicyWithReport(
+                        threadNamePrefix != null ? threadNamePrefix : "PriorityThreadPool");
+            }
+            if (expiredHandler == null) {
+                expiredHandler = new PriorityThreadPool.LogExpiredHandler();
+            }
+            PriorityThreadPool pool =
+                    new PriorityThreadPool(poolSize, queueSize, threadFactory, rejectedHandler, expiredHandler);
+            pool.setPropagateContext(propagateContext);
+            return pool;
         }
     }
 
@@ -417,4 +699,51 @@ public class ThreadPoolBuilder {
     }
 
 
+
+    /**
+     * 提交任务时捕获ThreadLocalContext的ThreadPoolExecutor, submit()也经由execute()提交
+     */
+    static class ContextThreadPoolExecutor extends ThreadPoolExecutor {
+        ContextThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                  BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                  RejectedExecutionHandler handler) {
+            super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(ThreadLocalContext.wrap(command));
+        }
+    }
+
+    /**
+     * 提交任务时捕获ThreadLocalContext的ScheduledThreadPoolExecutor, execute()与submit()也经由schedule()提交
+     */
+    static class ContextScheduledThreadPoolExecutor extends ScheduledThreadPoolExecutor {
+        ContextScheduledThreadPoolExecutor(int corePoolSize, ThreadFactory threadFactory) {
+            super(corePoolSize, threadFactory);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            return super.schedule(ThreadLocalContext.wrap(command), delay, unit);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            return super.schedule(ThreadLocalContext.wrap(callable), delay, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period,
+                                                      TimeUnit unit) {
+            return super.scheduleAtFixedRate(ThreadLocalContext.wrap(command), initialDelay, period, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                         TimeUnit unit) {
+            return super.scheduleWithFixedDelay(ThreadLocalContext.wrap(command), initialDelay, delay, unit);
+        }
+    }
 }
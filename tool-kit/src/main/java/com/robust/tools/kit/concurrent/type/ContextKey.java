@@ -0,0 +1,54 @@
+package com.robust.tools.kit.concurrent.type;
+
+import com.robust.tools.kit.base.Validate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Description: {@link ThreadLocalContext}的类型化Key.<br/>
+ * <p>
+ * 每个Key创建时分配一个全局递增的下标, 值直接存放在每个线程上下文数组的该下标处, 读写时没有hash计算与类型转换,
+ * 参考Netty的InternalThreadLocalMap.<br/>
+ * <p>
+ * 下标不会回收, 每个线程的数组长度取决于已创建Key的最大下标, 因此Key应定义为static final常量, 不要在运行中反复创建.
+ * <pre>
+ * private static final ContextKey&lt;String&gt; TRACE_ID = ContextKey.newKey("traceId");
+ *
+ * ThreadLocalContext.put(TRACE_ID, traceId);
+ * String traceId = ThreadLocalContext.get(TRACE_ID);
+ * </pre>
+ * @Author: robust
+ * @CreateDate: 2026/10/20 10:10
+ * @Version: 1.0
+ */
+public final class ContextKey<T> {
+
+    private static final AtomicInteger nextIndex = new AtomicInteger();
+
+    private final String name;
+    final int index;
+
+    private ContextKey(String name, int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    public static <T> ContextKey<T> newKey(String name) {
+        Validate.notNull(name);
+        int index = nextIndex.getAndIncrement();
+        if (index < 0) {
+            nextIndex.decrementAndGet();
+            throw new IllegalStateException("too many context keys");
+        }
+        return new ContextKey<>(name, index);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey{" + name + '#' + index + '}';
+    }
+}
@@ -0,0 +1,963 @@
+package com.robust.tools.kit.concurrent.type;
+
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.concurrent.HashedWheelTimer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * @Description: {@link BasicFuture}的后继, 同时实现Future与{@link CompletionStage}, 可组合且分配更少.
+ * <p>
+ * 1. 全部状态是两个volatile字段: 结果(null为未完成, 异常包装为Failure)与回调栈(无锁的Treiber栈), get()没有等待者时完成不进入synchronized.
+ * <p>
+ * 2. 每个后续阶段只分配一个回调节点, 节点本身即是Runnable, 交给Executor执行时不再包装. 注册时已完成则直接执行, 不分配节点.
+ * <p>
+ * 3. 非Async方法的回调在完成者线程(或已完成时在注册者线程)中执行, Async方法在指定的Executor(默认ForkJoinPool.commonPool())中执行.
+ * 回调中完成的后续阶段不递归触发, 而是压入当前线程的待执行栈, 由最外层的完成者依次执行, 执行顺序与递归时相同, 长链不会栈溢出.
+ * <p>
+ * 4. 超时({@link #orTimeout}, {@link #completeOnTimeout})由共享的{@link HashedWheelTimer#shared()}驱动, 不为等待占用线程, 完成时取消定时任务.
+ * <p>
+ * 5. {@link #allOf}, {@link #anyOf}, {@link #firstN}面向成千上万个Future的扇出: 全部输入共享一个计数器与结果数组,
+ * 每个输入只有一个回调节点, 而CompletableFuture.allOf会构造一棵由中间Future组成的树.
+ * <p>
+ * 与CompletableFuture的差异: 异常原样传递给后续阶段, 不包装为CompletionException; 组合两个阶段时任一失败即失败, 不等待另一个.
+ * @Author: robust
+ * @CreateDate: 2026/10/19 23:30
+ * @Version: 1.0
+ */
+@Slf4j
+public class Promise<T> implements Future<T>, CompletionStage<T> {
+
+    private static final Object NIL = new Object();
+
+    private static final Completion TOMBSTONE = new Completion(null) {
+        @Override
+        void fire(Object raw) {
+        }
+    };
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Promise, Object> RESULT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Promise.class, Object.class, "result");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Promise, Completion> STACK_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(Promise.class, Completion.class, "stack");
+
+    // 当前线程待执行的回调, 回调中完成的Promise把自己的回调压到最前, 而不是递归执行
+    private static final ThreadLocal<Trampoline> TRAMPOLINE = ThreadLocal.withInitial(Trampoline::new);
+
+    private volatile Object result;
+    private volatile Completion stack;
+    private volatile int waiters;
+
+    public static <T> Promise<T> success(T value) {
+        Promise<T> promise = new Promise<>();
+        promise.complete(value);
+        return promise;
+    }
+
+    public static <T> Promise<T> failure(Throwable cause) {
+        Promise<T> promise = new Promise<>();
+        promise.completeExceptionally(cause);
+        return promise;
+    }
+
+    /**
+     * 把任意CompletionStage转为Promise, 本身是Promise时直接返回.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Promise<T> from(CompletionStage<? extends T> stage) {
+        Validate.notNull(stage);
+        if (stage instanceof Promise) {
+            return (Promise<T>) stage;
+        }
+        Promise<T> promise = new Promise<>();
+        stage.whenComplete((value, cause) -> {
+            if (cause != null) {
+                promise.completeExceptionally(unwrap(cause));
+            } else {
+                promise.complete(value);
+            }
+        });
+        return promise;
+    }
+
+    /////////// 完成 ///////////
+
+    public boolean complete(T value) {
+        return completeRaw(value == null ? NIL : value);
+    }
+
+    public boolean completeExceptionally(Throwable cause) {
+        Validate.notNull(cause);
+        return completeRaw(new Failure(cause));
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return completeRaw(new Failure(new CancellationException()));
+    }
+
+    /**
+     * 在timeout内未完成时以TimeoutException失败, 使用共享的Timer.
+     */
+    public Promise<T> orTimeout(long timeout, TimeUnit unit) {
+        return orTimeout(HashedWheelTimer.shared(), timeout, unit);
+    }
+
+    public Promise<T> orTimeout(HashedWheelTimer timer, long timeout, TimeUnit unit) {
+        if (result == null) {
+            HashedWheelTimer.Timeout task = timer.newTimeout(
+                    () -> completeExceptionally(new TimeoutException("Timeout after " + timeout + " " + unit)),
+                    timeout, unit);
+            listen(new CancelTimeout(task));
+        }
+        return this;
+    }
+
+    /**
+     * 在timeout内未完成时以value完成, 使用共享的Timer.
+     */
+    public Promise<T> completeOnTimeout(T value, long timeout, TimeUnit unit) {
+        return completeOnTimeout(HashedWheelTimer.shared(), value, timeout, unit);
+    }
+
+    public Promise<T> completeOnTimeout(HashedWheelTimer timer, T value, long timeout, TimeUnit unit) {
+        if (result == null) {
+            HashedWheelTimer.Timeout task = timer.newTimeout(() -> complete(value), timeout, unit);
+            listen(new CancelTimeout(task));
+        }
+        return this;
+    }
+
+    /////////// 查询 ///////////
+
+    @Override
+    public boolean isDone() {
+        return result != null;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        Object raw = result;
+        return raw instanceof Failure && ((Failure) raw).cause instanceof CancellationException;
+    }
+
+    public boolean isCompletedExceptionally() {
+        return result instanceof Failure;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        Object raw = result;
+        if (raw == null) {
+            raw = waitFor(false, 0L);
+        }
+        return reportGet(raw);
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        Validate.notNull(unit);
+        Object raw = result;
+        if (raw == null) {
+            raw = waitFor(true, unit.toNanos(timeout));
+            if (raw == null) {
+                throw new TimeoutException();
+            }
+        }
+        return reportGet(raw);
+    }
+
+    /**
+     * 等待完成, 不响应中断(但会保留中断状态), 失败时抛出CompletionException.
+     */
+    public T join() {
+        Object raw = result;
+        if (raw == null) {
+            boolean interrupted = false;
+            for (; ; ) {
+                try {
+                    raw = waitFor(false, 0L);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return reportJoin(raw);
+    }
+
+    /**
+     * 已完成时返回结果(失败时抛出CompletionException), 否则返回valueIfAbsent.
+     */
+    public T getNow(T valueIfAbsent) {
+        Object raw = result;
+        return raw == null ? valueIfAbsent : reportJoin(raw);
+    }
+
+    /////////// CompletionStage ///////////
+
+    @Override
+    public <U> Promise<U> thenApply(Function<? super T, ? extends U> fn) {
+        return uniApply(null, fn);
+    }
+
+    @Override
+    public <U> Promise<U> thenApplyAsync(Function<? super T, ? extends U> fn) {
+        return uniApply(defaultExecutor(), fn);
+    }
+
+    @Override
+    public <U> Promise<U> thenApplyAsync(Function<? super T, ? extends U> fn, Executor executor) {
+        return uniApply(Validate.notNull(executor), fn);
+    }
+
+    @Override
+    public Promise<Void> thenAccept(Consumer<? super T> action) {
+        return uniApply(null, acceptFn(action));
+    }
+
+    @Override
+    public Promise<Void> thenAcceptAsync(Consumer<? super T> action) {
+        return uniApply(defaultExecutor(), acceptFn(action));
+    }
+
+    @Override
+    public Promise<Void> thenAcceptAsync(Consumer<? super T> action, Executor executor) {
+        return uniApply(Validate.notNull(executor), acceptFn(action));
+    }
+
+    @Override
+    public Promise<Void> thenRun(Runnable action) {
+        return uniApply(null, runFn(action));
+    }
+
+    @Override
+    public Promise<Void> thenRunAsync(Runnable action) {
+        return uniApply(defaultExecutor(), runFn(action));
+    }
+
+    @Override
+    public Promise<Void> thenRunAsync(Runnable action, Executor executor) {
+        return uniApply(Validate.notNull(executor), runFn(action));
+    }
+
+    @Override
+    public <U, V> Promise<V> thenCombine(CompletionStage<? extends U> other,
+                                         BiFunction<? super T, ? super U, ? extends V> fn) {
+        return biApply(other, null, fn);
+    }
+
+    @Override
+    public <U, V> Promise<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                              BiFunction<? super T, ? super U, ? extends V> fn) {
+        return biApply(other, defaultExecutor(), fn);
+    }
+
+    @Override
+    public <U, V> Promise<V> thenCombineAsync(CompletionStage<? extends U> other,
+                                              BiFunction<? super T, ? super U, ? extends V> fn, Executor executor) {
+        return biApply(other, Validate.notNull(executor), fn);
+    }
+
+    @Override
+    public <U> Promise<Void> thenAcceptBoth(CompletionStage<? extends U> other,
+                                            BiConsumer<? super T, ? super U> action) {
+        return biApply(other, null, biAcceptFn(action));
+    }
+
+    @Override
+    public <U> Promise<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                 BiConsumer<? super T, ? super U> action) {
+        return biApply(other, defaultExecutor(), biAcceptFn(action));
+    }
+
+    @Override
+    public <U> Promise<Void> thenAcceptBothAsync(CompletionStage<? extends U> other,
+                                                 BiConsumer<? super T, ? super U> action, Executor executor) {
+        return biApply(other, Validate.notNull(executor), biAcceptFn(action));
+    }
+
+    @Override
+    public Promise<Void> runAfterBoth(CompletionStage<?> other, Runnable action) {
+        return biApply(other, null, biRunFn(action));
+    }
+
+    @Override
+    public Promise<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action) {
+        return biApply(other, defaultExecutor(), biRunFn(action));
+    }
+
+    @Override
+    public Promise<Void> runAfterBothAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return biApply(other, Validate.notNull(executor), biRunFn(action));
+    }
+
+    @Override
+    public <U> Promise<U> applyToEither(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return either(other).uniApply(null, fn);
+    }
+
+    @Override
+    public <U> Promise<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn) {
+        return either(other).uniApply(defaultExecutor(), fn);
+    }
+
+    @Override
+    public <U> Promise<U> applyToEitherAsync(CompletionStage<? extends T> other, Function<? super T, U> fn,
+                                             Executor executor) {
+        return either(other).uniApply(Validate.notNull(executor), fn);
+    }
+
+    @Override
+    public Promise<Void> acceptEither(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return either(other).uniApply(null, acceptFn(action));
+    }
+
+    @Override
+    public Promise<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action) {
+        return either(other).uniApply(defaultExecutor(), acceptFn(action));
+    }
+
+    @Override
+    public Promise<Void> acceptEitherAsync(CompletionStage<? extends T> other, Consumer<? super T> action,
+                                           Executor executor) {
+        return either(other).uniApply(Validate.notNull(executor), acceptFn(action));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Promise<Void> runAfterEither(CompletionStage<?> other, Runnable action) {
+        return ((Promise<Object>) this).either(other).uniApply(null, runFn(action));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Promise<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action) {
+        return ((Promise<Object>) this).either(other).uniApply(defaultExecutor(), runFn(action));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Promise<Void> runAfterEitherAsync(CompletionStage<?> other, Runnable action, Executor executor) {
+        return ((Promise<Object>) this).either(other).uniApply(Validate.notNull(executor), runFn(action));
+    }
+
+    @Override
+    public <U> Promise<U> thenCompose(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return uniCompose(null, fn);
+    }
+
+    @Override
+    public <U> Promise<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn) {
+        return uniCompose(defaultExecutor(), fn);
+    }
+
+    @Override
+    public <U> Promise<U> thenComposeAsync(Function<? super T, ? extends CompletionStage<U>> fn,
+                                           Executor executor) {
+        return uniCompose(Validate.notNull(executor), fn);
+    }
+
+    @Override
+    public Promise<T> exceptionally(Function<Throwable, ? extends T> fn) {
+        Validate.notNull(fn);
+        Promise<T> dest = new Promise<>();
+        listen(new Completion(null) {
+            @Override
+            void fire(Object raw) {
+                if (raw instanceof Failure) {
+                    dest.complete(fn.apply(((Failure) raw).cause));
+                } else {
+                    dest.completeRaw(raw);
+                }
+            }
+
+            @Override
+            void onError(Throwable t) {
+                dest.completeExceptionally(t);
+            }
+        });
+        return dest;
+    }
+
+    @Override
+    public Promise<T> whenComplete(BiConsumer<? super T, ? super Throwable> action) {
+        return uniWhenComplete(null, action);
+    }
+
+    @Override
+    public Promise<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action) {
+        return uniWhenComplete(defaultExecutor(), action);
+    }
+
+    @Override
+    public Promise<T> whenCompleteAsync(BiConsumer<? super T, ? super Throwable> action, Executor executor) {
+        return uniWhenComplete(Validate.notNull(executor), action);
+    }
+
+    @Override
+    public <U> Promise<U> handle(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return uniHandle(null, fn);
+    }
+
+    @Override
+    public <U> Promise<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn) {
+        return uniHandle(defaultExecutor(), fn);
+    }
+
+    @Override
+    public <U> Promise<U> handleAsync(BiFunction<? super T, Throwable, ? extends U> fn, Executor executor) {
+        return uniHandle(Validate.notNull(executor), fn);
+    }
+
+    @Override
+    public CompletableFuture<T> toCompletableFuture() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        listen(new Completion(null) {
+            @Override
+            void fire(Object raw) {
+                if (raw instanceof Failure) {
+                    future.completeExceptionally(((Failure) raw).cause);
+                } else {
+                    future.complete(decode(raw));
+                }
+            }
+        });
+        return future;
+    }
+
+    /////////// 扇出组合 ///////////
+
+    /**
+     * 全部成功时以按输入顺序排列的结果完成, 任一失败时立即以其异常失败, 不等待其他输入.
+     */
+    public static <T> Promise<List<T>> allOf(Collection<? extends CompletionStage<? extends T>> stages) {
+        Validate.notNull(stages);
+        int size = stages.size();
+        Promise<List<T>> dest = new Promise<>();
+        if (size == 0) {
+            dest.complete(Collections.emptyList());
+            return dest;
+        }
+        Object[] results = new Object[size];
+        AtomicInteger remaining = new AtomicInteger(size);
+        int index = 0;
+        for (CompletionStage<? extends T> stage : stages) {
+            final int slot = index++;
+            from(stage).listen(new Completion(null) {
+                @Override
+                @SuppressWarnings("unchecked")
+                void fire(Object raw) {
+                    if (raw instanceof Failure) {
+                        dest.completeRaw(raw);
+                        return;
+                    }
+                    results[slot] = decode(raw);
+                    // decrementAndGet保证最后一个线程能看到全部结果
+                    if (remaining.decrementAndGet() == 0) {
+                        dest.complete((List<T>) Arrays.asList(results));
+                    }
+                }
+            });
+        }
+        return dest;
+    }
+
+    /**
+     * 以第一个成功的结果完成, 全部失败时以最后一个异常失败.
+     * <p>
+     * 与CompletableFuture.anyOf不同, 个别输入的失败不会使结果失败, 适合向多个副本发出同一请求.
+     */
+    public static <T> Promise<T> anyOf(Collection<? extends CompletionStage<? extends T>> stages) {
+        Validate.notEmpty(stages);
+        int size = stages.size();
+        Promise<T> dest = new Promise<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletionStage<? extends T> stage : stages) {
+            from(stage).listen(new Completion(null) {
+                @Override
+                void fire(Object raw) {
+                    if (!(raw instanceof Failure) || failures.incrementAndGet() == size) {
+                        dest.completeRaw(raw);
+                    }
+                }
+            });
+        }
+        return dest;
+    }
+
+    /**
+     * 以最先成功的n个结果(按完成顺序)完成, 失败数使n个成功不再可能时以该异常失败.
+     */
+    public static <T> Promise<List<T>> firstN(Collection<? extends CompletionStage<? extends T>> stages, int n) {
+        Validate.notNull(stages);
+        int size = stages.size();
+        Validate.isTrue(n >= 0 && n <= size, "n must be in [0, " + size + "]: " + n);
+        Promise<List<T>> dest = new Promise<>();
+        if (n == 0) {
+            dest.complete(Collections.emptyList());
+            return dest;
+        }
+        Object[] results = new Object[n];
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicInteger filled = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        int maxFailures = size - n;
+        for (CompletionStage<? extends T> stage : stages) {
+            from(stage).listen(new Completion(null) {
+                @Override
+                @SuppressWarnings("unchecked")
+                void fire(Object raw) {
+                    if (raw instanceof Failure) {
+                        if (failures.incrementAndGet() == maxFailures + 1) {
+                            dest.completeRaw(raw);
+                        }
+                        return;
+                    }
+                    int slot = claimed.getAndIncrement();
+                    if (slot < n) {
+                        results[slot] = decode(raw);
+                        if (filled.incrementAndGet() == n) {
+                            dest.complete((List<T>) Arrays.asList(results));
+                        }
+                    }
+                }
+            });
+        }
+        return dest;
+    }
+
+    /////////// 内部实现 ///////////
+
+    private <U> Promise<U> uniApply(Executor executor, Function<? super T, ? extends U> fn) {
+        Validate.notNull(fn);
+        Promise<U> dest = new Promise<>();
+        listen(new DestCompletion<U>(executor, dest) {
+            @Override
+            void fire(Object raw) {
+                if (raw instanceof Failure) {
+                    dest.completeRaw(raw);
+                } else {
+                    dest.complete(fn.apply(decode(raw)));
+                }
+            }
+        });
+        return dest;
+    }
+
+    private <U> Promise<U> uniCompose(Executor executor, Function<? super T, ? extends CompletionStage<U>> fn) {
+        Validate.notNull(fn);
+        Promise<U> dest = new Promise<>();
+        listen(new DestCompletion<U>(executor, dest) {
+            @Override
+            void fire(Object raw) {
+                if (raw instanceof Failure) {
+                    dest.completeRaw(raw);
+                } else {
+                    from(fn.apply(decode(raw))).listen(new Relay(dest));
+                }
+            }
+        });
+        return dest;
+    }
+
+    private <U> Promise<U> uniHandle(Executor executor, BiFunction<? super T, Throwable, ? extends U> fn) {
+        Validate.notNull(fn);
+        Promise<U> dest = new Promise<>();
+        listen(new DestCompletion<U>(executor, dest) {
+            @Override
+            void fire(Object raw) {
+                if (raw instanceof Failure) {
+                    dest.complete(fn.apply(null, ((Failure) raw).cause));
+                } else {
+                    dest.complete(fn.apply(decode(raw), null));
+                }
+            }
+        });
+        return dest;
+    }
+
+    private Promise<T> uniWhenComplete(Executor executor, BiConsumer<? super T, ? super Throwable> action) {
+        Validate.notNull(action);
+        Promise<T> dest = new Promise<>();
+        listen(new Completion(executor) {
+            @Override
+            void fire(Object raw) {
+                boolean failed = raw instanceof Failure;
+                try {
+                    action.accept(failed ? null : decode(raw), failed ? ((Failure) raw).cause : null);
+                } catch (Throwable t) {
+                    // 原结果失败时保留原异常
+                    if (!failed) {
+                        dest.completeExceptionally(t);
+                        return;
+                    }
+                }
+                dest.completeRaw(raw);
+            }
+
+            @Override
+            void onError(Throwable t) {
+                dest.completeExceptionally(t);
+            }
+        });
+        return dest;
+    }
+
+    private <U, V> Promise<V> biApply(CompletionStage<? extends U> other, Executor executor,
+                                      BiFunction<? super T, ? super U, ? extends V> fn) {
+        Validate.notNull(fn);
+        Promise<? extends U> second = from(other);
+        Promise<V> dest = new Promise<>();
+        listen(new DestCompletion<V>(null, dest) {
+            @Override
+            void fire(Object first) {
+                if (first instanceof Failure) {
+                    dest.completeRaw(first);
+                    return;
+                }
+                second.listen(new DestCompletion<V>(executor, dest) {
+                    @Override
+                    void fire(Object raw) {
+                        if (raw instanceof Failure) {
+                            dest.completeRaw(raw);
+                        } else {
+                            dest.complete(fn.apply(decode(first), decode(raw)));
+                        }
+                    }
+                });
+            }
+        });
+        return dest;
+    }
+
+    /**
+     * 以this与other中先完成的一个(无论成功失败)完成
+     */
+    private Promise<T> either(CompletionStage<? extends T> other) {
+        Promise<? extends T> second = from(other);
+        Promise<T> first = new Promise<>();
+        listen(new Relay(first));
+        second.listen(new Relay(first));
+        return first;
+    }
+
+    private static <T> Function<T, Void> acceptFn(Consumer<? super T> action) {
+        Validate.notNull(action);
+        return value -> {
+            action.accept(value);
+            return null;
+        };
+    }
+
+    private static <T> Function<T, Void> runFn(Runnable action) {
+        Validate.notNull(action);
+        return value -> {
+            action.run();
+            return null;
+        };
+    }
+
+    private static <T, U> BiFunction<T, U, Void> biAcceptFn(BiConsumer<? super T, ? super U> action) {
+        Validate.notNull(action);
+        return (t, u) -> {
+            action.accept(t, u);
+            return null;
+        };
+    }
+
+    private static <T, U> BiFunction<T, U, Void> biRunFn(Runnable action) {
+        Validate.notNull(action);
+        return (t, u) -> {
+            action.run();
+            return null;
+        };
+    }
+
+    private boolean completeRaw(Object raw) {
+        if (!RESULT_UPDATER.compareAndSet(this, null, raw)) {
+            return false;
+        }
+        if (waiters > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+        postComplete(raw);
+        return true;
+    }
+
+    /**
+     * 取出全部回调并按注册顺序执行, 之后注册的回调看到TOMBSTONE会直接执行.
+     * <p>
+     * 回调压入当前线程的Trampoline, 本线程已在执行回调时(即在某个回调中完成了本Promise)只压入, 由外层循环执行.
+     * 压入的回调排在外层剩余回调之前, 因此顺序与递归执行相同(深度优先).
+     */
+    private void postComplete(Object raw) {
+        Completion head = STACK_UPDATER.getAndSet(this, TOMBSTONE);
+        if (head == null) {
+            return;
+        }
+        Completion last = head;
+        Completion reversed = null;
+        while (head != null) {
+            Completion next = head.next;
+            head.next = reversed;
+            head.source = raw;
+            reversed = head;
+            head = next;
+        }
+        Trampoline trampoline = TRAMPOLINE.get();
+        trampoline.push(reversed, last);
+        if (trampoline.running) {
+            return;
+        }
+        trampoline.running = true;
+        try {
+            Completion completion;
+            while ((completion = trampoline.poll()) != null) {
+                completion.trigger(completion.source);
+            }
+        } finally {
+            trampoline.running = false;
+        }
+    }
+
+    private void listen(Completion completion) {
+        for (; ; ) {
+            Completion head = stack;
+            if (head == TOMBSTONE) {
+                completion.trigger(result);
+                return;
+            }
+            completion.next = head;
+            if (STACK_UPDATER.compareAndSet(this, head, completion)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 完成后的结果, 超时时返回null
+     */
+    private Object waitFor(boolean timed, long nanos) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        synchronized (this) {
+            waiters++;
+            try {
+                Object raw;
+                while ((raw = result) == null) {
+                    if (!timed) {
+                        wait();
+                    } else {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return null;
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                }
+                return raw;
+            } finally {
+                waiters--;
+            }
+        }
+    }
+
+    private static <T> T reportGet(Object raw) throws ExecutionException {
+        if (raw instanceof Failure) {
+            Throwable cause = ((Failure) raw).cause;
+            if (cause instanceof CancellationException) {
+                throw (CancellationException) cause;
+            }
+            throw new ExecutionException(cause);
+        }
+        return decode(raw);
+    }
+
+    private static <T> T reportJoin(Object raw) {
+        if (raw instanceof Failure) {
+            Throwable cause = ((Failure) raw).cause;
+            if (cause instanceof CancellationException) {
+                throw (CancellationException) cause;
+            }
+            throw new CompletionException(cause);
+        }
+        return decode(raw);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T decode(Object raw) {
+        return raw == NIL ? null : (T) raw;
+    }
+
+    private static Throwable unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            return cause.getCause();
+        }
+        return cause;
+    }
+
+    private static Executor defaultExecutor() {
+        return ForkJoinPool.commonPool();
+    }
+
+    @Override
+    public String toString() {
+        Object raw = result;
+        String status = raw == null ? "Incomplete"
+                : raw instanceof Failure ? "Completed exceptionally: " + ((Failure) raw).cause : "Completed normally";
+        return super.toString() + "[" + status + "]";
+    }
+
+    /**
+     * 以Completion.next串成的待执行链表, 不额外分配节点
+     */
+    private static final class Trampoline {
+        Completion head;
+        boolean running;
+
+        /**
+         * 把first到last的一段回调整体放到最前
+         */
+        void push(Completion first, Completion last) {
+            last.next = head;
+            head = first;
+        }
+
+        Completion poll() {
+            Completion completion = head;
+            if (completion != null) {
+                head = completion.next;
+                completion.next = null;
+            }
+            return completion;
+        }
+    }
+
+    private static final class Failure {
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * 回调节点, 同时是回调栈的链表节点与交给Executor的Runnable
+     */
+    private abstract static class Completion implements Runnable {
+        Completion next;
+        private final Executor executor;
+        private Object source;
+
+        Completion(Executor executor) {
+            this.executor = executor;
+        }
+
+        final void trigger(Object raw) {
+            if (executor == null) {
+                fireSafely(raw);
+                return;
+            }
+            this.source = raw;
+            try {
+                executor.execute(this);
+            } catch (Throwable t) {
+                onError(t);
+            }
+        }
+
+        @Override
+        public final void run() {
+            fireSafely(source);
+        }
+
+        private void fireSafely(Object raw) {
+            try {
+                fire(raw);
+            } catch (Throwable t) {
+                onError(t);
+            }
+        }
+
+        abstract void fire(Object raw) throws Throwable;
+
+        void onError(Throwable t) {
+            log.warn("Promise callback failed", t);
+        }
+    }
+
+    private abstract static class DestCompletion<U> extends Completion {
+        final Promise<U> dest;
+
+        DestCompletion(Executor executor, Promise<U> dest) {
+            super(executor);
+            this.dest = dest;
+        }
+
+        @Override
+        void onError(Throwable t) {
+            dest.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * 把结果原样转交给另一个Promise
+     */
+    private static final class Relay extends Completion {
+        private final Promise<?> dest;
+
+        Relay(Promise<?> dest) {
+            super(null);
+            this.dest = dest;
+        }
+
+        @Override
+        void fire(Object raw) {
+            dest.completeRaw(raw);
+        }
+    }
+
+    private static final class CancelTimeout extends Completion {
+        private final HashedWheelTimer.Timeout timeout;
+
+        CancelTimeout(HashedWheelTimer.Timeout timeout) {
+            super(null);
+            this.timeout = timeout;
+        }
+
+        @Override
+        void fire(Object raw) {
+            timeout.cancel();
+        }
+    }
+}
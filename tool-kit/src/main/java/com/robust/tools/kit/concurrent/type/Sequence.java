@@ -0,0 +1,74 @@
+package com.robust.tools.kit.concurrent.type;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * @Description: 参考Disruptor的Sequence, 前后各填充7个long的序号计数器, 避免与相邻的热点字段处于同一Cache Line造成伪共享(False Sharing).
+ * <p>
+ * 用于RingBuffer的生产者/消费者游标, 以及队列的头尾指针等被不同线程高频写入的计数器.
+ * <p>
+ * https://github.com/LMAX-Exchange/disruptor/blob/master/src/main/java/com/lmax/disruptor/Sequence.java
+ * @Author: robust
+ * @CreateDate: 2026/10/19 10:12
+ * @Version: 1.0
+ */
+public class Sequence extends SequenceRhsPadding {
+
+    private static final AtomicLongFieldUpdater<SequenceValue> VALUE_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+
+    public Sequence() {
+        this(-1L);
+    }
+
+    public Sequence(long initialValue) {
+        VALUE_UPDATER.lazySet(this, initialValue);
+    }
+
+    public long get() {
+        return value;
+    }
+
+    /**
+     * volatile写, 保证之前的写入对读取该序号的线程可见, 并与之后的读取有序.
+     */
+    public void set(long value) {
+        this.value = value;
+    }
+
+    /**
+     * 有序写(StoreStore屏障), 比volatile写更轻量, 适合单写者发布序号.
+     */
+    public void lazySet(long value) {
+        VALUE_UPDATER.lazySet(this, value);
+    }
+
+    public boolean compareAndSet(long expect, long update) {
+        return VALUE_UPDATER.compareAndSet(this, expect, update);
+    }
+
+    public long incrementAndGet() {
+        return VALUE_UPDATER.incrementAndGet(this);
+    }
+
+    public long addAndGet(long increment) {
+        return VALUE_UPDATER.addAndGet(this, increment);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(value);
+    }
+}
+
+abstract class SequenceLhsPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class SequenceValue extends SequenceLhsPadding {
+    protected volatile long value;
+}
+
+abstract class SequenceRhsPadding extends SequenceValue {
+    protected long p9, p10, p11, p12, p13, p14, p15;
+}
@@ -1,38 +1,35 @@
 package com.robust.tools.kit.concurrent.type;
 
+import com.robust.tools.kit.base.Validate;
+import com.robust.tools.kit.number.MathUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * @Description: 存储于ThreadLocal的Map, 用于存储上下文.<br/>
  * <p>
- * 但HashMap<String,Object>的存储其实较为低效，在高性能场景下可改为EnumMap<br/>
+ * 被捕获的上下文是不可变的快照({@link Snapshot}), 捕获后的第一次put()才复制出新的Map(写时复制), 未被捕获时原地修改, 因此:<br/>
+ * 1. 提交任务时{@link #capture()}只是取出当前快照的引用, 没有复制与分配.<br/>
+ * 2. 线程池的工作线程在任务执行期间{@link #install(Snapshot)}提交者的快照, 结束后{@link #restore(Snapshot)}原快照,
+ * 使trace id, 租户等信息跨线程池传递. 见{@link #wrap(Runnable)}与ThreadPoolBuilder各Builder的setPropagateContext().<br/>
+ * <p>
+ * 上下文一般只在请求入口写入几次, 之后被读取多次, 写时复制的代价可以忽略.<br/>
  * <p>
- * 1.先定义枚举类，列举所有可能的Key<br/>
- * 2.替换contextMap的创建语句，见下例<br/>
- * 3.修改put()/get()中key的类型<br/>
- *
- * <pre>
- * private static ThreadLocal<Map<MyEnum, Object>> contextMap = new ThreadLocal<Map<MyEnum, Object>>() {
- * 	&#64;Override
- * 	protected Map<MyEnum, Object> initialValue() {
- * 		return new EnumMap<MyEnum, Object>(MyEnum.class);
- * 	}
- * };
- * </pre>
+ * 频繁读取的值应使用类型化的{@link ContextKey}: 值存放在每个线程的Object[]中, 按Key创建时分配的下标直接读写,
+ * 没有String的hash计算与HashMap查找. 数组只在被快照共享后的第一次写入时复制, reset()时原地清空.
  * @Author: robust
  * @CreateDate: 2019/8/6 18:51
  * @Version: 1.0
  */
 public class ThreadLocalContext {
 
-    private static ThreadLocal<Map<String, Object>> contextMap = new ThreadLocal() {
-        @Override
-        protected Object initialValue() {
-            //降低loadFactor减少冲突
-            return new HashMap<>(16, 0.5F);
-        }
-    };
+    private static final Object[] EMPTY_SLOTS = new Object[0];
+
+    private static final ThreadLocal<Holder> contextHolder = ThreadLocal.withInitial(Holder::new);
 
     /**
      * 放入ThreadLocal的上下文信息
@@ -41,7 +38,37 @@ public class ThreadLocalContext {
      * @param value
      */
     public static void put(String key, Object value) {
-        contextMap.get().put(key, value);
+        Holder holder = contextHolder.get();
+        if (holder.valuesShared) {
+            //降低loadFactor减少冲突
+            Map<String, Object> copy = new HashMap<>(Math.max(16, holder.values.size() * 4), 0.5F);
+            copy.putAll(holder.values);
+            holder.values = copy;
+            holder.valuesShared = false;
+        }
+        holder.values.put(key, value);
+        holder.captured = null;
+    }
+
+    /**
+     * 按下标放入上下文信息
+     */
+    public static <T> void put(ContextKey<T> key, T value) {
+        putSlot(key.index, value);
+    }
+
+    private static void putSlot(int index, Object value) {
+        Holder holder = contextHolder.get();
+        Object[] slots = holder.slots;
+        if (index >= slots.length) {
+            slots = Arrays.copyOf(slots, MathUtil.findNextPositivePowerOfTwo(Math.max(index + 1, 8)));
+        } else if (holder.slotsShared) {
+            slots = slots.clone();
+        }
+        slots[index] = value;
+        holder.slots = slots;
+        holder.slotsShared = false;
+        holder.captured = null;
     }
 
     /**
@@ -52,15 +79,170 @@ public class ThreadLocalContext {
      * @return
      */
     public static <T> T get(String key) {
-        return (T) contextMap.get().get(key);
+        @SuppressWarnings("unchecked")
+        T value = (T) contextHolder.get().values.get(key);
+        return value;
+    }
+
+    /**
+     * 按下标取出上下文信息, 未设置时返回null
+     */
+    public static <T> T get(ContextKey<T> key) {
+        Object[] slots = contextHolder.get().slots;
+        int index = key.index;
+        if (index >= slots.length) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) slots[index];
+        return value;
+    }
+
+    /**
+     * 移除按下标存放的上下文信息
+     */
+    public static void remove(ContextKey<?> key) {
+        if (key.index < contextHolder.get().slots.length) {
+            putSlot(key.index, null);
+        }
     }
 
     /**
      * 清理ThreadLocal的Context内容.
      */
     public static void reset() {
-        contextMap.get().clear();
+        Holder holder = contextHolder.get();
+        if (holder.slotsShared) {
+            holder.slots = EMPTY_SLOTS;
+        } else {
+            //数组未被快照引用, 原地清空以便下一个请求复用
+            Arrays.fill(holder.slots, null);
+        }
+        holder.values = Collections.emptyMap();
+        holder.valuesShared = true;
+        holder.captured = null;
+    }
+
+    /**
+     * 取出当前线程上下文的快照, 上下文未修改时返回同一个快照, 不复制数据.
+     */
+    public static Snapshot capture() {
+        Holder holder = contextHolder.get();
+        Snapshot captured = holder.captured;
+        if (captured == null) {
+            captured = new Snapshot(holder.values, holder.slots);
+            holder.valuesShared = true;
+            holder.slotsShared = true;
+            holder.captured = captured;
+        }
+        return captured;
+    }
+
+    /**
+     * 把快照设为当前线程的上下文
+     *
+     * @return 原来的快照, 用于执行结束后{@link #restore(Snapshot)}
+     */
+    public static Snapshot install(Snapshot snapshot) {
+        Validate.notNull(snapshot);
+        Snapshot previous = capture();
+        Holder holder = contextHolder.get();
+        holder.values = snapshot.values;
+        holder.valuesShared = true;
+        holder.slots = snapshot.slots;
+        holder.slotsShared = true;
+        holder.captured = snapshot;
+        return previous;
     }
 
+    /**
+     * 恢复{@link #install(Snapshot)}之前的上下文
+     */
+    public static void restore(Snapshot previous) {
+        install(previous);
+    }
 
+    /**
+     * 在当前(提交者)线程捕获上下文, 返回的Runnable在执行期间使用该上下文, 结束后恢复执行线程原来的上下文.
+     */
+    public static Runnable wrap(Runnable task) {
+        Validate.notNull(task);
+        if (task instanceof ContextRunnable) {
+            return task;
+        }
+        return new ContextRunnable(capture(), task);
+    }
+
+    /**
+     * 同{@link #wrap(Runnable)}
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Validate.notNull(task);
+        Snapshot snapshot = capture();
+        return () -> {
+            Snapshot previous = install(snapshot);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * 上下文的不可变快照
+     */
+    public static final class Snapshot {
+        private final Map<String, Object> values;
+        private final Object[] slots;
+
+        private Snapshot(Map<String, Object> values, Object[] slots) {
+            this.values = values;
+            this.slots = slots;
+        }
+
+        public boolean isEmpty() {
+            if (!values.isEmpty()) {
+                return false;
+            }
+            for (Object slot : slots) {
+                if (slot != null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 当前线程的上下文. valuesShared/slotsShared为true时values/slots被快照引用(或为不可变的空Map), 写入前需复制;
+     * captured缓存未修改时的快照.
+     */
+    private static final class Holder {
+        Map<String, Object> values = Collections.emptyMap();
+        boolean valuesShared = true;
+        Object[] slots = EMPTY_SLOTS;
+        boolean slotsShared = true;
+        Snapshot captured;
+    }
+
+    private static final class ContextRunnable implements Runnable {
+        private final Snapshot snapshot;
+        private final Runnable task;
+
+        ContextRunnable(Snapshot snapshot, Runnable task) {
+            this.snapshot = snapshot;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            Snapshot previous = install(snapshot);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        }
+    }
 }
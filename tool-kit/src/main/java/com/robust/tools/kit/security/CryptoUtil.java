@@ -1,6 +1,7 @@
 package com.robust.tools.kit.security;
 
 import com.robust.tools.kit.base.ExceptionUtil;
+import com.robust.tools.kit.concurrent.ObjectPool;
 import com.robust.tools.kit.number.RandomUtil;
 import com.robust.tools.kit.text.Charsets;
 
@@ -18,6 +19,8 @@ import java.util.Arrays;
  * @Description: 支持HMAC-SHA1消息签名及DES/AES对称加密的工具类
  * <p>
  * 至此和HEX和Base64两种编码方式.
+ * <p>
+ * Mac与Cipher的getInstance()需要查找Provider, 开销较大, 用{@link ObjectPool}重用, 每次使用前init()会重置其状态.
  * @Author: robust
  * @CreateDate: 2019/8/21 16:55
  * @Version: 1.0
@@ -34,6 +37,26 @@ public class CryptoUtil {
 
     private static SecureRandom random = RandomUtil.secureRandom();
 
+    private static final ObjectPool<Mac> HMACSHA1_POOL = ObjectPool.builder(() -> {
+        try {
+            return Mac.getInstance(HMACSHA1_ALG);
+        } catch (GeneralSecurityException e) {
+            throw ExceptionUtil.unchecked(e);
+        }
+    }).setMaxPerThread(2).setMaxShared(64).build();
+    private static final ObjectPool<Cipher> AES_POOL = createCipherPool(AES_ALG);
+    private static final ObjectPool<Cipher> AES_CBC_POOL = createCipherPool(AES_CBC_ALG);
+
+    private static ObjectPool<Cipher> createCipherPool(final String algorithm) {
+        return ObjectPool.builder(() -> {
+            try {
+                return Cipher.getInstance(algorithm);
+            } catch (GeneralSecurityException e) {
+                throw ExceptionUtil.unchecked(e);
+            }
+        }).setMaxPerThread(2).setMaxShared(64).build();
+    }
+
     /*-------------------HMAC-SHA1 function------------------------*/
 
     /**
@@ -45,14 +68,15 @@ public class CryptoUtil {
      */
     public static byte[] hmacSha1(byte[] input, byte[] key) {
         SecretKey secretKey = new SecretKeySpec(key, HMACSHA1_ALG);
-        Mac mac;
+        Mac mac = HMACSHA1_POOL.borrow();
         try {
-            mac = Mac.getInstance(HMACSHA1_ALG);
             mac.init(secretKey);
+            return mac.doFinal(input);
         } catch (GeneralSecurityException e) {
             throw ExceptionUtil.unchecked(e);
+        } finally {
+            HMACSHA1_POOL.release(mac);
         }
-        return mac.doFinal(input);
     }
 
     /**
@@ -134,12 +158,14 @@ public class CryptoUtil {
      */
     private static byte[] aes(byte[] input, byte[] key, int mode) {
         SecretKey secretKey = new SecretKeySpec(key, AES_ALG);
+        Cipher cipher = AES_POOL.borrow();
         try {
-            Cipher cipher = Cipher.getInstance(AES_ALG);
             cipher.init(mode, secretKey);
             return cipher.doFinal(input);
         } catch (GeneralSecurityException e) {
             throw ExceptionUtil.unchecked(e);
+        } finally {
+            AES_POOL.release(cipher);
         }
     }
 
@@ -155,12 +181,14 @@ public class CryptoUtil {
     private static byte[] aes(byte[] input, byte[] key, byte[] iv, int mode) {
         SecretKey secretKey = new SecretKeySpec(key, AES_ALG);
         IvParameterSpec ivParameterSpec = new IvParameterSpec(iv);
+        Cipher cipher = AES_CBC_POOL.borrow();
         try {
-            Cipher cipher = Cipher.getInstance(AES_CBC_ALG);
             cipher.init(mode, secretKey, ivParameterSpec);
             return cipher.doFinal(input);
         } catch (GeneralSecurityException e) {
             throw ExceptionUtil.unchecked(e);
+        } finally {
+            AES_CBC_POOL.release(cipher);
         }
     }
 
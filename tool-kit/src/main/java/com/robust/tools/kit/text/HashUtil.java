@@ -4,6 +4,7 @@ import com.google.common.hash.Hashing;
 import com.robust.tools.kit.base.Validate;
 import com.robust.tools.kit.base.annotation.NotNull;
 import com.robust.tools.kit.base.annotation.Nullable;
+import com.robust.tools.kit.concurrent.ObjectPool;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -17,7 +18,7 @@ import java.util.zip.CRC32;
  * <p>
  * 1、SHA-1, 安全性较高, 返回byte[](可用Encodes进一步编码为Hex, Base64)
  * <p>
- * 性能优化, 使用ThreadLocal的MessageDigest(from ElasticSearch)
+ * 性能优化, 用{@link ObjectPool}重用MessageDigest与读文件的缓冲区(原为ThreadLocal的MessageDigest, from ElasticSearch)
  * <p>
  * 支持带salt并且进行迭代达到更高的安全性.
  * <p>
@@ -34,20 +35,24 @@ public class HashUtil {
 
     public static final int NUMBER_SEED = 1_318_007_700;
 
-    private static final ThreadLocal<MessageDigest> MD5_DIGEST = createThreadLocalMessageDigest("MD5");
-    private static final ThreadLocal<MessageDigest> SHA_1_DIGEST = createThreadLocalMessageDigest("SHA-1");
+    private static final ObjectPool<MessageDigest> MD5_DIGEST = createMessageDigestPool("MD5");
+    private static final ObjectPool<MessageDigest> SHA_1_DIGEST = createMessageDigestPool("SHA-1");
+
+    private static final int FILE_BUFFER_SIZE = 8 * 1024;
+    private static final ObjectPool<byte[]> FILE_BUFFER = ObjectPool.builder(() -> new byte[FILE_BUFFER_SIZE])
+            .setMaxPerThread(1).setMaxShared(64).build();
 
     private static SecureRandom random = new SecureRandom();
 
-    //ThreadLocal重用MessageDigest
-    private static ThreadLocal<MessageDigest> createThreadLocalMessageDigest(final String digest) {
-        return ThreadLocal.withInitial(() -> {
+    //对象池重用MessageDigest, 归还时reset
+    private static ObjectPool<MessageDigest> createMessageDigestPool(final String digest) {
+        return ObjectPool.builder(() -> {
             try {
                 return MessageDigest.getInstance(digest);
             } catch (NoSuchAlgorithmException e) {
-                return null;
+                throw new IllegalStateException(e);
             }
-        });
+        }).setReset(MessageDigest::reset).setMaxPerThread(2).setMaxShared(64).build();
     }
 
     /*-----------------------------SHA1------------------------------*/
@@ -90,7 +95,7 @@ public class HashUtil {
      * @see #generateSalt(int)
      */
     public static byte[] sha1(@NotNull String input, @Nullable byte[] salt, int iterations) {
-        return digest(input.getBytes(Charsets.UTF_8), get(SHA_1_DIGEST), salt, iterations);
+        return digest(input.getBytes(Charsets.UTF_8), SHA_1_DIGEST, salt, iterations);
     }
 
     /**
@@ -99,7 +104,7 @@ public class HashUtil {
      * @see #generateSalt(int)
      */
     public static byte[] sha1(@NotNull byte[] input, @Nullable byte[] salt, int iterations) {
-        return digest(input, get(SHA_1_DIGEST), salt, iterations);
+        return digest(input, SHA_1_DIGEST, salt, iterations);
     }
 
     /**
@@ -132,14 +137,14 @@ public class HashUtil {
      * 对文件进行SHA-1散列.
      */
     public static byte[] sha1File(InputStream input) throws IOException {
-        return digestFile(input, get(SHA_1_DIGEST));
+        return digestFile(input, SHA_1_DIGEST);
     }
 
     /**
      * 对文件进行md5散列，被破解后MD5已较少人用.
      */
     public static byte[] md5File(InputStream input) throws IOException {
-        return digestFile(input, get(MD5_DIGEST));
+        return digestFile(input, MD5_DIGEST);
     }
 
     /**
@@ -154,21 +159,29 @@ public class HashUtil {
         return bytes;
     }
 
-    private static MessageDigest get(ThreadLocal<MessageDigest> messageDigest) {
-        MessageDigest digest = messageDigest.get();
-        digest.reset();
-        return digest;
+    private static byte[] digest(byte[] input, ObjectPool<MessageDigest> pool, byte[] salt, int iterations) {
+        MessageDigest digest = pool.borrow();
+        try {
+            return digest(input, digest, salt, iterations);
+        } finally {
+            pool.release(digest);
+        }
     }
 
-    private static byte[] digestFile(InputStream inputStream, MessageDigest digest) throws IOException {
-        int bufferSize = 8 * 1024;
-        byte[] buffer = new byte[bufferSize];
-        int read = inputStream.read(buffer, 0, bufferSize);
-        while (read > -1) {
-            digest.update(buffer, 0, read);
-            read = inputStream.read(buffer, 0, bufferSize);
+    private static byte[] digestFile(InputStream inputStream, ObjectPool<MessageDigest> pool) throws IOException {
+        MessageDigest digest = pool.borrow();
+        byte[] buffer = FILE_BUFFER.borrow();
+        try {
+            int read = inputStream.read(buffer, 0, FILE_BUFFER_SIZE);
+            while (read > -1) {
+                digest.update(buffer, 0, read);
+                read = inputStream.read(buffer, 0, FILE_BUFFER_SIZE);
+            }
+            return digest.digest();
+        } finally {
+            FILE_BUFFER.release(buffer);
+            pool.release(digest);
         }
-        return digest.digest();
     }
 
     /*-----------------------------基于JDK的CRC32------------------------------*/
@@ -243,4 +256,30 @@ public class HashUtil {
     public static long murmur128AsLong(@NotNull String input) {
         return Hashing.murmur3_128(NUMBER_SEED).hashString(input, Charsets.UTF_8).asLong();
     }
+
+    /*-----------------------------MurmurHash3的finalizer------------------------------*/
+
+    /**
+     * MurmurHash3的fmix32, 打散hashCode的低位, 使相邻的值(如自增id)均匀分布, 用于按2的幂取模选择分段.
+     */
+    public static int mix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * MurmurHash3的fmix64, 使相邻的key(如自增的用户id)均匀分布
+     */
+    public static long mix64(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb93fe53a2c61L;
+        key ^= key >>> 33;
+        return key;
+    }
 }
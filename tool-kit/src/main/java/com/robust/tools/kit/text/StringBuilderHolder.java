@@ -1,5 +1,9 @@
 package com.robust.tools.kit.text;
 
+import com.robust.tools.kit.concurrent.ObjectPool;
+
+import java.lang.ref.SoftReference;
+
 /**
  * @Description: 参考Netty的InternalThreadLocalMap 与 BigDecimal, 放在threadLocal中重用的StringBuilder, 节约StringBuilder内部的char[]
  * <p>
@@ -10,22 +14,28 @@ package com.robust.tools.kit.text;
  * 当StringBuilder在使用过程中，会调用其他可能也使用StringBuilderHolder的子函数时，需要创建独立的Holder, 否则会共同使用公共的Holder
  * <p>
  * 注意：在Netty环境中，使用Netty提供的基于FastThreadLocal的版本
+ * <p>
+ * 嵌套使用或需跨线程重用时, 使用{@link #borrow()}/{@link #release(StringBuilder)}从{@link ObjectPool}借还.
+ * 扩容超过{@link #MAX_RETAINED_CAPACITY}的StringBuilder不再保留, 避免一次大字符串使线程长期占用大数组.
+ * 与ObjectPool的本地缓存一样, ThreadLocal中的StringBuilder通过SoftReference持有, 空闲线程的char[]可在内存紧张时被GC回收.
  * @Author: robust
  * @CreateDate: 2019/8/22 12:56
  * @Version: 1.0
  */
 public class StringBuilderHolder {
+
+    public static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final ObjectPool<StringBuilder> POOL = ObjectPool.builder(() -> new StringBuilder(512))
+            .setReset(sb -> sb.setLength(0)).setValidator(sb -> sb.capacity() <= MAX_RETAINED_CAPACITY).build();
+
     private int initSize;
 
     //全局公共的ThreadLocal StringBuilder
-    private static ThreadLocal<StringBuilder> globalStringBuilder = ThreadLocal.withInitial(() -> {
-        return new StringBuilder(512);
-    });
+    private static ThreadLocal<SoftReference<StringBuilder>> globalStringBuilder = new ThreadLocal<>();
 
     //独立创建的ThreadLocal的StringBuilder
-    private ThreadLocal<StringBuilder> stringBuilder = ThreadLocal.withInitial(() -> {
-        return new StringBuilder(initSize);
-    });
+    private ThreadLocal<SoftReference<StringBuilder>> stringBuilder = new ThreadLocal<>();
 
     /**
      * 创建独立的Holder.
@@ -46,9 +56,21 @@ public class StringBuilderHolder {
      * 重置StringBuilder内部的writerIndex, 而char[]保留不动.
      */
     public static StringBuilder getGlobal() {
-        StringBuilder sb = globalStringBuilder.get();
-        sb.setLength(0);
-        return sb;
+        return get(globalStringBuilder, 512, MAX_RETAINED_CAPACITY);
+    }
+
+    /**
+     * 从对象池借出StringBuilder, 可嵌套使用, 用完后需{@link #release(StringBuilder)}.
+     */
+    public static StringBuilder borrow() {
+        return POOL.borrow();
+    }
+
+    /**
+     * 归还{@link #borrow()}借出的StringBuilder, 归还后不能再使用.
+     */
+    public static void release(StringBuilder sb) {
+        POOL.release(sb);
     }
 
     /**
@@ -57,7 +79,20 @@ public class StringBuilderHolder {
      * 重置StringBuilder内部的writerIndex, 而char[]保留不动.
      */
     public StringBuilder get() {
-        StringBuilder sb = stringBuilder.get();
+        return get(stringBuilder, initSize, Math.max(initSize, MAX_RETAINED_CAPACITY));
+    }
+
+    /**
+     * 已被GC回收或扩容超过maxCapacity时重新创建
+     */
+    private static StringBuilder get(ThreadLocal<SoftReference<StringBuilder>> holder, int initSize,
+                                     int maxCapacity) {
+        SoftReference<StringBuilder> ref = holder.get();
+        StringBuilder sb = ref == null ? null : ref.get();
+        if (sb == null || sb.capacity() > maxCapacity) {
+            sb = new StringBuilder(initSize);
+            holder.set(new SoftReference<>(sb));
+        }
         sb.setLength(0);
         return sb;
     }
@@ -2,6 +2,9 @@ package com.robust.tools.kit.collection;
 
 import com.google.common.collect.EvictingQueue;
 import com.robust.tools.kit.collection.type.MoreQueues;
+import com.robust.tools.kit.collection.type.MpmcArrayQueue;
+import com.robust.tools.kit.collection.type.MpscArrayQueue;
+import com.robust.tools.kit.collection.type.SpscArrayQueue;
 import org.junit.Test;
 
 import java.util.ArrayDeque;
@@ -9,6 +12,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -38,6 +42,15 @@ public class QueueUtilTest {
         LinkedBlockingQueue<String> queue5 = QueueUtil.newLinkedBlockingQueue(100);
         ArrayBlockingQueue<String> queue6 = QueueUtil.newArrayBlockingQueue(100);
         LinkedBlockingDeque<String> queue9 = QueueUtil.newLinkedBlockingDeque(100);
+
+        MpmcArrayQueue<String> queue10 = QueueUtil.newMpmcArrayQueue(100);
+        MpscArrayQueue<String> queue11 = QueueUtil.newMpscArrayQueue(100);
+        SpscArrayQueue<String> queue12 = QueueUtil.newSpscArrayQueue(100);
+        assertThat(queue10.capacity()).isEqualTo(128);
+        BlockingQueue<String> queue13 = QueueUtil.newBlockingMpmcArrayQueue(100);
+        BlockingQueue<String> queue14 = QueueUtil.asBlockingQueue(queue11, queue11.capacity());
+        assertThat(queue14.offer("a")).isTrue();
+        assertThat(queue11.poll()).isEqualTo("a");
     }
 
     @Test
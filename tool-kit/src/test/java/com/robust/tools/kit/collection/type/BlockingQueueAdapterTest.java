@@ -0,0 +1,105 @@
+package com.robust.tools.kit.collection.type;
+
+import com.robust.tools.kit.collection.QueueUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 14:10
+ * @Version: 1.0
+ */
+public class BlockingQueueAdapterTest {
+
+    @Test
+    public void timeouts() throws InterruptedException {
+        BlockingQueue<String> queue = QueueUtil.newBlockingMpmcArrayQueue(2);
+        assertThat(queue.remainingCapacity()).isEqualTo(2);
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+        queue.put("a");
+        assertThat(queue.offer("b", 10, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(queue.offer("c", 10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queue.remainingCapacity()).isZero();
+
+        List<String> drained = new ArrayList<>();
+        assertThat(queue.drainTo(drained, 1)).isEqualTo(1);
+        assertThat(queue.drainTo(drained)).isEqualTo(1);
+        assertThat(drained).containsExactly("a", "b");
+    }
+
+    @Test
+    public void blockingHandOff() throws InterruptedException {
+        BlockingQueue<Long> queue = QueueUtil.newBlockingMpmcArrayQueue(8);
+        int producers = 3;
+        int consumers = 3;
+        int perProducer = 20000;
+        long total = (long) producers * perProducer;
+        AtomicLong sum = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(consumers);
+        for (int c = 0; c < consumers; c++) {
+            new Thread(() -> {
+                try {
+                    for (; ; ) {
+                        long value = queue.take();
+                        if (value < 0) {
+                            break;
+                        }
+                        sum.addAndGet(value);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }).start();
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (long i = 1; i <= perProducer; i++) {
+                        queue.put(base + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int c = 0; c < consumers; c++) {
+            queue.put(-1L);
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(sum.get()).isEqualTo(total * (total + 1) / 2);
+    }
+
+    @Test
+    public void interruptTake() throws InterruptedException {
+        BlockingQueue<String> queue = QueueUtil.newBlockingMpmcArrayQueue(2);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Thread taker = new Thread(() -> {
+            try {
+                queue.take();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        taker.start();
+        TimeUnit.MILLISECONDS.sleep(20);
+        taker.interrupt();
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+}
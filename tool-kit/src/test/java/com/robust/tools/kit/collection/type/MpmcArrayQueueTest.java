@@ -0,0 +1,154 @@
+package com.robust.tools.kit.collection.type;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 14:00
+ * @Version: 1.0
+ */
+public class MpmcArrayQueueTest {
+
+    private static void basic(AbstractArrayQueue<Integer> queue) {
+        assertThat(queue.capacity()).isEqualTo(4);
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.peek()).isNull();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertThat(queue.offer(i)).isTrue();
+            }
+            assertThat(queue.offer(4)).isFalse();
+            assertThat(queue.size()).isEqualTo(4);
+            assertThat(queue).containsExactly(0, 1, 2, 3);
+            assertThat(queue.peek()).isEqualTo(0);
+            for (int i = 0; i < 4; i++) {
+                assertThat(queue.poll()).isEqualTo(i);
+            }
+            assertThat(queue.isEmpty()).isTrue();
+            assertThat(queue.poll()).isNull();
+        }
+    }
+
+    @Test
+    public void singleThread() {
+        // 容量向上取整为2的幂
+        basic(new MpmcArrayQueue<>(3));
+        basic(new MpscArrayQueue<>(4));
+        basic(new SpscArrayQueue<>(4));
+    }
+
+    @Test
+    public void capacityUpperBound() {
+        // 超过2^30时向上取整会溢出, 构造时即拒绝
+        try {
+            new MpmcArrayQueue<Integer>(Integer.MAX_VALUE);
+            fail("expect IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageContaining("2^30");
+        }
+        try {
+            new SpscArrayQueue<Integer>((1 << 30) + 1);
+            fail("expect IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageContaining("2^30");
+        }
+    }
+
+    private static void remove(AbstractArrayQueue<Integer> queue) {
+        for (int i = 0; i < 4; i++) {
+            queue.offer(i);
+        }
+        assertThat(queue.remove((Object) 1)).isTrue();
+        assertThat(queue.remove((Object) 1)).isFalse();
+        assertThat(queue.remove((Object) 9)).isFalse();
+        assertThat(queue).containsExactly(0, 2, 3);
+        // 移除队头后peek跳过空位
+        assertThat(queue.remove((Object) 0)).isTrue();
+        assertThat(queue.peek()).isEqualTo(2);
+        assertThat(queue.removeIf(e -> e == 3)).isTrue();
+        assertThat(queue.poll()).isEqualTo(2);
+        assertThat(queue.poll()).isNull();
+        // 空位在出队后释放, 容量不变
+        for (int i = 0; i < 4; i++) {
+            assertThat(queue.offer(i)).isTrue();
+        }
+        assertThat(queue.offer(4)).isFalse();
+        queue.clear();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void removeElement() {
+        remove(new MpmcArrayQueue<>(4));
+        remove(new MpscArrayQueue<>(4));
+        remove(new SpscArrayQueue<>(4));
+    }
+
+    /**
+     * producers个生产者各写入perProducer个元素, consumers个消费者取出, 校验不丢不重
+     */
+    private static void concurrent(Queue<Long> queue, int producers, int consumers) throws InterruptedException {
+        int perProducer = 100000;
+        long total = (long) producers * perProducer;
+        AtomicLong sum = new AtomicLong();
+        AtomicLong count = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            threads.add(new Thread(() -> {
+                for (long i = 1; i <= perProducer; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                long lastSeen = -1;
+                while (count.get() < total) {
+                    Long value = queue.poll();
+                    if (value == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    // 单生产者时消费顺序与生产顺序一致
+                    if (producers == 1) {
+                        assertThat(value).isGreaterThan(lastSeen);
+                        lastSeen = value;
+                    }
+                    sum.addAndGet(value);
+                    count.incrementAndGet();
+                }
+                done.countDown();
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(count.get()).isEqualTo(total);
+        assertThat(sum.get()).isEqualTo(total * (total + 1) / 2);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void multiThread() throws InterruptedException {
+        concurrent(new MpmcArrayQueue<>(64), 4, 4);
+        concurrent(new MpscArrayQueue<>(64), 4, 1);
+        concurrent(new SpscArrayQueue<>(64), 1, 1);
+    }
+}
@@ -0,0 +1,152 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.concurrent.type.Promise;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 00:40
+ * @Version: 1.0
+ */
+public class AsyncRetryTest {
+
+    @Test
+    public void retryUntilSuccess() throws Exception {
+        AsyncRetry retry = AsyncRetry.builder().setMaxAttempts(5)
+                .setBackoff(1, 10, TimeUnit.MILLISECONDS).build();
+        AtomicInteger calls = new AtomicInteger();
+        Promise<String> result = retry.execute(() -> {
+            if (calls.incrementAndGet() < 3) {
+                return Promise.failure(new IllegalStateException("busy"));
+            }
+            return Promise.success("ok");
+        });
+        assertThat(result.get(2, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(retry.getRetryCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void exhausted() throws Exception {
+        AsyncRetry retry = AsyncRetry.builder().setMaxAttempts(3)
+                .setBackoff(1, 5, TimeUnit.MILLISECONDS).build();
+        AtomicInteger calls = new AtomicInteger();
+        Promise<String> result = retry.execute(() -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("down");
+        });
+        try {
+            result.get(2, TimeUnit.SECONDS);
+            fail("should throw");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).hasMessage("down");
+        }
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(retry.getExhaustedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void predicates() throws Exception {
+        AsyncRetry retry = AsyncRetry.builder().setMaxAttempts(5).setBackoff(1, 5, TimeUnit.MILLISECONDS)
+                .setRetryOnException(t -> !(t instanceof IllegalArgumentException)).build();
+
+        AtomicInteger calls = new AtomicInteger();
+        Promise<String> notRetried = retry.execute(() -> {
+            calls.incrementAndGet();
+            return Promise.failure(new IllegalArgumentException("bad request"));
+        });
+        assertThat(notRetried.isCompletedExceptionally()).isTrue();
+        assertThat(calls.get()).isEqualTo(1);
+
+        // 按结果重试, 耗尽时返回最后一次的结果
+        AtomicInteger codes = new AtomicInteger();
+        Promise<Integer> byResult = retry.execute(() -> Promise.success(codes.incrementAndGet()), code -> code < 10);
+        assertThat(byResult.get(2, TimeUnit.SECONDS)).isEqualTo(5);
+    }
+
+    @Test
+    public void deadlineAndBudget() throws Exception {
+        AsyncRetry withDeadline = AsyncRetry.builder().setMaxAttempts(100)
+                .setBackoff(20, 20, TimeUnit.MILLISECONDS).setDeadline(50, TimeUnit.MILLISECONDS).build();
+        AtomicInteger calls = new AtomicInteger();
+        Promise<Object> result = withDeadline.execute(() -> {
+            calls.incrementAndGet();
+            return Promise.failure(new IllegalStateException());
+        });
+        try {
+            result.get(2, TimeUnit.SECONDS);
+            fail("should throw");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(calls.get()).isLessThan(10);
+
+        // 共享的重试速率上限, 令牌用完后不再重试
+        AsyncRetry withBudget = AsyncRetry.builder().setMaxAttempts(2).setBackoff(1, 1, TimeUnit.MILLISECONDS)
+                .setMaxRetriesPerSecond(1).build();
+        for (int i = 0; i < 5; i++) {
+            withBudget.execute(() -> Promise.failure(new IllegalStateException())).orTimeout(1, TimeUnit.SECONDS)
+                    .handle((v, t) -> t).get();
+        }
+        assertThat(withBudget.getRetryCount()).isEqualTo(1);
+        assertThat(withBudget.getBudgetRejectedCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void nullStageFails() throws Exception {
+        AsyncRetry retry = AsyncRetry.builder().setMaxAttempts(3)
+                .setBackoff(1, 5, TimeUnit.MILLISECONDS).build();
+        AtomicInteger calls = new AtomicInteger();
+        // 重试在Timer线程中发起, 返回null时也要完成Promise
+        Promise<String> result = retry.execute(() -> calls.incrementAndGet() == 1
+                ? Promise.<String>failure(new IllegalStateException("busy")) : null);
+        try {
+            result.get(2, TimeUnit.SECONDS);
+            fail("should throw");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(NullPointerException.class);
+        }
+        assertThat(calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void submitDoesNotBlockWorkers() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            AsyncRetry retry = AsyncRetry.builder().setMaxAttempts(3)
+                    .setBackoff(200, 200, TimeUnit.MILLISECONDS).build();
+            AtomicInteger calls = new AtomicInteger();
+            Promise<String> slow = retry.submit(() -> {
+                if (calls.incrementAndGet() < 2) {
+                    throw new IllegalStateException();
+                }
+                return "retried";
+            }, pool);
+            // 退避期间唯一的工作线程仍可执行其他任务
+            assertThat(pool.submit(() -> "free").get(100, TimeUnit.MILLISECONDS)).isEqualTo("free");
+            assertThat(slow.get(2, TimeUnit.SECONDS)).isEqualTo("retried");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void backoffWithJitter() {
+        AsyncRetry retry = AsyncRetry.builder().setBackoff(100, 1000, TimeUnit.NANOSECONDS).build();
+        for (int i = 0; i < 100; i++) {
+            assertThat(retry.backoffNanos(1)).isBetween(0L, 99L);
+            assertThat(retry.backoffNanos(3)).isBetween(0L, 399L);
+            assertThat(retry.backoffNanos(100)).isBetween(0L, 999L);
+        }
+    }
+}
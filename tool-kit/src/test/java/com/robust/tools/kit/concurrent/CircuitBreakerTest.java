@@ -0,0 +1,207 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.time.ClockUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 21:40
+ * @Version: 1.0
+ */
+public class CircuitBreakerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @After
+    public void tearDown() {
+        ClockUtil.useDefaultClock();
+    }
+
+    @Test
+    public void openOnFailureRate() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock(100000);
+        CircuitBreaker breaker = CircuitBreaker.builder("remote").setFailureRateThreshold(50)
+                .setWindow(CircuitBreaker.WindowType.COUNT_BASED, 10).setMinimumCalls(10)
+                .setWaitDurationInOpen(5, TimeUnit.SECONDS).setPermittedCallsInHalfOpen(2).build();
+
+        for (int i = 0; i < 6; i++) {
+            assertThat(breaker.tryAcquirePermission()).isTrue();
+            breaker.onSuccess(MS);
+        }
+        // 调用数不足minimumCalls时不计算比例
+        for (int i = 0; i < 3; i++) {
+            breaker.onError(MS);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getFailureRate()).isEqualTo(-1);
+
+        // 窗口滚动, 覆盖最早的成功调用: 5失败/10
+        breaker.onError(MS);
+        breaker.onError(MS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+        assertThat(breaker.getNotPermittedCount()).isEqualTo(1);
+
+        // 等待期结束, 只放行两个探测请求
+        clock.increaseTime(5000);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+
+        breaker.onSuccess(MS);
+        breaker.onError(MS);
+        // 1/2失败仍达到阈值, 重新熔断
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        clock.increaseTime(5000);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        breaker.onSuccess(MS);
+        breaker.onSuccess(MS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        // 恢复后窗口清空
+        assertThat(breaker.getFailureRate()).isEqualTo(-1);
+    }
+
+    @Test
+    public void openOnSlowCallRate() {
+        CircuitBreaker breaker = CircuitBreaker.builder("slow").setSlowCallRateThreshold(80)
+                .setSlowCallDuration(100, TimeUnit.MILLISECONDS)
+                .setWindow(CircuitBreaker.WindowType.COUNT_BASED, 5).setMinimumCalls(5).build();
+        breaker.onSuccess(MS);
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(200 * MS);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        breaker.onSuccess(200 * MS);
+        assertThat(breaker.getSlowCallRate()).isEqualTo(80);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void timeBasedWindow() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock(100000);
+        CircuitBreaker breaker = CircuitBreaker.builder("time").setFailureRateThreshold(50)
+                .setWindow(CircuitBreaker.WindowType.TIME_BASED, 10).setMinimumCalls(4).build();
+        breaker.onError(MS);
+        breaker.onError(MS);
+        breaker.onSuccess(MS);
+        assertThat(breaker.getFailureRate()).isEqualTo(-1);
+
+        // 旧的失败滑出窗口
+        clock.increaseTime(10000);
+        breaker.onSuccess(MS);
+        breaker.onSuccess(MS);
+        breaker.onSuccess(MS);
+        breaker.onError(MS);
+        assertThat(breaker.getFailureRate()).isEqualTo(25);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        clock.increaseTime(1000);
+        breaker.onError(MS);
+        breaker.onError(MS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void execute() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.builder("execute").setMinimumCalls(2)
+                .setWindow(CircuitBreaker.WindowType.COUNT_BASED, 2).build();
+        assertThat(breaker.execute(() -> "ok")).isEqualTo("ok");
+        try {
+            breaker.execute(() -> {
+                throw new IllegalStateException("boom");
+            });
+            fail("should throw");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("boom");
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        try {
+            breaker.execute(() -> "ok");
+            fail("should throw");
+        } catch (CircuitBreaker.CallNotPermittedException e) {
+            assertThat(e).hasMessageContaining("execute");
+        }
+    }
+
+    @Test
+    public void executeCountsErrors() throws Exception {
+        CircuitBreaker breaker = CircuitBreaker.builder("error").setMinimumCalls(1)
+                .setWindow(CircuitBreaker.WindowType.COUNT_BASED, 1).build();
+        try {
+            breaker.execute(() -> {
+                throw new AssertionError("fatal");
+            });
+            fail("should throw");
+        } catch (AssertionError e) {
+            assertThat(e).hasMessage("fatal");
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    public void permitTaggedWithState() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock(100000);
+        CircuitBreaker breaker = CircuitBreaker.builder("permit").setMinimumCalls(2)
+                .setWindow(CircuitBreaker.WindowType.COUNT_BASED, 2).setWaitDurationInOpen(5, TimeUnit.SECONDS)
+                .setPermittedCallsInHalfOpen(2).build();
+        CircuitBreaker.Permit closedPermit = breaker.tryAcquire();
+        assertThat(closedPermit.isProbe()).isFalse();
+        breaker.onError(MS);
+        breaker.onError(MS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNull();
+
+        clock.increaseTime(5000);
+        CircuitBreaker.Permit probe1 = breaker.tryAcquire();
+        CircuitBreaker.Permit probe2 = breaker.tryAcquire();
+        assertThat(probe1.isProbe()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        // CLOSED时放行的调用在HALF_OPEN期间结束, 不计为探测
+        closedPermit.onError(MS);
+        // 重复报告被忽略
+        probe1.onSuccess(MS);
+        probe1.onSuccess(MS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        probe2.onSuccess(MS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void leakedProbeDoesNotWedgeHalfOpen() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock(100000);
+        CircuitBreaker breaker = CircuitBreaker.builder("leak").setMinimumCalls(1)
+                .setWindow(CircuitBreaker.WindowType.COUNT_BASED, 1).setWaitDurationInOpen(5, TimeUnit.SECONDS)
+                .setPermittedCallsInHalfOpen(1).setMaxWaitInHalfOpen(10, TimeUnit.SECONDS).build();
+        breaker.onError(MS);
+        clock.increaseTime(5000);
+        // 探测许可被泄漏, 没有报告结果
+        CircuitBreaker.Permit leaked = breaker.tryAcquire();
+        assertThat(leaked).isNotNull();
+        assertThat(breaker.tryAcquire()).isNull();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        // 超过maxWaitInHalfOpen后重新熔断, 等待期结束后开始新一轮探测
+        clock.increaseTime(10000);
+        assertThat(breaker.tryAcquire()).isNull();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        clock.increaseTime(5000);
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertThat(probe).isNotNull();
+        // 上一轮的探测结果不计入新一轮
+        leaked.onError(MS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        probe.onSuccess(MS);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
@@ -0,0 +1,130 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.concurrent.type.Promise;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 20:30
+ * @Version: 1.0
+ */
+public class DataLoaderTest {
+
+    private final List<Set<Integer>> batches = new CopyOnWriteArrayList<>();
+
+    private Promise<Map<Integer, String>> loadBatch(Set<Integer> keys) {
+        batches.add(keys);
+        Map<Integer, String> values = new HashMap<>();
+        for (Integer key : keys) {
+            if (key >= 0) {
+                values.put(key, "v" + key);
+            }
+        }
+        return Promise.success(values);
+    }
+
+    @Test
+    public void batchAndDedupe() throws Exception {
+        DataLoader<Integer, String> loader = DataLoader.<Integer, String>builder(this::loadBatch)
+                .setBatchDelay(1, TimeUnit.MINUTES).build();
+        Promise<String> a = loader.load(1);
+        Promise<String> b = loader.load(2);
+        Promise<String> again = loader.load(1);
+        Promise<String> missing = loader.load(-1);
+        assertThat(again).isSameAs(a);
+        assertThat(a.isDone()).isFalse();
+
+        loader.dispatch();
+        assertThat(a.get()).isEqualTo("v1");
+        assertThat(b.get()).isEqualTo("v2");
+        assertThat(missing.get()).isNull();
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly(1, 2, -1);
+        assertThat(loader.getLoadCount()).isEqualTo(4);
+        assertThat(loader.getBatchKeyCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void dispatchOnSizeAndTimer() throws Exception {
+        DataLoader<Integer, String> loader = DataLoader.<Integer, String>builder(this::loadBatch)
+                .setMaxBatchSize(3).setBatchDelay(20, TimeUnit.MILLISECONDS).build();
+        Promise<List<String>> all = loader.loadMany(Arrays.asList(1, 2, 3, 4));
+        // 前3个key达到maxBatchSize立即发出, 第4个等待Timer
+        assertThat(batches).hasSize(1);
+        assertThat(all.get(5, TimeUnit.SECONDS)).containsExactly("v1", "v2", "v3", "v4");
+        assertThat(batches).hasSize(2);
+        assertThat(loader.getBatchCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void cacheAndFailure() throws Exception {
+        List<Integer> failKeys = new ArrayList<>();
+        failKeys.add(7);
+        DataLoader<Integer, String> loader = DataLoader.<Integer, String>builder(keys -> {
+            if (keys.containsAll(failKeys)) {
+                return Promise.failure(new IOException("backend down"));
+            }
+            return loadBatch(keys);
+        }).setCache(true).setBatchDelay(1, TimeUnit.MINUTES).build();
+
+        Promise<String> first = loader.load(1);
+        loader.dispatch();
+        assertThat(first.get()).isEqualTo("v1");
+        assertThat(loader.load(1)).isSameAs(first);
+        assertThat(loader.getCacheHitCount()).isEqualTo(1);
+
+        Promise<String> failed = loader.load(7);
+        loader.dispatch();
+        try {
+            failed.get();
+            fail("expect ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class);
+        }
+        // 失败的结果不缓存
+        failKeys.clear();
+        failKeys.add(-100);
+        Promise<String> retry = loader.load(7);
+        assertThat(retry).isNotSameAs(failed);
+        loader.dispatch();
+        assertThat(retry.get()).isEqualTo("v7");
+
+        loader.clear(1);
+        assertThat(loader.load(1)).isNotSameAs(first);
+    }
+
+    @Test
+    public void syncLoaderOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DataLoader<Integer, String> loader = DataLoader.<Integer, String>builder(keys -> {
+                Map<Integer, String> values = new HashMap<>();
+                for (Integer key : keys) {
+                    values.put(key, Thread.currentThread().getName());
+                }
+                return values;
+            }, executor).build();
+            String caller = Thread.currentThread().getName();
+            assertThat(loader.load(1).get(5, TimeUnit.SECONDS)).isNotEqualTo(caller);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 17:30
+ * @Version: 1.0
+ */
+public class HashedWheelTimerTest {
+
+    @Test
+    public void expireAndCancel() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(ThreadPoolUtil.buildThreadFactory("timer", true), 10,
+                TimeUnit.MILLISECONDS, 8);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertThat(latch.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(90);
+        assertThat(timeout.isExpired()).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+
+        // 大量注册后取消
+        AtomicInteger fired = new AtomicInteger();
+        List<HashedWheelTimer.Timeout> list = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            list.add(timer.newTimeout(fired::incrementAndGet, 300, TimeUnit.MILLISECONDS));
+        }
+        for (HashedWheelTimer.Timeout t : list) {
+            assertThat(t.cancel()).isTrue();
+        }
+        Thread.sleep(400);
+        assertThat(fired.get()).isEqualTo(0);
+        assertThat(timer.pendingTimeouts()).isEqualTo(0);
+
+        // 超过一轮的任务
+        CountDownLatch rounds = new CountDownLatch(1);
+        timer.newTimeout(rounds::countDown, 200, TimeUnit.MILLISECONDS);
+        assertThat(rounds.await(1, TimeUnit.SECONDS)).isTrue();
+
+        timer.newTimeout(() -> {
+        }, 10, TimeUnit.SECONDS);
+        Set<HashedWheelTimer.Timeout> unprocessed = timer.stop();
+        assertThat(unprocessed).hasSize(1);
+        try {
+            timer.newTimeout(() -> {
+            }, 1, TimeUnit.SECONDS);
+            fail("should reject after stop");
+        } catch (RejectedExecutionException e) {
+            assertThat(e).hasMessageContaining("stopped");
+        }
+    }
+
+    @Test
+    public void cancelOnTimeout() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer(ThreadPoolUtil.buildThreadFactory("timer", true), 10,
+                TimeUnit.MILLISECONDS, 64, 1, null);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        timer.cancelOnTimeout(future, 50, TimeUnit.MILLISECONDS);
+        try {
+            timer.newTimeout(() -> {
+            }, 1, TimeUnit.SECONDS);
+            fail("should reject when exceed maxPendingTimeouts");
+        } catch (RejectedExecutionException e) {
+            assertThat(e).hasMessageContaining("pending timeouts");
+        }
+
+        Thread.sleep(200);
+        assertThat(future.isCancelled()).isTrue();
+        timer.stop();
+    }
+}
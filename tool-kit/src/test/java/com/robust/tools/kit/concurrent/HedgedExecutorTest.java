@@ -0,0 +1,132 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolBuilder;
+import com.robust.tools.kit.concurrent.type.Promise;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 19:30
+ * @Version: 1.0
+ */
+public class HedgedExecutorTest {
+
+    private static final List<String> REPLICAS = Arrays.asList("slow", "fast");
+
+    @Test
+    public void fastPathNoHedge() throws Exception {
+        HedgedExecutor hedged = HedgedExecutor.builder().setDelay(1, TimeUnit.SECONDS).build();
+        Promise<String> promise = hedged.execute(REPLICAS, Promise::success);
+        assertThat(promise.get(1, TimeUnit.SECONDS)).isEqualTo("slow");
+        assertThat(hedged.getHedgeCount()).isZero();
+    }
+
+    @Test
+    public void hedgeWinsAndCancelsLoser() throws Exception {
+        ExecutorService pool = ThreadPoolBuilder.cachedPool().setThreadNamePrefix("hedged-test").build();
+        try {
+            HedgedExecutor hedged = HedgedExecutor.builder().setDelay(20, TimeUnit.MILLISECONDS).build();
+            CountDownLatch loserInterrupted = new CountDownLatch(1);
+            Promise<String> promise = hedged.submit(REPLICAS, replica -> {
+                if ("slow".equals(replica)) {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        loserInterrupted.countDown();
+                    }
+                }
+                return replica;
+            }, pool);
+
+            assertThat(promise.get(5, TimeUnit.SECONDS)).isEqualTo("fast");
+            assertThat(loserInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(hedged.getHedgeCount()).isEqualTo(1);
+            assertThat(hedged.getHedgeWinCount()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failWhenAllLaunchedFailed() throws Exception {
+        HedgedExecutor hedged = HedgedExecutor.builder().setDelay(1, TimeUnit.SECONDS).build();
+        Promise<String> promise = hedged.execute(REPLICAS, replica -> Promise.failure(new IOException(replica)));
+        try {
+            promise.get(1, TimeUnit.SECONDS);
+            fail("expect ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IOException.class).hasMessage("slow");
+        }
+        assertThat(hedged.getHedgeCount()).isZero();
+    }
+
+    @Test
+    public void budgetLimitsHedges() throws Exception {
+        HedgedExecutor hedged = HedgedExecutor.builder().setDelay(0, TimeUnit.MILLISECONDS).setHedgeBudget(10, 2)
+                .build();
+        AtomicInteger fastCalls = new AtomicInteger();
+        Promise<?>[] promises = new Promise<?>[20];
+        for (int i = 0; i < promises.length; i++) {
+            Promise<String> slow = new Promise<>();
+            promises[i] = hedged.execute(REPLICAS, replica -> {
+                if ("slow".equals(replica)) {
+                    return slow;
+                }
+                fastCalls.incrementAndGet();
+                return Promise.success(replica);
+            });
+        }
+        // 等待对冲的Timer触发完毕
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hedged.getHedgeCount() + hedged.getBudgetRejectedCount() < 20
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // 初始2次突发, 桶满时存入的令牌被丢弃, 之后20个请求最多存入2次
+        assertThat(hedged.getHedgeCount()).isBetween(2L, 4L);
+        assertThat(hedged.getHedgeCount() + hedged.getBudgetRejectedCount()).isEqualTo(20);
+        assertThat(fastCalls.get()).isEqualTo((int) hedged.getHedgeCount());
+        for (Promise<?> promise : promises) {
+            promise.cancel(true);
+        }
+    }
+
+    @Test
+    public void adaptiveDelay() throws Exception {
+        HedgedExecutor hedged = HedgedExecutor.builder().setDelay(500, TimeUnit.MILLISECONDS)
+                .setAdaptiveDelay(95, 16).build();
+        assertThat(hedged.getDelayMillis()).isEqualTo(500);
+        for (int i = 0; i < 16; i++) {
+            hedged.execute(REPLICAS, Promise::success).get();
+        }
+        // 样本足够后改用p95
+        assertThat(hedged.getDelayMillis()).isLessThan(500);
+    }
+
+    @Test
+    public void adaptiveDelayIncludesHedgeDelay() throws Exception {
+        HedgedExecutor hedged = HedgedExecutor.builder().setDelay(50, TimeUnit.MILLISECONDS)
+                .setAdaptiveDelay(95, 16).setHedgeBudget(100, 100).build();
+        for (int i = 0; i < 16; i++) {
+            // 第一个目标永不完成, 每次都由对冲胜出
+            hedged.execute(REPLICAS, replica -> "slow".equals(replica) ? new Promise<String>()
+                    : Promise.success(replica)).get(5, TimeUnit.SECONDS);
+        }
+        assertThat(hedged.getHedgeCount()).isEqualTo(16);
+        // 耗时从请求开始计算, 包含已等待的对冲延迟, 百分位不会缩小到接近0
+        assertThat(hedged.getDelayMillis()).isGreaterThanOrEqualTo(40);
+    }
+}
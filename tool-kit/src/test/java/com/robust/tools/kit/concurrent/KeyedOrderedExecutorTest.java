@@ -0,0 +1,142 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolBuilder;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 15:05
+ * @Version: 1.0
+ */
+public class KeyedOrderedExecutorTest {
+
+    @Test
+    public void keepOrderPerKey() throws InterruptedException {
+        ThreadPoolExecutor pool = ThreadPoolBuilder.fixedPool().setPoolSize(4).build();
+        KeyedOrderedExecutor<Integer> executor = new KeyedOrderedExecutor<>(pool, 8);
+
+        int keys = 10;
+        int tasksPerKey = 1000;
+        List<List<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < keys; i++) {
+            // 同一Key的任务串行执行, 因此无需线程安全的List
+            results.add(new ArrayList<>());
+        }
+        CountDownLatch done = new CountDownLatch(keys * tasksPerKey);
+        for (int j = 0; j < tasksPerKey; j++) {
+            for (int i = 0; i < keys; i++) {
+                final int key = i;
+                final int value = j;
+                executor.execute(key, () -> {
+                    results.get(key).add(value);
+                    done.countDown();
+                });
+            }
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+
+        for (List<Integer> result : results) {
+            assertThat(result).hasSize(tasksPerKey);
+            for (int j = 0; j < tasksPerKey; j++) {
+                assertThat(result.get(j)).isEqualTo(j);
+            }
+        }
+
+        // 空闲的Key会被回收
+        for (int i = 0; i < 100 && executor.getActiveKeyCount() > 0; i++) {
+            ThreadUtil.sleep(10);
+        }
+        assertThat(executor.getActiveKeyCount()).isEqualTo(0);
+        ThreadPoolUtil.gracefulShutdown(pool, 1000);
+    }
+
+    @Test
+    public void slowKeyNotBlockOthers() throws InterruptedException {
+        ThreadPoolExecutor pool = ThreadPoolBuilder.fixedPool().setPoolSize(2).build();
+        KeyedOrderedExecutor<String> executor = new KeyedOrderedExecutor<>(pool);
+
+        CountDownLatch block = new CountDownLatch(1);
+        executor.execute("slow", () -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CountDownLatch fast = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            executor.executorFor("fast-" + (i % 5)).execute(fast::countDown);
+        }
+        assertThat(fast.await(5, TimeUnit.SECONDS)).isTrue();
+
+        block.countDown();
+        ThreadPoolUtil.gracefulShutdown(pool, 1000);
+    }
+
+    @Test
+    public void rejectionKeepsAcceptedTasks() throws Exception {
+        CountDownLatch inDelegate = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        AtomicBoolean rejectNext = new AtomicBoolean(true);
+        Executor delegate = command -> {
+            if (rejectNext.compareAndSet(true, false)) {
+                inDelegate.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new RejectedExecutionException("full");
+            }
+            command.run();
+        };
+        KeyedOrderedExecutor<String> executor = new KeyedOrderedExecutor<>(delegate);
+        List<String> ran = new CopyOnWriteArrayList<>();
+        AtomicReference<String> runner = new AtomicReference<>();
+
+        // 调度任务链时被拒绝, 期间另一线程提交的任务已被接受
+        Thread other = new Thread(() -> {
+            try {
+                inDelegate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor.execute("k", () -> {
+                ran.add("b");
+                runner.set(Thread.currentThread().getName());
+            });
+            proceed.countDown();
+        });
+        other.start();
+        try {
+            executor.execute("k", () -> ran.add("a"));
+            fail("expect RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        other.join();
+        assertThat(ran).containsExactly("b");
+        assertThat(runner.get()).isEqualTo(Thread.currentThread().getName());
+        assertThat(executor.getActiveKeyCount()).isZero();
+
+        executor.execute("k", () -> ran.add("c"));
+        assertThat(ran).containsExactly("b", "c");
+    }
+}
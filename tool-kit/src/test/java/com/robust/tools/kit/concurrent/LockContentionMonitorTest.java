@@ -0,0 +1,110 @@
+package com.robust.tools.kit.concurrent;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 12:10
+ * @Version: 1.0
+ */
+public class LockContentionMonitorTest {
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        while (thread.getState() != state) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+    }
+
+    @Test
+    public void monitorLock() throws Exception {
+        Object monitor = new Object();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread owner;
+        Thread waiter = new Thread(() -> {
+            synchronized (monitor) {
+                // 只为进入monitor
+                monitor.hashCode();
+            }
+        }, "contention-waiter");
+        synchronized (monitor) {
+            owner = Thread.currentThread();
+            waiter.start();
+            awaitState(waiter, Thread.State.BLOCKED);
+
+            LockContentionMonitor lockMonitor = LockContentionMonitor.builder()
+                    .setThreadNamePrefixes("contention-").setReportThreshold(0, TimeUnit.MILLISECONDS)
+                    .setThreadDump(false).build();
+            lockMonitor.poll();
+            TimeUnit.MILLISECONDS.sleep(50);
+            lockMonitor.poll();
+
+            List<LockContentionMonitor.LockStats> top = lockMonitor.getTopLocks();
+            assertThat(top).hasSize(1);
+            assertThat(top.get(0).getLockName()).startsWith("java.lang.Object@");
+            assertThat(top.get(0).getContendedCount()).isEqualTo(2);
+            assertThat(top.get(0).getLastOwner()).isEqualTo(owner.getName());
+
+            List<LockContentionMonitor.ThreadStats> threads = lockMonitor.getLastThreadStats();
+            assertThat(threads).hasSize(1);
+            assertThat(threads.get(0).getThreadName()).isEqualTo("contention-waiter");
+            assertThat(threads.get(0).getContendedLock()).isEqualTo(top.get(0).getLockName());
+            release.countDown();
+        }
+        waiter.join();
+    }
+
+    @Test
+    public void reentrantLockAndTopN() throws Exception {
+        ReentrantLock hot = new ReentrantLock();
+        ReentrantLock cold = new ReentrantLock();
+        hot.lock();
+        cold.lock();
+        Thread[] waiters = new Thread[3];
+        try {
+            for (int i = 0; i < waiters.length; i++) {
+                ReentrantLock lock = i < 2 ? hot : cold;
+                waiters[i] = new Thread(() -> {
+                    lock.lock();
+                    lock.unlock();
+                }, "juc-waiter-" + i);
+                waiters[i].start();
+                awaitState(waiters[i], Thread.State.WAITING);
+            }
+            // 空闲的池线程在Condition上等待, 不算竞争
+            Thread idle = new Thread(() -> {
+                try {
+                    new CountDownLatch(1).await(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "juc-idle");
+            idle.start();
+            awaitState(idle, Thread.State.TIMED_WAITING);
+
+            LockContentionMonitor monitor = LockContentionMonitor.builder().setThreadNamePrefixes("juc-")
+                    .setTopN(1).setThreadDump(false).build();
+            monitor.poll();
+            List<LockContentionMonitor.LockStats> top = monitor.getTopLocks();
+            assertThat(top).hasSize(1);
+            assertThat(top.get(0).getLockName()).contains("ReentrantLock");
+            assertThat(top.get(0).getContendedCount()).isEqualTo(2);
+            assertThat(top.get(0).getLastOwner()).isEqualTo(Thread.currentThread().getName());
+            assertThat(monitor.getLastThreadStats()).extracting("threadName").doesNotContain("juc-idle");
+            idle.join();
+        } finally {
+            hot.unlock();
+            cold.unlock();
+            for (Thread waiter : waiters) {
+                waiter.join();
+            }
+        }
+    }
+}
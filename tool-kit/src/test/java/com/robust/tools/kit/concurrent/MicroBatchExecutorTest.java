@@ -0,0 +1,133 @@
+package com.robust.tools.kit.concurrent;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 13:55
+ * @Version: 1.0
+ */
+public class MicroBatchExecutorTest {
+
+    @Test
+    public void batch() throws InterruptedException {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        AtomicInteger sum = new AtomicInteger();
+        MicroBatchExecutor<Integer> batcher = MicroBatchExecutor.<Integer>builder(items -> {
+            batchSizes.add(items.size());
+            for (Integer item : items) {
+                sum.addAndGet(item);
+            }
+        }).setBatchSize(50).setLinger(50, TimeUnit.MILLISECONDS).setQueueSize(1000)
+                .setThreadNamePrefix("batcher").build();
+
+        for (int i = 1; i <= 500; i++) {
+            batcher.put(i);
+        }
+        assertThat(batcher.shutdownAndAwait(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(sum.get()).isEqualTo(500 * 501 / 2);
+        assertThat(batcher.getItemCount()).isEqualTo(500);
+        for (Integer size : batchSizes) {
+            assertThat(size).isLessThanOrEqualTo(50);
+        }
+        assertThat(batcher.getBatchCount()).isLessThan(500);
+        assertThat(batcher.getAverageBatchSize()).isGreaterThan(1);
+
+        assertThat(batcher.offer(1)).isFalse();
+    }
+
+    @Test
+    public void linger() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        MicroBatchExecutor<String> batcher = MicroBatchExecutor.<String>builder(items -> latch.countDown())
+                .setBatchSize(100).setLinger(20, TimeUnit.MILLISECONDS).build();
+
+        // 凑不满一批时, 等待linger时间后仍会提交
+        assertThat(batcher.offer("a")).isTrue();
+        assertThat(latch.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(batcher.getMaxLingerMillis()).isGreaterThanOrEqualTo(19);
+        batcher.shutdown();
+    }
+
+    @Test
+    public void backpressure() throws InterruptedException {
+        CountDownLatch block = new CountDownLatch(1);
+        MicroBatchExecutor<Integer> batcher = MicroBatchExecutor.<Integer>builder(items -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).setBatchSize(1).setLinger(0, TimeUnit.MILLISECONDS).setQueueSize(2).build();
+
+        batcher.put(1);
+        // 等待消费线程取走第一条并阻塞在handler中
+        while (batcher.getQueueSize() > 0) {
+            ThreadUtil.sleep(1);
+        }
+        assertThat(batcher.offer(2)).isTrue();
+        assertThat(batcher.offer(3)).isTrue();
+        assertThat(batcher.offer(4)).isFalse();
+        assertThat(batcher.offer(4, 10, TimeUnit.MILLISECONDS)).isFalse();
+
+        block.countDown();
+        assertThat(batcher.shutdownAndAwait(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(batcher.getItemCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shutdownDoesNotInterruptHandler() throws InterruptedException {
+        CountDownLatch inHandler = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        MicroBatchExecutor<Integer> batcher = MicroBatchExecutor.<Integer>builder(items -> {
+            inHandler.countDown();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+            }
+        }).setBatchSize(1).setLinger(0, TimeUnit.MILLISECONDS).build();
+        batcher.put(1);
+        assertThat(inHandler.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(batcher.shutdownAndAwait(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(interrupted.get()).isZero();
+        assertThat(batcher.getItemCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void offerRacingShutdown() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            AtomicInteger handled = new AtomicInteger();
+            MicroBatchExecutor<Integer> batcher = MicroBatchExecutor.<Integer>builder(items -> handled.addAndGet(
+                    items.size())).setBatchSize(16).setLinger(0, TimeUnit.MILLISECONDS).build();
+            AtomicInteger accepted = new AtomicInteger();
+            Thread producer = new Thread(() -> {
+                while (!batcher.isShutdown()) {
+                    if (batcher.offer(1)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                // 关闭后的数据被拒绝
+                if (batcher.offer(1)) {
+                    accepted.incrementAndGet();
+                }
+            });
+            producer.start();
+            Thread.sleep(1);
+            assertThat(batcher.shutdownAndAwait(5, TimeUnit.SECONDS)).isTrue();
+            producer.join(5000);
+            // 被接受的数据都已处理
+            assertThat(handled.get()).isEqualTo(accepted.get());
+        }
+    }
+}
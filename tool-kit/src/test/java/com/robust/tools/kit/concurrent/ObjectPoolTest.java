@@ -0,0 +1,92 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.text.StringBuilderHolder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 15:30
+ * @Version: 1.0
+ */
+public class ObjectPoolTest {
+
+    @Test
+    public void localCacheAndReset() {
+        ObjectPool<StringBuilder> pool = ObjectPool.builder(StringBuilder::new)
+                .setReset(sb -> sb.setLength(0)).setValidator(sb -> sb.capacity() <= 1024).build();
+        StringBuilder sb = pool.borrow();
+        sb.append("dirty");
+        pool.release(sb);
+
+        StringBuilder again = pool.borrow();
+        assertThat(again).isSameAs(sb);
+        assertThat(again.length()).isZero();
+        assertThat(pool.getCreatedCount()).isEqualTo(1);
+
+        // 扩容过大的对象被丢弃
+        again.append(new char[2048]);
+        pool.release(again);
+        assertThat(pool.getDroppedCount()).isEqualTo(1);
+        assertThat(pool.borrow()).isNotSameAs(sb);
+    }
+
+    @Test
+    public void sharedOverflow() throws Exception {
+        ObjectPool<Object> pool = ObjectPool.builder(Object::new).setMaxPerThread(2).setMaxShared(4).build();
+        List<Object> borrowed = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            borrowed.add(pool.borrow());
+        }
+        // 2个进入本地缓存, 4个进入共享队列, 其余丢弃
+        for (Object obj : borrowed) {
+            pool.release(obj);
+        }
+        assertThat(pool.getSharedSize()).isEqualTo(4);
+        assertThat(pool.getDroppedCount()).isEqualTo(2);
+
+        // 其他线程从共享队列重用
+        List<Object> reused = new ArrayList<>();
+        Thread thread = new Thread(() -> {
+            for (int i = 0; i < 4; i++) {
+                reused.add(pool.borrow());
+            }
+        });
+        thread.start();
+        thread.join();
+        assertThat(borrowed).containsAll(reused);
+        assertThat(pool.getCreatedCount()).isEqualTo(8);
+        assertThat(pool.getSharedSize()).isZero();
+    }
+
+    @Test
+    public void leakDetection() throws Exception {
+        ObjectPool<byte[]> pool = ObjectPool.builder(() -> new byte[1024]).setLeakSampleInterval(1).build();
+        pool.release(pool.borrow());
+        // 借出后不归还
+        pool.borrow();
+        for (int i = 0; i < 50 && pool.getLeakCount() == 0; i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(20);
+            pool.release(pool.borrow());
+        }
+        assertThat(pool.getLeakCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void stringBuilderHolder() {
+        StringBuilder outer = StringBuilderHolder.borrow();
+        StringBuilder inner = StringBuilderHolder.borrow();
+        assertThat(inner).isNotSameAs(outer);
+        outer.append("a");
+        StringBuilderHolder.release(inner);
+        StringBuilderHolder.release(outer);
+        assertThat(StringBuilderHolder.borrow().length()).isZero();
+    }
+}
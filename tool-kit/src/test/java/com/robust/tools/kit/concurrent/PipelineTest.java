@@ -0,0 +1,166 @@
+package com.robust.tools.kit.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 18:30
+ * @Version: 1.0
+ */
+public class PipelineTest {
+
+    @Test
+    public void transformFilterAndDrain() throws InterruptedException {
+        List<String> output = Collections.synchronizedList(new ArrayList<>());
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder("test")
+                .stage("filter", 2, i -> i % 2 == 0 ? i : null)
+                .stage("format", 4, i -> {
+                    if (i == 10) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return "v" + i;
+                })
+                .sink("collect", 2, output::add);
+
+        for (int i = 0; i < 100; i++) {
+            pipeline.put(i);
+        }
+        assertThat(pipeline.shutdownAndAwait(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(pipeline.isShutdown()).isTrue();
+        assertThat(pipeline.offer(1)).isFalse();
+
+        assertThat(output).hasSize(49).contains("v0", "v98").doesNotContain("v1", "v10");
+
+        List<Pipeline.StageStats> stats = pipeline.getStats();
+        assertThat(stats).hasSize(3);
+        assertThat(stats.get(0).getProcessedCount()).isEqualTo(100);
+        assertThat(stats.get(0).getFilteredCount()).isEqualTo(50);
+        assertThat(stats.get(1).getProcessedCount()).isEqualTo(50);
+        assertThat(stats.get(1).getErrorCount()).isEqualTo(1);
+        assertThat(stats.get(2).getProcessedCount()).isEqualTo(49);
+        assertThat(stats.get(2).getQueueSize()).isZero();
+    }
+
+    @Test
+    public void preserveOrder() throws InterruptedException {
+        List<Integer> output = new ArrayList<>();
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder("ordered").setOrdered(true).setQueueSize(16)
+                .stage("shuffle", 8, i -> {
+                    try {
+                        Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return i % 3 == 0 ? null : i;
+                })
+                .stage("identity", 4, i -> i)
+                .sink("collect", 1, output::add);
+
+        for (int i = 0; i < 300; i++) {
+            pipeline.put(i);
+        }
+        assertThat(pipeline.shutdownAndAwait(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(output).hasSize(200);
+        for (int i = 1; i < output.size(); i++) {
+            assertThat(output.get(i)).isGreaterThan(output.get(i - 1));
+        }
+    }
+
+    @Test
+    public void backpressure() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder("slow").setQueueSize(2)
+                .sink("block", 1, i -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (pipeline.offer(i, 50, TimeUnit.MILLISECONDS)) {
+                accepted++;
+            }
+        }
+        // 一条在处理中, 两条在队列中
+        assertThat(accepted).isEqualTo(3);
+        assertThat(pipeline.getStats().get(0).getQueueSize()).isEqualTo(2);
+
+        release.countDown();
+        assertThat(pipeline.shutdownAndAwait(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(pipeline.getStats().get(0).getProcessedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void offerRacingShutdown() throws InterruptedException {
+        for (int round = 0; round < 10; round++) {
+            AtomicInteger handled = new AtomicInteger();
+            Pipeline<Integer> pipeline = Pipeline.<Integer>builder("race").setQueueSize(16)
+                    .stage("inc", 2, i -> i + 1)
+                    .sink("count", 1, i -> handled.incrementAndGet());
+            AtomicInteger accepted = new AtomicInteger();
+            Thread producer = new Thread(() -> {
+                while (!pipeline.isShutdown()) {
+                    if (pipeline.offer(1)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            producer.start();
+            Thread.sleep(1);
+            assertThat(pipeline.shutdownAndAwait(10, TimeUnit.SECONDS)).isTrue();
+            producer.join(5000);
+            // 被接受的数据都已输出
+            assertThat(handled.get()).isEqualTo(accepted.get());
+        }
+    }
+
+    @Test
+    public void orderedOfferTimeoutWhilePutBlocked() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Pipeline<Integer> pipeline = Pipeline.<Integer>builder("ordered").setQueueSize(1).setOrdered(true)
+                .sink("block", 1, i -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        pipeline.put(1);
+        pipeline.put(2);
+        // 队列已满, put()持有提交锁阻塞
+        Thread putter = new Thread(() -> {
+            try {
+                pipeline.put(3);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        putter.start();
+        Thread.sleep(50);
+
+        long start = System.nanoTime();
+        assertThat(pipeline.offer(4, 50, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(pipeline.offer(4)).isFalse();
+
+        release.countDown();
+        putter.join(5000);
+        assertThat(pipeline.shutdownAndAwait(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(pipeline.getStats().get(0).getProcessedCount()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,107 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.time.ClockUtil;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 17:30
+ * @Version: 1.0
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void coalesceConcurrentCalls() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger invocations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<Integer> leader = executor.submit(() -> flight.execute("key", () -> {
+                started.countDown();
+                release.await();
+                return invocations.incrementAndGet();
+            }));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<Integer>> followers = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                followers.add(executor.submit(() -> flight.execute("key", invocations::incrementAndGet)));
+            }
+            // 等待全部follower加入进行中的调用
+            long deadline = System.currentTimeMillis() + 10000;
+            while (flight.getSuppressedCount() < 7 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertThat(leader.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+            for (Future<Integer> follower : followers) {
+                assertThat(follower.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(invocations.get()).isEqualTo(1);
+        assertThat(flight.getExecutedCount()).isEqualTo(1);
+        assertThat(flight.getSuppressedCount()).isEqualTo(7);
+        assertThat(flight.size()).isZero();
+
+        // 调用结束后重新执行
+        assertThat(flight.execute("key", invocations::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    public void shareException() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>(1, TimeUnit.MINUTES);
+        try {
+            flight.execute("key", () -> {
+                throw new IOException("boom");
+            });
+            fail("expect IOException");
+        } catch (IOException e) {
+            assertThat(e).hasMessage("boom");
+        }
+        // 失败的结果不保留
+        assertThat(flight.size()).isZero();
+        assertThat(flight.execute("key", () -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    public void resultTtl() throws Exception {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock();
+        try {
+            SingleFlight<String, Integer> flight = new SingleFlight<>(10, TimeUnit.SECONDS);
+            AtomicInteger invocations = new AtomicInteger();
+
+            assertThat(flight.execute("key", invocations::incrementAndGet)).isEqualTo(1);
+            assertThat(flight.execute("key", invocations::incrementAndGet)).isEqualTo(1);
+            assertThat(flight.getCachedCount()).isEqualTo(1);
+
+            clock.increaseTime(10000);
+            assertThat(flight.execute("key", invocations::incrementAndGet)).isEqualTo(2);
+
+            flight.forget("key");
+            assertThat(flight.execute("key", invocations::incrementAndGet)).isEqualTo(3);
+            assertThat(flight.getExecutedCount()).isEqualTo(3);
+        } finally {
+            ClockUtil.useDefaultClock();
+        }
+    }
+}
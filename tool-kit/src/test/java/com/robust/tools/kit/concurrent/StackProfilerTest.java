@@ -0,0 +1,128 @@
+package com.robust.tools.kit.concurrent;
+
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolBuilder;
+import com.robust.tools.kit.concurrent.threadpool.ThreadPoolUtil;
+import com.robust.tools.kit.io.FileUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 11:10
+ * @Version: 1.0
+ */
+public class StackProfilerTest {
+
+    private static void parkInProfiledMethod(CountDownLatch started, CountDownLatch stop) {
+        started.countDown();
+        try {
+            stop.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void sampleAndExport() throws Exception {
+        ThreadPoolExecutor pool = ThreadPoolBuilder.fixedPool().setPoolSize(2)
+                .setThreadNamePrefix("profiled").build();
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch stop = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            pool.execute(() -> parkInProfiledMethod(started, stop));
+        }
+        started.await();
+        File file = File.createTempFile("profile", ".collapsed");
+        try {
+            StackProfiler profiler = StackProfiler.builder().setThreadNamePrefixes("profiled")
+                    .setInterval(5, TimeUnit.MILLISECONDS).setExportFile(file).build();
+            for (int i = 0; i < 3; i++) {
+                profiler.sample();
+            }
+            assertThat(profiler.getSampleCount()).isEqualTo(6);
+            assertThat(profiler.getTruncatedCount()).isZero();
+
+            profiler.exportCollapsed(file);
+            List<String> lines = FileUtil.toLines(file);
+            // 两个线程的栈相同, 聚合为一行
+            assertThat(lines).hasSize(1);
+            assertThat(lines.get(0)).startsWith("profiled;java.lang.Thread.run;")
+                    .contains("StackProfilerTest.parkInProfiledMethod;").endsWith(" 6");
+
+            // 后台采样
+            profiler.reset();
+            profiler.start();
+            TimeUnit.MILLISECONDS.sleep(200);
+            profiler.stop();
+            assertThat(profiler.getSampleCount()).isGreaterThan(2);
+            assertThat(FileUtil.toString(file)).contains("parkInProfiledMethod");
+        } finally {
+            stop.countDown();
+            ThreadPoolUtil.gracefulShutdown(pool, 1000);
+            file.delete();
+        }
+    }
+
+    @Test
+    public void boundedTrie() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stop = new CountDownLatch(1);
+        Thread thread = new Thread(() -> parkInProfiledMethod(started, stop), "bounded-1");
+        thread.start();
+        started.await();
+        try {
+            StackProfiler profiler = StackProfiler.builder().setThreadNamePrefixes("bounded-")
+                    .setMaxNodes(3).build();
+            profiler.sample();
+            assertThat(profiler.getNodeCount()).isEqualTo(3);
+            assertThat(profiler.getTruncatedCount()).isEqualTo(1);
+
+            StringWriter writer = new StringWriter();
+            profiler.writeCollapsed(writer);
+            // 截断到已有的最深节点
+            assertThat(writer.toString().trim()).matches("bounded-;java\\.lang\\.Thread\\.run;[^;]+ 1");
+        } finally {
+            stop.countDown();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void deepStackTruncated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch stop = new CountDownLatch(1);
+        Thread thread = new Thread(() -> parkInProfiledMethod(started, stop), "deep-1");
+        thread.start();
+        started.await();
+        while (thread.getState() != Thread.State.WAITING) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        try {
+            StackProfiler profiler = StackProfiler.builder().setThreadNamePrefixes("deep-")
+                    .setMaxDepth(3).build();
+            profiler.sample();
+            profiler.sample();
+            assertThat(profiler.getTruncatedCount()).isZero();
+
+            StringWriter writer = new StringWriter();
+            profiler.writeCollapsed(writer);
+            // 栈底以截断帧代替, 只保留栈顶的3帧
+            String line = writer.toString().trim();
+            assertThat(line).startsWith("deep-;" + StackProfiler.TRUNCATED_FRAME + ";").endsWith(" 2")
+                    .doesNotContain("java.lang.Thread.run");
+            assertThat(line.split(";")).hasSize(5);
+        } finally {
+            stop.countDown();
+            thread.join();
+        }
+    }
+}
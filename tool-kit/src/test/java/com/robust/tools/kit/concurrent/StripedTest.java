@@ -0,0 +1,144 @@
+package com.robust.tools.kit.concurrent;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 16:30
+ * @Version: 1.0
+ */
+public class StripedTest {
+
+    @Test
+    public void sameKeySameStripe() {
+        Striped<Lock> striped = ConcurrentUtil.stripedLock(100);
+        assertThat(striped.size()).isEqualTo(128);
+        assertThat(striped.get("key")).isSameAs(striped.get("key"));
+        assertThat(striped.get("key")).isSameAs(striped.getAt(striped.indexFor("key")));
+
+        Striped<ReadWriteLock> rw = ConcurrentUtil.stripedReadWriteLock(16);
+        assertThat(rw.get(1)).isSameAs(rw.get(1));
+    }
+
+    @Test
+    public void spreadKeys() {
+        Striped<Lock> striped = ConcurrentUtil.stripedLock(64);
+        boolean[] used = new boolean[striped.size()];
+        for (int i = 0; i < 1000; i++) {
+            used[striped.indexFor(i)] = true;
+        }
+        int count = 0;
+        for (boolean u : used) {
+            if (u) {
+                count++;
+            }
+        }
+        assertThat(count).isEqualTo(64);
+    }
+
+    @Test
+    public void bulkGetSortedByIndex() {
+        Striped<Lock> striped = ConcurrentUtil.stripedLock(64);
+        List<Object> keys = Arrays.asList("a", "b", "c", "d", "e", "a");
+        List<Lock> locks = striped.bulkGet(keys);
+        assertThat(locks).hasSize(6);
+
+        int previous = -1;
+        for (Lock lock : locks) {
+            int index = -1;
+            for (int i = 0; i < striped.size(); i++) {
+                if (striped.getAt(i) == lock) {
+                    index = i;
+                    break;
+                }
+            }
+            assertThat(index).isGreaterThanOrEqualTo(previous);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void stripedCounter() throws InterruptedException {
+        Striped<AtomicLong> counter = ConcurrentUtil.stripedCounter(8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    counter.get("hot").incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(counter.get("hot").get()).isEqualTo(40000);
+    }
+
+    @Test
+    public void semaphorePermits() {
+        Striped<Semaphore> striped = ConcurrentUtil.stripedSemaphore(4, 2);
+        Semaphore semaphore = striped.get("user");
+        assertThat(semaphore.tryAcquire()).isTrue();
+        assertThat(semaphore.tryAcquire()).isTrue();
+        assertThat(striped.get("user").tryAcquire()).isFalse();
+        semaphore.release(2);
+    }
+
+    @Test
+    public void lazyWeakStripes() {
+        Striped<Lock> striped = ConcurrentUtil.lazyWeakStripedLock(1 << 20);
+        assertThat(striped.size()).isEqualTo(1 << 20);
+        Lock lock = striped.get("key");
+        lock.lock();
+        try {
+            System.gc();
+            assertThat(striped.get("key")).isSameAs(lock);
+        } finally {
+            lock.unlock();
+        }
+
+        Striped<ReadWriteLock> rw = ConcurrentUtil.lazyWeakStripedReadWriteLock(1024);
+        Lock read = rw.get("key").readLock();
+        read.lock();
+        try {
+            System.gc();
+            assertThat(rw.get("key").writeLock().tryLock()).isFalse();
+        } finally {
+            read.unlock();
+        }
+        assertThat(rw.get("key").writeLock().tryLock()).isTrue();
+
+        Striped<Semaphore> semaphores = ConcurrentUtil.lazyWeakStripedSemaphore(1024, 1);
+        Semaphore semaphore = semaphores.get("key");
+        assertThat(semaphore.tryAcquire()).isTrue();
+        assertThat(semaphores.get("key").tryAcquire()).isFalse();
+        semaphore.release();
+    }
+
+    @Test
+    public void stripesUpperBound() {
+        // 超过2^30时向上取整会溢出, 创建时即拒绝
+        try {
+            Striped.lazyWeakLock(Integer.MAX_VALUE);
+            fail("expect IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageContaining("2^30");
+        }
+    }
+}
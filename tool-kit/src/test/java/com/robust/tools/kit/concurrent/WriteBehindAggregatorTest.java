@@ -0,0 +1,110 @@
+package com.robust.tools.kit.concurrent;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/20 21:30
+ * @Version: 1.0
+ */
+public class WriteBehindAggregatorTest {
+
+    private final List<Map<String, Long>> snapshots = new CopyOnWriteArrayList<>();
+
+    private long total(String key) {
+        long sum = 0;
+        for (Map<String, Long> snapshot : snapshots) {
+            Long value = snapshot.get(key);
+            if (value != null) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void aggregateAndFlush() {
+        WriteBehindAggregator<String> aggregator = WriteBehindAggregator.<String>builder(snapshots::add)
+                .setFlushInterval(1, TimeUnit.HOURS).build();
+        aggregator.increment("a");
+        aggregator.add("a", 4);
+        aggregator.add("b", 2);
+        aggregator.put("gauge", 7);
+        aggregator.put("gauge", 9);
+        assertThat(aggregator.getPendingKeyCount()).isEqualTo(3);
+
+        aggregator.flush();
+        assertThat(snapshots).hasSize(1);
+        assertThat(snapshots.get(0)).containsEntry("a", 5L).containsEntry("b", 2L).containsEntry("gauge", 9L);
+        assertThat(aggregator.getPendingKeyCount()).isZero();
+
+        // 空快照不调用flushHandler
+        aggregator.flush();
+        assertThat(snapshots).hasSize(1);
+        assertThat(aggregator.getUpdateCount()).isEqualTo(5);
+        aggregator.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void noLostUpdatesUnderConcurrentFlush() throws InterruptedException {
+        WriteBehindAggregator<String> aggregator = WriteBehindAggregator.<String>builder(snapshots::add)
+                .setFlushInterval(1, TimeUnit.MILLISECONDS).setStripes(4).build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 50000; i++) {
+                    aggregator.increment("key" + (i % 10));
+                }
+                done.countDown();
+            });
+        }
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        aggregator.shutdown(1, TimeUnit.SECONDS);
+
+        long sum = 0;
+        for (int i = 0; i < 10; i++) {
+            sum += total("key" + i);
+        }
+        assertThat(sum).isEqualTo(200000);
+        assertThat(aggregator.getFlushCount()).isGreaterThan(1);
+    }
+
+    @Test
+    public void flushOnSizeThresholdAndShutdown() throws InterruptedException {
+        WriteBehindAggregator<String> aggregator = WriteBehindAggregator.<String>builder(snapshots::add)
+                .setFlushInterval(1, TimeUnit.HOURS).setStripes(1).setMaxKeys(10).build();
+        for (int i = 0; i < 10; i++) {
+            aggregator.increment("key" + i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (snapshots.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(snapshots).hasSize(1);
+
+        aggregator.increment("last");
+        aggregator.shutdown(1, TimeUnit.SECONDS);
+        assertThat(total("last")).isEqualTo(1);
+        assertThat(aggregator.isShutdown()).isTrue();
+        try {
+            aggregator.increment("late");
+            fail("expect IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessageContaining("shutdown");
+        }
+    }
+}
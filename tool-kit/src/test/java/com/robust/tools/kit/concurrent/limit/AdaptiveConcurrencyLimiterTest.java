@@ -0,0 +1,178 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 21:00
+ * @Version: 1.0
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void acquireAndRelease() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                AdaptiveConcurrencyLimiter.LimitAlgorithm.aimd(2, 1, 10, 0.5, 1, TimeUnit.SECONDS));
+
+        AdaptiveConcurrencyLimiter.Listener l1 = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Listener l2 = limiter.tryAcquire();
+        assertThat(l1).isNotNull();
+        assertThat(l2).isNotNull();
+        assertThat(limiter.tryAcquire()).isNull();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+
+        // 在途请求用满上限且成功, 上限加1
+        l1.onSuccess();
+        assertThat(limiter.getLimit()).isEqualTo(3);
+        // 被丢弃, 上限减半
+        l2.onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(1);
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+
+        AdaptiveConcurrencyLimiter.Listener l3 = limiter.tryAcquire();
+        assertThat(limiter.tryAcquire()).isNull();
+        l3.onIgnore();
+        assertThat(limiter.getLimit()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    public void aimd() {
+        AdaptiveConcurrencyLimiter.LimitAlgorithm aimd =
+                AdaptiveConcurrencyLimiter.LimitAlgorithm.aimd(10, 5, 20, 0.9, 100, TimeUnit.MILLISECONDS);
+        assertThat(aimd.onSample(0, 10 * MS, 10, false)).isEqualTo(11);
+        // 未用满不增加
+        assertThat(aimd.onSample(0, 10 * MS, 2, false)).isEqualTo(11);
+        // RTT超时视同丢弃
+        assertThat(aimd.onSample(0, 200 * MS, 10, false)).isEqualTo(9);
+        for (int i = 0; i < 100; i++) {
+            aimd.onSample(0, 10 * MS, 20, true);
+        }
+        assertThat(aimd.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    public void vegas() {
+        AdaptiveConcurrencyLimiter.LimitAlgorithm vegas = AdaptiveConcurrencyLimiter.LimitAlgorithm.vegas(20, 200);
+        // 第一个样本作为无负载RTT
+        vegas.onSample(0, 10 * MS, 20, false);
+        // RTT稳定, 没有排队, 上限增加
+        for (int i = 0; i < 10; i++) {
+            vegas.onSample(0, 10 * MS, vegas.getLimit(), false);
+        }
+        int grown = vegas.getLimit();
+        assertThat(grown).isGreaterThan(20);
+
+        // RTT变为5倍, 排队严重, 上限下降
+        for (int i = 0; i < 10; i++) {
+            vegas.onSample(0, 50 * MS, vegas.getLimit(), false);
+        }
+        assertThat(vegas.getLimit()).isLessThan(grown);
+    }
+
+    @Test
+    public void gradient() {
+        AdaptiveConcurrencyLimiter.LimitAlgorithm gradient =
+                AdaptiveConcurrencyLimiter.LimitAlgorithm.gradient(20, 5, 200);
+        for (int i = 0; i < 50; i++) {
+            gradient.onSample(0, 10 * MS, gradient.getLimit(), false);
+        }
+        int grown = gradient.getLimit();
+        assertThat(grown).isGreaterThan(20);
+
+        // 下游变慢, RTT远大于长期均值, 上限快速下降
+        for (int i = 0; i < 20; i++) {
+            gradient.onSample(0, 100 * MS, gradient.getLimit(), false);
+        }
+        assertThat(gradient.getLimit()).isLessThan(grown);
+        assertThat(gradient.getLimit()).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    public void shedLoad() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                AdaptiveConcurrencyLimiter.LimitAlgorithm.aimd(10, 1, 100, 0.5, 5, TimeUnit.MILLISECONDS));
+        // 下游变慢: 每个请求都超过5ms, 上限迅速收敛到最小值
+        List<AdaptiveConcurrencyLimiter.Listener> listeners = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            AdaptiveConcurrencyLimiter.Listener listener;
+            while ((listener = limiter.tryAcquire()) != null) {
+                listeners.add(listener);
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+            for (AdaptiveConcurrencyLimiter.Listener l : listeners) {
+                l.onSuccess();
+            }
+            listeners.clear();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(1);
+        assertThat(limiter.getRejectedCount()).isEqualTo(5);
+    }
+
+    @Test
+    public void releaseOnlyOnce() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                AdaptiveConcurrencyLimiter.LimitAlgorithm.aimd(2, 1, 10, 0.5, 1, TimeUnit.SECONDS));
+        AdaptiveConcurrencyLimiter.Listener l1 = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Listener l2 = limiter.tryAcquire();
+        l1.onIgnore();
+        // 重复结束被忽略, 不会多释放许可或多计样本
+        l1.onIgnore();
+        l1.onDropped();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        l2.onIgnore();
+        assertThat(limiter.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void droppedSamplesNeverLost() throws InterruptedException {
+        AtomicInteger drops = new AtomicInteger();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new AdaptiveConcurrencyLimiter.LimitAlgorithm() {
+                    @Override
+                    public int getLimit() {
+                        return 1000;
+                    }
+
+                    @Override
+                    public int onSample(long startTime, long rtt, int inFlightAtStart, boolean didDrop) {
+                        if (didDrop) {
+                            // 非原子的读改写, 由限流器保证单线程调用
+                            drops.set(drops.get() + 1);
+                        }
+                        return 1000;
+                    }
+                });
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    AdaptiveConcurrencyLimiter.Listener listener = limiter.tryAcquire();
+                    if (i % 2 == 0) {
+                        listener.onSuccess();
+                    } else {
+                        listener.onDropped();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(drops.get()).isEqualTo(threads.length * 5000);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,155 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.time.ClockUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 22:30
+ * @Version: 1.0
+ */
+public class KeyedRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @After
+    public void tearDown() {
+        ClockUtil.useDefaultClock();
+    }
+
+    @Test
+    public void limitPerKey() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock();
+        clock.setNanoTime(SECOND);
+        KeyedRateLimiter limiter = new KeyedRateLimiter(10, 5, 1024);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(1L)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(1L)).isFalse();
+        assertThat(limiter.availablePermits(1L)).isEqualTo(0);
+        // 其他key互不影响
+        assertThat(limiter.tryAcquire(2L, 5)).isTrue();
+        assertThat(limiter.tryAcquire("user-a")).isTrue();
+        assertThat(limiter.tryAcquire(0L)).isTrue();
+        assertThat(limiter.size()).isEqualTo(4);
+
+        // 100ms发放一个令牌
+        clock.setNanoTime(SECOND + SECOND / 10);
+        assertThat(limiter.tryAcquire(1L)).isTrue();
+        assertThat(limiter.tryAcquire(1L)).isFalse();
+
+        // 装满后视为过期
+        clock.setNanoTime(SECOND * 3);
+        assertThat(limiter.size()).isEqualTo(0);
+        assertThat(limiter.availablePermits(1L)).isEqualTo(5);
+        assertThat(limiter.tryAcquire(1L, 5)).isTrue();
+        assertThat(limiter.tryAcquire(1L)).isFalse();
+    }
+
+    @Test
+    public void stringKeys() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock();
+        clock.setNanoTime(SECOND);
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, 2, 4096);
+        // 相近的字符串key互不影响
+        for (int i = 0; i < 1000; i++) {
+            String ip = "10.0." + (i >> 8) + "." + (i & 0xff);
+            assertThat(limiter.tryAcquire(ip, 2)).isTrue();
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(limiter.tryAcquire("10.0." + (i >> 8) + "." + (i & 0xff))).isFalse();
+        }
+        assertThat(KeyedRateLimiter.hash("ab")).isNotEqualTo(KeyedRateLimiter.hash("ba"));
+        assertThat(KeyedRateLimiter.hash("")).isNotEqualTo(KeyedRateLimiter.hash("\u0000"));
+    }
+
+    @Test
+    public void boundedCapacity() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock();
+        clock.setNanoTime(SECOND);
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, 1, 100);
+        assertThat(limiter.getCapacity()).isEqualTo(128);
+
+        for (long key = 1; key <= 10000; key++) {
+            assertThat(limiter.tryAcquire(key)).isTrue();
+        }
+        // 容量不足时淘汰旧key, 表的大小不变
+        assertThat(limiter.size()).isEqualTo(128);
+        assertThat(limiter.getEvictionCount()).isEqualTo(10000 - 128);
+        // 最近的key仍被限流
+        assertThat(limiter.tryAcquire(10000L)).isFalse();
+
+        // 全部过期后槽位被直接接管, 不再淘汰
+        clock.setNanoTime(SECOND * 3);
+        for (long key = 20001; key <= 20100; key++) {
+            assertThat(limiter.tryAcquire(key)).isTrue();
+        }
+        assertThat(limiter.getEvictionCount()).isEqualTo(10000 - 128);
+        assertThat(limiter.size()).isEqualTo(100);
+    }
+
+    @Test
+    public void concurrentAcquire() throws InterruptedException {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(0.001, 1000, 1024);
+        Thread[] threads = new Thread[4];
+        int[] acquired = new int[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (limiter.tryAcquire(i % 10)) {
+                        acquired[index]++;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        int total = 0;
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total += acquired[t];
+        }
+        // 每个key 1000个令牌, 共4000次请求全部通过, 不超发
+        assertThat(total).isEqualTo(4000);
+        assertThat(limiter.availablePermits(3L)).isEqualTo(600);
+    }
+
+    @Test
+    public void reservedKeysDoNotAlias() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock();
+        clock.setNanoTime(SECOND);
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, 2, 16);
+        // 与空槽位, 占用标记相同的key各自独立限流
+        assertThat(limiter.tryAcquire(0L, 2)).isTrue();
+        assertThat(limiter.tryAcquire(0L)).isFalse();
+        assertThat(limiter.availablePermits(Long.MIN_VALUE)).isEqualTo(2);
+        assertThat(limiter.tryAcquire(Long.MIN_VALUE, 2)).isTrue();
+        assertThat(limiter.tryAcquire(Long.MIN_VALUE)).isFalse();
+        assertThat(limiter.availablePermits(0L)).isEqualTo(0);
+        assertThat(limiter.size()).isEqualTo(2);
+
+        clock.setNanoTime(SECOND * 2);
+        assertThat(limiter.tryAcquire(0L)).isTrue();
+        assertThat(limiter.availablePermits(Long.MIN_VALUE)).isEqualTo(1);
+    }
+
+    @Test
+    public void evictedSlotStartsFull() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock();
+        clock.setNanoTime(SECOND);
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, 5, 2);
+        assertThat(limiter.tryAcquire(1L, 5)).isTrue();
+        assertThat(limiter.tryAcquire(2L, 5)).isTrue();
+        // 淘汰取空的旧key后, 新key得到满桶
+        assertThat(limiter.tryAcquire(3L, 5)).isTrue();
+        assertThat(limiter.getEvictionCount()).isEqualTo(1);
+        assertThat(limiter.tryAcquire(3L)).isFalse();
+    }
+}
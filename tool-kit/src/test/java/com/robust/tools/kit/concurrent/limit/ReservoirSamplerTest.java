@@ -0,0 +1,62 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 23:10
+ * @Version: 1.0
+ */
+public class ReservoirSamplerTest {
+
+    @Test
+    public void fillThenReplace() {
+        ReservoirSampler<Integer> sampler = new ReservoirSampler<>(10);
+        for (int i = 0; i < 5; i++) {
+            assertThat(sampler.offer(i)).isTrue();
+        }
+        assertThat(sampler.getSamples()).containsExactly(0, 1, 2, 3, 4);
+
+        for (int i = 5; i < 100000; i++) {
+            sampler.offer(i);
+        }
+        assertThat(sampler.getCount()).isEqualTo(100000);
+        assertThat(sampler.getSamples()).hasSize(10);
+    }
+
+    @Test
+    public void uniform() throws InterruptedException {
+        // 多次采样, 统计每个元素被保留的次数, 应接近 K/N
+        int rounds = 2000;
+        int[] hits = new int[100];
+        for (int round = 0; round < rounds; round++) {
+            ReservoirSampler<Integer> sampler = new ReservoirSampler<>(10);
+            Thread[] threads = new Thread[2];
+            for (int t = 0; t < threads.length; t++) {
+                final int offset = t * 50;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        sampler.offer(offset + i);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            List<Integer> samples = sampler.getSamples();
+            for (Integer sample : samples) {
+                hits[sample]++;
+            }
+        }
+        // 期望值 2000 * 10 / 100 = 200
+        for (int hit : hits) {
+            assertThat(hit).isBetween(120, 280);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.robust.tools.kit.concurrent.limit;
 
+import com.robust.tools.kit.time.ClockUtil;
+import org.junit.After;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -12,6 +14,11 @@ import static org.assertj.core.api.Assertions.assertThat;
  */
 public class SamplerTest {
 
+    @After
+    public void tearDown() {
+        ClockUtil.useDefaultClock();
+    }
+
     @Test
     public void select() {
         Sampler sampler = Sampler.create(5.5);
@@ -69,4 +76,46 @@ public class SamplerTest {
             assertThat(e).isInstanceOf(IllegalArgumentException.class);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void rateBounded() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock(100000);
+        Sampler sampler = Sampler.createRateBounded(100);
+        int hits = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (sampler.select()) {
+                hits++;
+            }
+        }
+        assertThat(hits).isEqualTo(100);
+
+        // 下一秒重新发放配额, 低流量时全部命中
+        clock.increaseTime(1000);
+        hits = 0;
+        for (int i = 0; i < 50; i++) {
+            if (sampler.select()) {
+                hits++;
+            }
+        }
+        assertThat(hits).isEqualTo(50);
+    }
+
+    @Test
+    public void keyed() {
+        ClockUtil.DummyClock clock = ClockUtil.useDummyClock(100000);
+        KeyedSampler sampler = new KeyedSampler(10, 1024);
+        int hotHits = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (sampler.select("/hot")) {
+                hotHits++;
+            }
+        }
+        assertThat(hotHits).isEqualTo(10);
+        // 热点key用完配额, 不影响冷门key
+        assertThat(sampler.select("/cold")).isTrue();
+        assertThat(sampler.select(42L)).isTrue();
+
+        clock.increaseTime(1000);
+        assertThat(sampler.select("/hot")).isTrue();
+    }
+}
@@ -0,0 +1,71 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.concurrent.ConcurrentUtil;
+import com.robust.tools.kit.time.ClockUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 19:50
+ * @Version: 1.0
+ */
+public class SlidingWindowRateLimiterTest {
+
+    @Test
+    public void slidingWindow() {
+        try {
+            ClockUtil.DummyClock clock = ClockUtil.useDummyClock(10000);
+            SlidingWindowRateLimiter limiter = ConcurrentUtil.slidingWindowRateLimiter(10, 1, TimeUnit.SECONDS, 10);
+
+            for (int i = 0; i < 6; i++) {
+                assertThat(limiter.tryAcquire()).isTrue();
+            }
+            clock.increaseTime(500);
+            assertThat(limiter.tryAcquire(4)).isTrue();
+            assertThat(limiter.tryAcquire()).isFalse();
+            assertThat(limiter.getCurrentCount()).isEqualTo(10);
+            assertThat(limiter.ratePerSecond()).isEqualTo(10.0);
+
+            // 前6个滑出窗口
+            clock.increaseTime(500);
+            assertThat(limiter.getRemaining()).isEqualTo(6);
+            assertThat(limiter.tryAcquire(6)).isTrue();
+            assertThat(limiter.tryAcquire()).isFalse();
+
+            // 整个窗口过期
+            clock.increaseTime(1000);
+            assertThat(limiter.getCurrentCount()).isEqualTo(0);
+            assertThat(limiter.tryAcquire(10)).isTrue();
+        } finally {
+            ClockUtil.useDefaultClock();
+        }
+    }
+
+    @Test
+    public void counter() throws InterruptedException {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10, TimeUnit.SECONDS, 10);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    counter.increment();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // 远小于窗口时长内完成, 所有计数都在窗口内
+        assertThat(counter.sum()).isEqualTo(40000);
+        assertThat(counter.getWindowMillis()).isEqualTo(10000);
+    }
+}
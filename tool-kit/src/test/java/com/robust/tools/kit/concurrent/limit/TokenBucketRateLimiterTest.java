@@ -0,0 +1,80 @@
+package com.robust.tools.kit.concurrent.limit;
+
+import com.robust.tools.kit.concurrent.ConcurrentUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 18:40
+ * @Version: 1.0
+ */
+public class TokenBucketRateLimiterTest {
+
+    @Test
+    public void filledWithToken() throws InterruptedException {
+        TokenBucketRateLimiter limiter = RateLimiterUtil.createTokenBucket(10, 2);
+        assertThat(limiter.availablePermits()).isEqualTo(20);
+        assertThat(limiter.tryAcquire(20)).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        TimeUnit.MILLISECONDS.sleep(250);
+        assertThat(limiter.tryAcquire(2)).isTrue();
+        assertThat(limiter.tryAcquire(2)).isFalse();
+    }
+
+    @Test
+    public void empty() throws InterruptedException {
+        TokenBucketRateLimiter limiter = RateLimiterUtil.createTokenBucket(20, 1, false);
+        assertThat(limiter.tryAcquire()).isFalse();
+        TimeUnit.MILLISECONDS.sleep(60);
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void timedAcquire() {
+        TokenBucketRateLimiter limiter = RateLimiterUtil.createTokenBucket(10, 1, false);
+        // 需要等待约1秒, 超时时间不足时立即返回
+        long start = System.nanoTime();
+        assertThat(limiter.tryAcquire(10, 100, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(50);
+
+        start = System.nanoTime();
+        assertThat(limiter.tryAcquire(1, 500, TimeUnit.MILLISECONDS)).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(50L, 500L);
+
+        double waited = limiter.acquire(2);
+        assertThat(waited).isBetween(0.1, 0.5);
+    }
+
+    @Test
+    public void concurrent() throws InterruptedException {
+        TokenBucketRateLimiter limiter = ConcurrentUtil.tokenBucketRateLimiter(1000, 1);
+        AtomicInteger success = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    if (limiter.tryAcquire()) {
+                        success.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // 桶容量1000, 加上执行期间新发放的少量令牌
+        assertThat(success.get()).isBetween(1000, 1500);
+    }
+}
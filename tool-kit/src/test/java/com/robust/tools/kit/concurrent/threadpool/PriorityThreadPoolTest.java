@@ -0,0 +1,126 @@
+package com.robust.tools.kit.concurrent.threadpool;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 16:20
+ * @Version: 1.0
+ */
+public class PriorityThreadPoolTest {
+
+    @Test
+    public void priorityAndDeadline() throws Exception {
+        AtomicInteger expired = new AtomicInteger();
+        PriorityThreadPool pool = ThreadPoolBuilder.priorityPool().setThreadNamePrefix("priority")
+                .setExpiredHandler((task, p) -> expired.incrementAndGet()).build();
+
+        // 先占住唯一的线程, 让后续任务排队
+        CountDownLatch block = new CountDownLatch(1);
+        pool.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        pool.execute(() -> order.add("normal"));
+        pool.execute(() -> order.add("low"), 9);
+        pool.execute(() -> order.add("high"), 1);
+        pool.execute(() -> order.add("high-deadline"), 1, 10, TimeUnit.SECONDS);
+        pool.execute(() -> order.add("stale"), 0, 1, TimeUnit.MILLISECONDS);
+        Future<String> staleFuture = pool.submit(() -> "stale", 0, 1, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(20);
+        block.countDown();
+
+        assertThat(pool.submit(() -> "last", 10).get(1, TimeUnit.SECONDS)).isEqualTo("last");
+        assertThat(order).containsExactly("high-deadline", "high", "normal", "low");
+        assertThat(expired.get()).isEqualTo(2);
+        assertThat(pool.getExpiredCount()).isEqualTo(2);
+        try {
+            staleFuture.get();
+            fail("expired future should be cancelled");
+        } catch (CancellationException e) {
+            assertThat(staleFuture.isCancelled()).isTrue();
+        }
+
+        ThreadPoolUtil.gracefulShutdown(pool, 1000);
+    }
+
+    @Test
+    public void reject() {
+        PriorityThreadPool pool = ThreadPoolBuilder.priorityPool().setQueueSize(1).build();
+        assertThat(pool.getRejectedExecutionHandler()).isInstanceOf(AbortPolicyWithReport.class);
+
+        CountDownLatch block = new CountDownLatch(1);
+        pool.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        pool.execute(() -> {
+        });
+        try {
+            pool.execute(() -> {
+            });
+            fail("should be rejected");
+        } catch (RejectedExecutionException e) {
+            assertThat(e.getMessage()).contains("PriorityThreadPool");
+        }
+        block.countDown();
+        ThreadPoolUtil.gracefulShutdown(pool, 1000);
+    }
+
+    @Test
+    public void boundedUnderConcurrentSubmit() throws Exception {
+        PriorityThreadPool pool = ThreadPoolBuilder.priorityPool().setPoolSize(1).setQueueSize(10).build();
+        CountDownLatch block = new CountDownLatch(1);
+        pool.execute(() -> {
+            try {
+                block.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        pool.execute(() -> {
+                        });
+                        accepted.incrementAndGet();
+                    } catch (RejectedExecutionException e) {
+                        // 队列已满
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        // 并发提交也不超过队列容量
+        assertThat(accepted.get()).isEqualTo(10);
+        assertThat(pool.getQueue()).hasSize(10);
+        block.countDown();
+        ThreadPoolUtil.gracefulShutdown(pool, 1000);
+    }
+}
@@ -0,0 +1,211 @@
+package com.robust.tools.kit.concurrent.threadpool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 11:05
+ * @Version: 1.0
+ */
+public class RingBufferExecutorTest {
+
+    @Test
+    public void multiProducer() throws InterruptedException {
+        multiProducer(RingBufferExecutor.WaitStrategy.blocking());
+        multiProducer(RingBufferExecutor.WaitStrategy.yielding());
+        multiProducer(RingBufferExecutor.WaitStrategy.busySpin());
+    }
+
+    private void multiProducer(RingBufferExecutor.WaitStrategy waitStrategy) throws InterruptedException {
+        RingBufferExecutor executor = ThreadPoolBuilder.ringBufferPool().setBufferSize(64)
+                .setWaitStrategy(waitStrategy).setThreadNamePrefix("ring").build();
+        int producers = 4;
+        int tasksPerProducer = 10000;
+        AtomicLong counter = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(producers * tasksPerProducer);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < tasksPerProducer; j++) {
+                    executor.execute(() -> {
+                        counter.incrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(counter.get()).isEqualTo(producers * tasksPerProducer);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(ThreadPoolUtil.gracefulShutdown(executor, 1000)).isTrue();
+        assertThat(executor.isTerminated()).isTrue();
+        // 最后一个任务执行后才推进消费序号, 关闭后再检查
+        assertThat(executor.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void singleProducerKeepOrder() throws InterruptedException {
+        RingBufferExecutor executor = ThreadPoolBuilder.ringBufferPool().setBufferSize(16)
+                .setProducerType(RingBufferExecutor.ProducerType.SINGLE)
+                .setWaitStrategy(RingBufferExecutor.WaitStrategy.yielding()).build();
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int value = i;
+            executor.execute(() -> result.add(value));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(result).hasSize(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(result.get(i)).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void shutdown() throws Exception {
+        ExecutorService executor = ThreadPoolBuilder.ringBufferPool().setBufferSize(8).build();
+        executor.execute(() -> {
+            throw new RuntimeException("error in task");
+        });
+        // 任务的异常不会导致消费线程退出
+        assertThat(executor.submit(() -> "ok").get(1, TimeUnit.SECONDS)).isEqualTo("ok");
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+        try {
+            executor.execute(() -> {
+            });
+            fail("should reject after shutdown");
+        } catch (Exception e) {
+            assertThat(e).isInstanceOf(RejectedExecutionException.class);
+        }
+
+        try {
+            ThreadPoolBuilder.ringBufferPool().setBufferSize(10).build();
+            fail("should fail");
+        } catch (Exception e) {
+            assertThat(e).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void executeRacingShutdown() throws Exception {
+        for (RingBufferExecutor.ProducerType producerType : RingBufferExecutor.ProducerType.values()) {
+            for (int round = 0; round < 50; round++) {
+                RingBufferExecutor executor = ThreadPoolBuilder.ringBufferPool().setBufferSize(16)
+                        .setProducerType(producerType).build();
+                AtomicLong accepted = new AtomicLong();
+                AtomicLong executed = new AtomicLong();
+                Thread producer = new Thread(() -> {
+                    try {
+                        while (true) {
+                            executor.execute(executed::incrementAndGet);
+                            accepted.incrementAndGet();
+                        }
+                    } catch (RejectedExecutionException e) {
+                        // 关闭后退出
+                    }
+                });
+                producer.start();
+                Thread.sleep(1);
+                executor.shutdown();
+                producer.join(5000);
+                assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+                // 被接受的任务都已执行
+                assertThat(executed.get()).isEqualTo(accepted.get());
+            }
+        }
+    }
+
+    @Test
+    public void shutdownNowReleasesBlockedProducer() throws Exception {
+        RingBufferExecutor executor = ThreadPoolBuilder.ringBufferPool().setBufferSize(2)
+                .setProducerType(RingBufferExecutor.ProducerType.SINGLE).build();
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch rejected = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                // RingBuffer已满, 自旋等待槽位
+                for (int i = 0; i < 10; i++) {
+                    executor.execute(() -> {
+                    });
+                }
+            } catch (RejectedExecutionException e) {
+                rejected.countDown();
+            }
+        });
+        producer.start();
+        Thread.sleep(50);
+        executor.shutdownNow();
+        assertThat(rejected.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shutdownNowReturnsPendingTasks() throws Exception {
+        RingBufferExecutor executor = ThreadPoolBuilder.ringBufferPool().setBufferSize(8).build();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        AtomicLong executed = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.submit(executed::incrementAndGet));
+        }
+
+        List<Runnable> pending = executor.shutdownNow();
+        // 之后的shutdown()不能把STOP改回SHUTDOWN
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(pending).hasSize(3);
+        assertThat(pending).containsExactly(futures.toArray(new Runnable[0]));
+        assertThat(executed.get()).isZero();
+        for (Future<?> future : futures) {
+            assertThat(future.isDone()).isFalse();
+            future.cancel(false);
+            try {
+                future.get();
+                fail("expect CancellationException");
+            } catch (CancellationException e) {
+                // expected
+            }
+        }
+        assertThat(executor.shutdownNow()).isEmpty();
+    }
+}
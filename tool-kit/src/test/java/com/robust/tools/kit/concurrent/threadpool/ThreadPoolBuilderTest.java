@@ -1,9 +1,14 @@
 package com.robust.tools.kit.concurrent.threadpool;
 
+import com.robust.tools.kit.collection.type.BlockingQueueAdapter;
 import com.robust.tools.kit.concurrent.TaskQueue;
+import com.robust.tools.kit.concurrent.type.ThreadLocalContext;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -39,6 +44,40 @@ public class ThreadPoolBuilderTest {
         assertThat(fixedPool.getQueue()).isInstanceOf(ArrayBlockingQueue.class);
         fixedPool.shutdown();
 
+        fixedPool = ThreadPoolBuilder.fixedPool().setPoolSize(2).setQueueSize(64).setLockFreeQueue(true).build();
+        assertThat(fixedPool.getQueue()).isInstanceOf(BlockingQueueAdapter.class);
+        AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 50; i++) {
+            fixedPool.execute(executed::incrementAndGet);
+        }
+        assertThat(ThreadPoolUtil.gracefulShutdown(fixedPool, 1000)).isTrue();
+        assertThat(executed.get()).isEqualTo(50);
+
+        // 无锁队列支持remove()/purge()
+        fixedPool = ThreadPoolBuilder.fixedPool().setPoolSize(1).setQueueSize(4).setLockFreeQueue(true).build();
+        CountDownLatch blocker = new CountDownLatch(1);
+        fixedPool.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicInteger removedExecuted = new AtomicInteger();
+        Runnable removed = removedExecuted::incrementAndGet;
+        fixedPool.execute(removed);
+        Future<?> cancelled = fixedPool.submit(removedExecuted::incrementAndGet);
+        fixedPool.execute(executed::incrementAndGet);
+        assertThat(fixedPool.remove(removed)).isTrue();
+        assertThat(fixedPool.remove(removed)).isFalse();
+        cancelled.cancel(false);
+        fixedPool.purge();
+        assertThat(fixedPool.getQueue()).hasSize(1);
+        blocker.countDown();
+        assertThat(ThreadPoolUtil.gracefulShutdown(fixedPool, 1000)).isTrue();
+        assertThat(removedExecuted.get()).isZero();
+        assertThat(executed.get()).isEqualTo(51);
+
         fixedPool = ThreadPoolBuilder.fixedPool().setThreadNamePrefix("pool").build();
         assertThat(fixedPool.getCorePoolSize()).isEqualTo(1);
         assertThat(fixedPool.getMaximumPoolSize()).isEqualTo(1);
@@ -132,6 +171,56 @@ public class ThreadPoolBuilderTest {
         assertThat(thread.getName()).startsWith("queuable");
         pool.shutdown();
 
+        // 无锁队列
+        pool = ThreadPoolBuilder.queuableCachedPool().setMaxSize(2).setQueueSize(100).setLockFreeQueue(true).build();
+        assertThat(pool.getQueue()).isInstanceOf(TaskQueue.class);
+        assertThat(pool.getQueue().remainingCapacity()).isEqualTo(128);
+        pool.shutdown();
+
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void propagateContext() throws Exception {
+        List<ExecutorService> pools = Arrays.asList(
+                ThreadPoolBuilder.fixedPool().setPropagateContext(true).build(),
+                ThreadPoolBuilder.cachedPool().setPropagateContext(true).build(),
+                ThreadPoolBuilder.scheduledPool().setPropagateContext(true).build(),
+                ThreadPoolBuilder.queuableCachedPool().setPropagateContext(true).build(),
+                ThreadPoolBuilder.ringBufferPool().setPropagateContext(true).build(),
+                ThreadPoolBuilder.priorityPool().setPropagateContext(true).build());
+        try {
+            for (ExecutorService pool : pools) {
+                ThreadLocalContext.put("traceId", "trace-" + pool.getClass().getSimpleName());
+                Future<String> viaSubmit = pool.submit(() -> ThreadLocalContext.<String>get("traceId"));
+                BlockingQueue<Object> viaExecute = new LinkedBlockingQueue<>();
+                pool.execute(() -> viaExecute.add(String.valueOf(ThreadLocalContext.<String>get("traceId"))));
+
+                String expected = "trace-" + pool.getClass().getSimpleName();
+                assertThat(viaSubmit.get(1, TimeUnit.SECONDS)).isEqualTo(expected);
+                assertThat(viaExecute.poll(1, TimeUnit.SECONDS)).isEqualTo(expected);
+
+                // 任务结束后工作线程恢复原来的上下文
+                ThreadLocalContext.reset();
+                assertThat(pool.submit(() -> String.valueOf(ThreadLocalContext.<String>get("traceId")))
+                        .get(1, TimeUnit.SECONDS)).isEqualTo("null");
+            }
+        } finally {
+            ThreadLocalContext.reset();
+            for (ExecutorService pool : pools) {
+                pool.shutdownNow();
+            }
+        }
+
+        // 默认不传递
+        ThreadPoolExecutor plain = ThreadPoolBuilder.fixedPool().build();
+        ThreadLocalContext.put("traceId", "t1");
+        try {
+            assertThat(plain.submit(() -> String.valueOf(ThreadLocalContext.<String>get("traceId")))
+                    .get(1, TimeUnit.SECONDS)).isEqualTo("null");
+        } finally {
+            ThreadLocalContext.reset();
+            plain.shutdownNow();
+        }
+    }
+}
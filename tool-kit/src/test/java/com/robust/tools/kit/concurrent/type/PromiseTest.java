@@ -0,0 +1,253 @@
+package com.robust.tools.kit.concurrent.type;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+/**
+ * @Description:
+ * @Author: robust
+ * @CreateDate: 2026/10/19 23:50
+ * @Version: 1.0
+ */
+public class PromiseTest {
+
+    @Test
+    public void completeAndChain() throws Exception {
+        Promise<Integer> promise = new Promise<>();
+        List<String> events = new ArrayList<>();
+        Promise<String> chained = promise.thenApply(i -> i * 2).thenApply(i -> "v" + i);
+        chained.thenAccept(events::add);
+        promise.thenRun(() -> events.add("run"));
+        assertThat(chained.isDone()).isFalse();
+
+        assertThat(promise.complete(21)).isTrue();
+        assertThat(promise.complete(22)).isFalse();
+        assertThat(chained.get()).isEqualTo("v42");
+        // 按注册顺序执行
+        assertThat(events).containsExactly("v42", "run");
+
+        // 已完成时注册的回调立即执行
+        assertThat(promise.thenApply(i -> i + 1).getNow(-1)).isEqualTo(22);
+        assertThat(Promise.success(null).join()).isNull();
+    }
+
+    @Test
+    public void failurePropagation() throws Exception {
+        Promise<Integer> promise = new Promise<>();
+        Promise<Integer> mapped = promise.thenApply(i -> i + 1);
+        Promise<Integer> recovered = mapped.exceptionally(t -> -1);
+        AtomicReference<Throwable> seen = new AtomicReference<>();
+        Promise<Integer> observed = mapped.whenComplete((v, t) -> seen.set(t));
+        Promise<String> handled = mapped.handle((v, t) -> t == null ? "ok" : t.getMessage());
+
+        promise.completeExceptionally(new IllegalStateException("boom"));
+        assertThat(recovered.get()).isEqualTo(-1);
+        assertThat(seen.get()).isInstanceOf(IllegalStateException.class);
+        assertThat(handled.get()).isEqualTo("boom");
+        assertThat(observed.isCompletedExceptionally()).isTrue();
+        try {
+            mapped.get();
+            fail("should throw");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+        }
+        try {
+            mapped.join();
+            fail("should throw");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).hasMessage("boom");
+        }
+
+        // 回调抛出的异常使后续阶段失败
+        Promise<Integer> thrown = Promise.success(1).thenApply(i -> {
+            throw new IllegalArgumentException("bad");
+        });
+        assertThat(thrown.isCompletedExceptionally()).isTrue();
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        Promise<String> promise = new Promise<>();
+        Promise<String> next = promise.thenApply(s -> s + "!");
+        assertThat(promise.cancel(true)).isTrue();
+        assertThat(promise.isCancelled()).isTrue();
+        assertThat(next.isCancelled()).isTrue();
+        try {
+            promise.get();
+            fail("should throw");
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void asyncAndCompose() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Promise<String> promise = new Promise<>();
+            AtomicReference<String> thread = new AtomicReference<>();
+            Promise<Integer> composed = promise.thenApplyAsync(s -> {
+                thread.set(Thread.currentThread().getName());
+                return s.length();
+            }, executor).thenCompose(len -> CompletableFuture.supplyAsync(() -> len * 10));
+            promise.complete("hello");
+            assertThat(composed.get(1, TimeUnit.SECONDS)).isEqualTo(50);
+            assertThat(thread.get()).isNotEqualTo(Thread.currentThread().getName());
+
+            Promise<Integer> a = new Promise<>();
+            Promise<Integer> b = new Promise<>();
+            Promise<Integer> sum = a.thenCombine(b, Integer::sum);
+            Promise<Integer> first = a.applyToEither(b, i -> i);
+            b.complete(2);
+            assertThat(first.getNow(0)).isEqualTo(2);
+            assertThat(sum.isDone()).isFalse();
+            a.complete(3);
+            assertThat(sum.getNow(0)).isEqualTo(5);
+            assertThat(a.toCompletableFuture().get()).isEqualTo(3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        Promise<String> promise = new Promise<String>().orTimeout(50, TimeUnit.MILLISECONDS);
+        try {
+            promise.get(2, TimeUnit.SECONDS);
+            fail("should throw");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+        }
+
+        Promise<String> fallback = new Promise<String>().completeOnTimeout("default", 50, TimeUnit.MILLISECONDS);
+        assertThat(fallback.get(2, TimeUnit.SECONDS)).isEqualTo("default");
+
+        // 先完成时超时不生效
+        Promise<String> fast = new Promise<String>().orTimeout(50, TimeUnit.MILLISECONDS);
+        fast.complete("fast");
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(fast.get()).isEqualTo("fast");
+
+        try {
+            new Promise<String>().get(10, TimeUnit.MILLISECONDS);
+            fail("should throw");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void blockingGet() throws Exception {
+        Promise<String> promise = new Promise<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread completer = new Thread(() -> {
+            try {
+                started.await();
+                TimeUnit.MILLISECONDS.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            promise.complete("done");
+        });
+        completer.start();
+        started.countDown();
+        assertThat(promise.get()).isEqualTo("done");
+        completer.join();
+    }
+
+    @Test
+    public void allOf() throws Exception {
+        List<Promise<Integer>> promises = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            promises.add(new Promise<>());
+        }
+        Promise<List<Integer>> all = Promise.allOf(promises);
+        for (int i = promises.size() - 1; i >= 0; i--) {
+            assertThat(all.isDone()).isFalse();
+            promises.get(i).complete(i);
+        }
+        List<Integer> results = all.get();
+        assertThat(results).hasSize(1000);
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i)).isEqualTo(i);
+        }
+
+        // 任一失败即失败
+        Promise<Integer> pending = new Promise<>();
+        Promise<List<Integer>> failed = Promise.allOf(
+                Arrays.asList(pending, Promise.<Integer>failure(new IllegalStateException())));
+        assertThat(failed.isCompletedExceptionally()).isTrue();
+        assertThat(Promise.allOf(new ArrayList<Promise<Integer>>()).get()).isEmpty();
+    }
+
+    @Test
+    public void anyOfAndFirstN() throws Exception {
+        Promise<String> a = new Promise<>();
+        Promise<String> b = new Promise<>();
+        Promise<String> c = new Promise<>();
+        Promise<String> any = Promise.anyOf(Arrays.asList(a, b, c));
+        Promise<List<String>> firstTwo = Promise.firstN(Arrays.asList(a, b, c), 2);
+
+        a.completeExceptionally(new IllegalStateException("a"));
+        assertThat(any.isDone()).isFalse();
+        c.complete("c");
+        assertThat(any.get()).isEqualTo("c");
+        assertThat(firstTwo.isDone()).isFalse();
+        b.complete("b");
+        assertThat(firstTwo.get()).containsExactly("c", "b");
+
+        // 失败过多时不可能凑齐
+        Promise<String> x = new Promise<>();
+        Promise<List<String>> impossible = Promise.firstN(Arrays.asList(x,
+                Promise.<String>failure(new IllegalStateException("y")), new Promise<String>()), 3);
+        assertThat(impossible.isCompletedExceptionally()).isTrue();
+
+        Promise<String> allFailed = Promise.anyOf(Arrays.asList(
+                Promise.<String>failure(new IllegalStateException("1")),
+                Promise.<String>failure(new IllegalStateException("2"))));
+        try {
+            allFailed.join();
+            fail("should throw");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).hasMessage("2");
+        }
+    }
+
+    @Test
+    public void deepChain() throws Exception {
+        // 完成时逐级触发后续阶段, 不能随链的长度递归
+        Promise<Integer> head = new Promise<>();
+        Promise<Integer> tail = head;
+        for (int i = 0; i < 10000; i++) {
+            tail = tail.thenApply(value -> value + 1);
+        }
+        head.complete(0);
+        assertThat(tail.get(1, TimeUnit.SECONDS)).isEqualTo(10000);
+
+        Promise<Integer> composeHead = new Promise<>();
+        Promise<Integer> composeTail = composeHead;
+        for (int i = 0; i < 10000; i++) {
+            composeTail = composeTail.thenCompose(value -> Promise.success(value + 1))
+                    .whenComplete((value, cause) -> {
+                    });
+        }
+        composeHead.complete(0);
+        assertThat(composeTail.get(1, TimeUnit.SECONDS)).isEqualTo(10000);
+    }
+}
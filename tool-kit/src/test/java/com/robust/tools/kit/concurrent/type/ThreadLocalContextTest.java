@@ -7,6 +7,8 @@ import org.junit.Test;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
@@ -49,4 +51,113 @@ public class ThreadLocalContextTest {
         }
         latch.await();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void snapshot() throws Exception {
+        ThreadLocalContext.put("tenant", "a");
+        ThreadLocalContext.Snapshot snapshot = ThreadLocalContext.capture();
+        // 快照不可变, 之后的put不影响已捕获的快照
+        ThreadLocalContext.put("tenant", "b");
+        assertNotSame(snapshot, ThreadLocalContext.capture());
+
+        Runnable wrapped = ThreadLocalContext.wrap(() -> assertEquals("b", ThreadLocalContext.get("tenant")));
+        // 在工作线程中断言, 通过Future.get()把断言失败传回测试线程
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                ThreadLocalContext.put("tenant", "worker");
+                ThreadLocalContext.Snapshot previous = ThreadLocalContext.install(snapshot);
+                assertEquals("a", ThreadLocalContext.get("tenant"));
+                ThreadLocalContext.restore(previous);
+                wrapped.run();
+                assertEquals("worker", ThreadLocalContext.get("tenant"));
+            }).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ThreadLocalContext.reset();
+        assertNull(ThreadLocalContext.get("tenant"));
+        assertTrue(ThreadLocalContext.capture().isEmpty());
+    }
+
+    @Test
+    public void copyOnlyAfterCapture() throws Exception {
+        // 未被捕获时原地写入, 捕获后的第一次写入才复制
+        for (int i = 0; i < 100; i++) {
+            ThreadLocalContext.put("k" + i, i);
+        }
+        ThreadLocalContext.Snapshot first = ThreadLocalContext.capture();
+        ThreadLocalContext.put("k0", "changed");
+        ThreadLocalContext.put("extra", 1);
+        ThreadLocalContext.Snapshot second = ThreadLocalContext.capture();
+        ThreadLocalContext.put("late", 2);
+        assertEquals("changed", ThreadLocalContext.get("k0"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                ThreadLocalContext.install(first);
+                assertEquals(Integer.valueOf(0), ThreadLocalContext.get("k0"));
+                assertEquals(Integer.valueOf(99), ThreadLocalContext.get("k99"));
+                assertNull(ThreadLocalContext.get("extra"));
+                ThreadLocalContext.install(second);
+                assertEquals("changed", ThreadLocalContext.get("k0"));
+                assertEquals(Integer.valueOf(1), ThreadLocalContext.get("extra"));
+                assertNull(ThreadLocalContext.get("late"));
+                ThreadLocalContext.reset();
+            }).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        ThreadLocalContext.reset();
+        assertNull(ThreadLocalContext.get("k0"));
+    }
+
+    private static final ContextKey<String> TRACE_ID = ContextKey.newKey("traceId");
+    private static final ContextKey<Integer> RETRIES = ContextKey.newKey("retries");
+
+    @Test
+    public void contextKey() throws Exception {
+        assertNull(ThreadLocalContext.get(TRACE_ID));
+        ThreadLocalContext.put(TRACE_ID, "t1");
+        ThreadLocalContext.put(RETRIES, 3);
+        assertEquals("t1", ThreadLocalContext.get(TRACE_ID));
+        assertEquals(Integer.valueOf(3), ThreadLocalContext.get(RETRIES));
+
+        // 快照捕获后再写入不影响快照
+        ThreadLocalContext.Snapshot snapshot = ThreadLocalContext.capture();
+        assertSame(snapshot, ThreadLocalContext.capture());
+        ThreadLocalContext.put(TRACE_ID, "t2");
+        ThreadLocalContext.remove(RETRIES);
+        assertNull(ThreadLocalContext.get(RETRIES));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                assertNull(ThreadLocalContext.get(TRACE_ID));
+                ThreadLocalContext.Snapshot previous = ThreadLocalContext.install(snapshot);
+                assertEquals("t1", ThreadLocalContext.get(TRACE_ID));
+                // 在工作线程中修改不影响快照
+                ThreadLocalContext.put(RETRIES, 4);
+                ThreadLocalContext.restore(previous);
+                assertNull(ThreadLocalContext.get(TRACE_ID));
+            }).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        ThreadLocalContext.install(snapshot);
+        assertEquals(Integer.valueOf(3), ThreadLocalContext.get(RETRIES));
+
+        ThreadLocalContext.reset();
+        assertNull(ThreadLocalContext.get(TRACE_ID));
+        assertTrue(ThreadLocalContext.capture().isEmpty());
+        // 快照中的值不受reset影响
+        assertFalse(snapshot.isEmpty());
+
+        // 未被共享的数组原地清空后可继续使用
+        ThreadLocalContext.put(TRACE_ID, "t3");
+        ThreadLocalContext.reset();
+        assertNull(ThreadLocalContext.get(TRACE_ID));
+    }
+}